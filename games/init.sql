@@ -52,6 +52,7 @@ CREATE TABLE users (
   password VARCHAR(255) NOT NULL,
   sport_balance NUMERIC(15,2) NOT NULL DEFAULT 0.00,
   game_balance NUMERIC(15,2) NOT NULL DEFAULT 0.00,
+  wallet_seq BIGINT NOT NULL DEFAULT 0,
   created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
   updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
   UNIQUE(merchant_id, username)
@@ -65,6 +66,7 @@ COMMENT ON COLUMN users.version IS '樂觀鎖版本號';
 COMMENT ON COLUMN users.password IS '密碼(加密)';
 COMMENT ON COLUMN users.sport_balance IS '體育會員餘額';
 COMMENT ON COLUMN users.game_balance IS '其他遊戲會員餘額';
+COMMENT ON COLUMN users.wallet_seq IS 'Redis 錢包最後寫回的變更序號';
 COMMENT ON COLUMN users.created_at IS '建立時間';
 COMMENT ON COLUMN users.updated_at IS '更新時間';
 
@@ -78,9 +80,12 @@ CREATE TABLE bets (
   user_id BIGINT NOT NULL REFERENCES users(id),
   bet_amount NUMERIC(15,2) NOT NULL,
   win_amount NUMERIC(15,2) NOT NULL DEFAULT 0.00,
-  result TEXT NOT NULL,
+  result TEXT,
+  result_data BYTEA,
   is_win BOOLEAN NOT NULL DEFAULT FALSE,
   game_code VARCHAR(10) NOT NULL,
+  config_version BIGINT,
+  jackpot_amount NUMERIC(15,2) DEFAULT 0.00,
   created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
 );
 
@@ -90,9 +95,12 @@ COMMENT ON COLUMN bets.merchant_id IS '商戶ID';
 COMMENT ON COLUMN bets.user_id IS '會員ID';
 COMMENT ON COLUMN bets.bet_amount IS '投注金額';
 COMMENT ON COLUMN bets.win_amount IS '贏取金額';
-COMMENT ON COLUMN bets.result IS '遊戲結果（JSON格式）';
+COMMENT ON COLUMN bets.result IS '遊戲結果（舊版顯示字串）';
+COMMENT ON COLUMN bets.result_data IS '遊戲結果符號索引（每格 1 byte）';
 COMMENT ON COLUMN bets.is_win IS '是否贏：TRUE-贏, FALSE-輸';
 COMMENT ON COLUMN bets.game_code IS '遊戲代碼';
+COMMENT ON COLUMN bets.config_version IS '投注時的遊戲配置版本（重播用）';
+COMMENT ON COLUMN bets.jackpot_amount IS '彩金派彩金額';
 COMMENT ON COLUMN bets.created_at IS '投注時間';
 
 CREATE INDEX idx_bets_user_created ON bets(user_id, created_at);
@@ -109,6 +117,7 @@ CREATE TABLE transactions (
   balance_after NUMERIC(15,2),
   description VARCHAR(255),
   bet_id BIGINT REFERENCES bets(id),
+  message_id BIGINT,
   created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
 );
 
@@ -116,17 +125,97 @@ COMMENT ON TABLE transactions IS '錢包交易流水表';
 COMMENT ON COLUMN transactions.id IS '交易ID，主鍵';
 COMMENT ON COLUMN transactions.merchant_id IS '商戶ID';
 COMMENT ON COLUMN transactions.user_id IS '會員ID';
-COMMENT ON COLUMN transactions.type IS '交易類型：DEPOSIT-存款, WITHDRAW-提款, BET-投注, WIN-派彩, REFUND-退款';
+COMMENT ON COLUMN transactions.type IS '交易類型：DEPOSIT-存款, WITHDRAW-提款, BET-投注, WIN-派彩, JACKPOT-彩金, REFUND-退款';
 COMMENT ON COLUMN transactions.amount IS '交易金額';
 COMMENT ON COLUMN transactions.balance_before IS '交易前餘額';
 COMMENT ON COLUMN transactions.balance_after IS '交易後餘額';
 COMMENT ON COLUMN transactions.description IS '交易說明';
 COMMENT ON COLUMN transactions.bet_id IS '關聯投注ID';
+COMMENT ON COLUMN transactions.message_id IS '訊息唯一ID（消費端去重）';
 COMMENT ON COLUMN transactions.created_at IS '交易時間';
 
 CREATE INDEX idx_transactions_user_id ON transactions(user_id);
 CREATE INDEX idx_transactions_type ON transactions(type);
 CREATE INDEX idx_transactions_created_at ON transactions(created_at);
+CREATE UNIQUE INDEX uk_transactions_message_id ON transactions(message_id);
+
+-- JACKPOT_POOLS 彩金池快照表
+CREATE TABLE jackpot_pools (
+  game_code VARCHAR(10) PRIMARY KEY,
+  pool_amount NUMERIC(19,4) NOT NULL DEFAULT 0,
+  last_win_amount NUMERIC(15,2),
+  last_winner_user_id BIGINT,
+  last_won_at TIMESTAMP WITH TIME ZONE,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE jackpot_pools IS '彩金池快照表（即時金額以 Redis 為準）';
+COMMENT ON COLUMN jackpot_pools.game_code IS '遊戲代碼，主鍵';
+COMMENT ON COLUMN jackpot_pools.pool_amount IS '彩金池金額（小數 4 位）';
+COMMENT ON COLUMN jackpot_pools.last_win_amount IS '最近一次派彩金額';
+COMMENT ON COLUMN jackpot_pools.last_winner_user_id IS '最近一次得主會員ID';
+COMMENT ON COLUMN jackpot_pools.last_won_at IS '最近一次派彩時間';
+COMMENT ON COLUMN jackpot_pools.updated_at IS '更新時間';
+
+-- OUTBOX_EVENTS 交易訊息 outbox
+CREATE TABLE outbox_events (
+  id BIGSERIAL PRIMARY KEY,
+  event_type VARCHAR(30) NOT NULL,
+  message_key VARCHAR(64),
+  payload TEXT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE outbox_events IS '交易訊息 outbox（與餘額變動同一交易寫入，轉送 RocketMQ 後刪除）';
+COMMENT ON COLUMN outbox_events.id IS '主鍵，轉送順序';
+COMMENT ON COLUMN outbox_events.event_type IS '事件類型：TRANSACTION-老虎機流水, SPORT_TRANSACTION-體育流水';
+COMMENT ON COLUMN outbox_events.message_key IS '訊息鍵（會員ID）';
+COMMENT ON COLUMN outbox_events.payload IS '訊息內容（JSON）';
+COMMENT ON COLUMN outbox_events.created_at IS '建立時間';
+
+-- MQ_PARKED_MESSAGES MQ 暫存訊息
+CREATE TABLE mq_parked_messages (
+  id BIGSERIAL PRIMARY KEY,
+  consumer_group VARCHAR(100) NOT NULL,
+  topic VARCHAR(100) NOT NULL,
+  msg_id VARCHAR(64) NOT NULL,
+  message_key VARCHAR(128),
+  body BYTEA NOT NULL,
+  reconsume_times INT NOT NULL DEFAULT 0,
+  reason VARCHAR(500),
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE mq_parked_messages IS '無法處理而暫存的 MQ 訊息（不再阻塞 queue 或讓死信重播越過），修正後人工處理';
+COMMENT ON COLUMN mq_parked_messages.id IS '主鍵';
+COMMENT ON COLUMN mq_parked_messages.consumer_group IS '消費者群組';
+COMMENT ON COLUMN mq_parked_messages.topic IS '訊息 topic';
+COMMENT ON COLUMN mq_parked_messages.msg_id IS 'RocketMQ msgId';
+COMMENT ON COLUMN mq_parked_messages.message_key IS '訊息 keys';
+COMMENT ON COLUMN mq_parked_messages.body IS '原始訊息內容';
+COMMENT ON COLUMN mq_parked_messages.reconsume_times IS '暫存前的重試次數';
+COMMENT ON COLUMN mq_parked_messages.reason IS '暫存原因';
+COMMENT ON COLUMN mq_parked_messages.created_at IS '建立時間';
+
+CREATE UNIQUE INDEX uk_mq_parked_messages_msg ON mq_parked_messages(consumer_group, msg_id);
+
+-- WALLET_OPS Redis 錢包變更紀錄
+CREATE TABLE wallet_ops (
+  op_id BIGINT PRIMARY KEY,
+  user_id BIGINT NOT NULL,
+  balance_field VARCHAR(10) NOT NULL,
+  amount BIGINT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE wallet_ops IS 'Redis 錢包變更紀錄（與變更所屬的資料庫交易一併提交，用於補償未提交的扣款）';
+COMMENT ON COLUMN wallet_ops.op_id IS '變更ID，主鍵（與 Redis 變更串流的 op 欄位相同）';
+COMMENT ON COLUMN wallet_ops.user_id IS '會員ID';
+COMMENT ON COLUMN wallet_ops.balance_field IS '餘額欄位：game, sport';
+COMMENT ON COLUMN wallet_ops.amount IS '變動金額（分）';
+COMMENT ON COLUMN wallet_ops.created_at IS '建立時間';
+
+CREATE INDEX idx_wallet_ops_created_at ON wallet_ops(created_at);
 
 -- GAME_SETTING 遊戲設定表
 CREATE TABLE game_setting (
@@ -163,6 +252,24 @@ COMMENT ON COLUMN game_setting.updated_at IS '更新時間';
 CREATE INDEX idx_game_setting_game_code ON game_setting(game_code);
 CREATE INDEX idx_game_setting_created_at ON game_setting(created_at);
 
+-- GAME_SETTING_HISTORY 遊戲配置歷史版本
+CREATE TABLE game_setting_history (
+  id BIGSERIAL PRIMARY KEY,
+  game_code VARCHAR(10) NOT NULL,
+  version BIGINT NOT NULL,
+  properties TEXT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+COMMENT ON TABLE game_setting_history IS '遊戲配置歷史版本（投注重播用）';
+COMMENT ON COLUMN game_setting_history.id IS '主鍵';
+COMMENT ON COLUMN game_setting_history.game_code IS '遊戲代碼';
+COMMENT ON COLUMN game_setting_history.version IS '配置版本（game_setting.version）';
+COMMENT ON COLUMN game_setting_history.properties IS '載入時的遊戲配置（JSON）';
+COMMENT ON COLUMN game_setting_history.created_at IS '建立時間';
+
+CREATE UNIQUE INDEX uk_game_setting_history_version ON game_setting_history(game_code, version);
+
 -- MERCHANTS_PROFIT_REPORT 商戶利潤報表
 CREATE TABLE merchants_profit_report (
   id BIGSERIAL PRIMARY KEY,
@@ -525,6 +632,7 @@ CREATE TABLE sport_transactions (
     balance_before NUMERIC(15,4),
     balance_after NUMERIC(15,4),
     description VARCHAR(255),
+    message_id BIGINT,
     created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
 );
 
@@ -538,12 +646,14 @@ COMMENT ON COLUMN sport_transactions.amount IS '交易金額';
 COMMENT ON COLUMN sport_transactions.balance_before IS '交易前餘額';
 COMMENT ON COLUMN sport_transactions.balance_after IS '交易後餘額';
 COMMENT ON COLUMN sport_transactions.description IS '交易說明';
+COMMENT ON COLUMN sport_transactions.message_id IS '訊息唯一ID（消費端去重）';
 COMMENT ON COLUMN sport_transactions.created_at IS '交易時間';
 
 CREATE INDEX idx_sport_trans_user ON sport_transactions(user_id);
 CREATE INDEX idx_sport_trans_bet ON sport_transactions(sport_bet_id);
 CREATE INDEX idx_sport_trans_type ON sport_transactions(type);
 CREATE INDEX idx_sport_trans_created ON sport_transactions(created_at);
+CREATE UNIQUE INDEX uk_sport_trans_message_id ON sport_transactions(message_id);
 
 -- SPORT_MERCHANTS_PROFIT_REPORT 體育商戶利潤報表
 CREATE TABLE sport_merchants_profit_report (
@@ -0,0 +1,11 @@
+-- =============================================
+-- Migration: 投注結果改存符號索引
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 新投注改存符號索引（每格 1 byte），顯示字串於查詢時依 config_version 解碼
+ALTER TABLE bets ADD COLUMN IF NOT EXISTS result_data BYTEA;
+
+-- 新增欄位註解
+COMMENT ON COLUMN bets.result IS '遊戲結果（舊版顯示字串）';
+COMMENT ON COLUMN bets.result_data IS '遊戲結果符號索引（每格 1 byte）';
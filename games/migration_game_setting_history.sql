@@ -0,0 +1,23 @@
+-- =============================================
+-- Migration: 遊戲配置歷史版本
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 每個遊戲配置版本的快照（GameProperties JSON），重啟後仍可依 bets.config_version 重播舊投注
+CREATE TABLE IF NOT EXISTS game_setting_history (
+  id BIGSERIAL PRIMARY KEY,
+  game_code VARCHAR(10) NOT NULL,
+  version BIGINT NOT NULL,
+  properties TEXT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_game_setting_history_version ON game_setting_history(game_code, version);
+
+-- 新增欄位註解
+COMMENT ON TABLE game_setting_history IS '遊戲配置歷史版本（投注重播用）';
+COMMENT ON COLUMN game_setting_history.id IS '主鍵';
+COMMENT ON COLUMN game_setting_history.game_code IS '遊戲代碼';
+COMMENT ON COLUMN game_setting_history.version IS '配置版本（game_setting.version）';
+COMMENT ON COLUMN game_setting_history.properties IS '載入時的遊戲配置（JSON）';
+COMMENT ON COLUMN game_setting_history.created_at IS '建立時間';
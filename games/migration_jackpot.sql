@@ -0,0 +1,26 @@
+-- =============================================
+-- Migration: 老虎機累積彩金池
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 彩金池快照表（即時金額以 Redis 為準）
+CREATE TABLE IF NOT EXISTS jackpot_pools (
+  game_code VARCHAR(10) PRIMARY KEY,
+  pool_amount NUMERIC(19,4) NOT NULL DEFAULT 0,
+  last_win_amount NUMERIC(15,2),
+  last_winner_user_id BIGINT,
+  last_won_at TIMESTAMP WITH TIME ZONE,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- 投注彩金派彩金額
+ALTER TABLE bets ADD COLUMN IF NOT EXISTS jackpot_amount NUMERIC(15,2) DEFAULT 0.00;
+
+-- 新增欄位註解
+COMMENT ON TABLE jackpot_pools IS '彩金池快照表（即時金額以 Redis 為準）';
+COMMENT ON COLUMN jackpot_pools.pool_amount IS '彩金池金額（小數 4 位）';
+COMMENT ON COLUMN jackpot_pools.last_win_amount IS '最近一次派彩金額';
+COMMENT ON COLUMN jackpot_pools.last_winner_user_id IS '最近一次得主會員ID';
+COMMENT ON COLUMN jackpot_pools.last_won_at IS '最近一次派彩時間';
+COMMENT ON COLUMN bets.jackpot_amount IS '彩金派彩金額';
+COMMENT ON COLUMN transactions.type IS '交易類型：DEPOSIT-存款, WITHDRAW-提款, BET-投注, WIN-派彩, JACKPOT-彩金, REFUND-退款';
@@ -0,0 +1,20 @@
+-- =============================================
+-- Migration: 交易流水訊息唯一ID（消費端去重）
+-- 日期: 2026-10-18
+-- =============================================
+-- 唯一索引以 CONCURRENTLY 建立，不鎖住交易流水表的寫入；CONCURRENTLY 不能在交易區塊中執行，
+-- 請以 autocommit 逐句執行（psql -f，勿加 --single-transaction，也不要包在 BEGIN / COMMIT 中）
+-- =============================================
+
+-- 訊息唯一ID（outbox 寫入時產生），唯一索引為去重的最終依據；升級前的流水為 NULL
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS message_id BIGINT;
+ALTER TABLE sport_transactions ADD COLUMN IF NOT EXISTS message_id BIGINT;
+
+-- 建立中斷會留下 INVALID 的索引（IF NOT EXISTS 會略過），需先 DROP INDEX CONCURRENTLY 再重新執行；
+-- 以 SELECT indexrelid::regclass FROM pg_index WHERE NOT indisvalid; 確認沒有無效索引
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_transactions_message_id ON transactions(message_id);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_sport_trans_message_id ON sport_transactions(message_id);
+
+-- 新增欄位註解
+COMMENT ON COLUMN transactions.message_id IS '訊息唯一ID（消費端去重）';
+COMMENT ON COLUMN sport_transactions.message_id IS '訊息唯一ID（消費端去重）';
@@ -0,0 +1,31 @@
+-- =============================================
+-- Migration: MQ 暫存訊息
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 無法處理的訊息（資料錯誤、重試次數用盡）寫入此表後確認消費，不再阻塞順序消費的 queue
+CREATE TABLE IF NOT EXISTS mq_parked_messages (
+  id BIGSERIAL PRIMARY KEY,
+  consumer_group VARCHAR(100) NOT NULL,
+  topic VARCHAR(100) NOT NULL,
+  msg_id VARCHAR(64) NOT NULL,
+  message_key VARCHAR(128),
+  body BYTEA NOT NULL,
+  reconsume_times INT NOT NULL DEFAULT 0,
+  reason VARCHAR(500),
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_mq_parked_messages_msg ON mq_parked_messages(consumer_group, msg_id);
+
+-- 新增欄位註解
+COMMENT ON TABLE mq_parked_messages IS '無法處理而暫存的 MQ 訊息（不再阻塞 queue 或讓死信重播越過），修正後人工處理';
+COMMENT ON COLUMN mq_parked_messages.id IS '主鍵';
+COMMENT ON COLUMN mq_parked_messages.consumer_group IS '消費者群組';
+COMMENT ON COLUMN mq_parked_messages.topic IS '訊息 topic';
+COMMENT ON COLUMN mq_parked_messages.msg_id IS 'RocketMQ msgId';
+COMMENT ON COLUMN mq_parked_messages.message_key IS '訊息 keys';
+COMMENT ON COLUMN mq_parked_messages.body IS '原始訊息內容';
+COMMENT ON COLUMN mq_parked_messages.reconsume_times IS '暫存前的重試次數';
+COMMENT ON COLUMN mq_parked_messages.reason IS '暫存原因';
+COMMENT ON COLUMN mq_parked_messages.created_at IS '建立時間';
@@ -0,0 +1,21 @@
+-- =============================================
+-- Migration: 交易訊息 outbox
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 交易訊息 outbox（與餘額變動同一交易寫入，由 OutboxRelayService 轉送後刪除）
+CREATE TABLE IF NOT EXISTS outbox_events (
+  id BIGSERIAL PRIMARY KEY,
+  event_type VARCHAR(30) NOT NULL,
+  message_key VARCHAR(64),
+  payload TEXT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- 新增欄位註解
+COMMENT ON TABLE outbox_events IS '交易訊息 outbox（與餘額變動同一交易寫入，轉送 RocketMQ 後刪除）';
+COMMENT ON COLUMN outbox_events.id IS '主鍵，轉送順序';
+COMMENT ON COLUMN outbox_events.event_type IS '事件類型：TRANSACTION-老虎機流水, SPORT_TRANSACTION-體育流水';
+COMMENT ON COLUMN outbox_events.message_key IS '訊息鍵（會員ID）';
+COMMENT ON COLUMN outbox_events.payload IS '訊息內容（JSON）';
+COMMENT ON COLUMN outbox_events.created_at IS '建立時間';
@@ -0,0 +1,17 @@
+-- =============================================
+-- Migration: outbox_events 恢復由 BIGSERIAL 於寫入時配置 ID
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 各節點預先配置 ID 區段時，同一用戶在不同節點寫入的事件可能以較小的 ID 先被轉送，破壞流水順序；
+-- 已執行過 migration_outbox_sequence.sql 的資料庫需執行本檔，未執行過者執行本檔亦無影響
+CREATE SEQUENCE IF NOT EXISTS outbox_events_id_seq OWNED BY outbox_events.id;
+SELECT setval('outbox_events_id_seq', GREATEST(
+    (SELECT COALESCE(MAX(id), 0) FROM outbox_events),
+    (SELECT last_value FROM outbox_events_id_seq),
+    1));
+ALTER TABLE outbox_events ALTER COLUMN id SET DEFAULT nextval('outbox_events_id_seq');
+DROP SEQUENCE IF EXISTS outbox_events_seq;
+
+-- 新增欄位註解
+COMMENT ON COLUMN outbox_events.id IS '主鍵，轉送順序（BIGSERIAL，寫入時配置）';
@@ -0,0 +1,10 @@
+-- =============================================
+-- Migration: Redis 錢包模式（write-behind）
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 最後寫回的 Redis 錢包變更序號，寫回時只接受較新的序號
+ALTER TABLE users ADD COLUMN IF NOT EXISTS wallet_seq BIGINT NOT NULL DEFAULT 0;
+
+-- 新增欄位註解
+COMMENT ON COLUMN users.wallet_seq IS 'Redis 錢包最後寫回的變更序號';
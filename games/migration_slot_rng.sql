@@ -0,0 +1,13 @@
+-- =============================================
+-- Migration: 老虎機每注種子與重播
+-- 日期: 2026-10-18
+-- =============================================
+
+-- 記錄投注時的配置版本，搭配 betId 衍生的種子可重現旋轉結果
+ALTER TABLE bets ADD COLUMN IF NOT EXISTS config_version BIGINT;
+
+-- 結果字串改為可選（game.slot.store-result=false 時不儲存）
+ALTER TABLE bets ALTER COLUMN result DROP NOT NULL;
+
+-- 新增欄位註解
+COMMENT ON COLUMN bets.config_version IS '投注時的遊戲配置版本（重播用）';
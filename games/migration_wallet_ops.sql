@@ -0,0 +1,23 @@
+-- =============================================
+-- Migration: Redis 錢包變更紀錄
+-- 日期: 2026-10-18
+-- =============================================
+
+-- Redis 錢包扣款後、資料庫交易提交前節點異常終止時，依此表判斷變更是否已提交
+CREATE TABLE IF NOT EXISTS wallet_ops (
+  op_id BIGINT PRIMARY KEY,
+  user_id BIGINT NOT NULL,
+  balance_field VARCHAR(10) NOT NULL,
+  amount BIGINT NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_wallet_ops_created_at ON wallet_ops(created_at);
+
+-- 新增欄位註解
+COMMENT ON TABLE wallet_ops IS 'Redis 錢包變更紀錄（與變更所屬的資料庫交易一併提交，用於補償未提交的扣款）';
+COMMENT ON COLUMN wallet_ops.op_id IS '變更ID，主鍵（與 Redis 變更串流的 op 欄位相同）';
+COMMENT ON COLUMN wallet_ops.user_id IS '會員ID';
+COMMENT ON COLUMN wallet_ops.balance_field IS '餘額欄位：game, sport';
+COMMENT ON COLUMN wallet_ops.amount IS '變動金額（分）';
+COMMENT ON COLUMN wallet_ops.created_at IS '建立時間';
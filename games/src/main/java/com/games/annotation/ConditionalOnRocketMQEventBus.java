@@ -0,0 +1,16 @@
+package com.games.annotation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.*;
+
+/**
+ * 僅在 game.event-bus.mode=rocketmq（預設）時建立的 Bean
+ * 用於需要連線 broker 的生產者與消費者；in-process 模式下由 InProcessEventBus 直接分派給 GameEventHandler
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(name = "game.event-bus.mode", havingValue = "rocketmq", matchIfMissing = true)
+public @interface ConditionalOnRocketMQEventBus {
+}
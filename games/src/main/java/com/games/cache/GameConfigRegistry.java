@@ -0,0 +1,193 @@
+package com.games.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.games.config.GameProperties;
+import com.games.constant.RedisConstant;
+import com.games.entity.GameSettingHistory;
+import com.games.repository.GameSettingHistoryRepository;
+import com.games.slot.CompiledGameConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地遊戲配置註冊表
+ *
+ * 以 gameCode 為鍵保存不可變的 CompiledGameConfig，旋轉路徑直接讀取本地記憶體。
+ *
+ * 失效機制（全叢集）：
+ * 1. GameSettingService 更新配置後遞增 Redis 版本號並發布 game_setting_changed 訊息
+ * 2. 各節點收到訊息後從 Redis hash 重新載入
+ * 3. 定時比對版本號作為訊息遺失時的備援
+ *
+ * 另保留每個遊戲最近幾個配置版本，供投注重播驗證使用；記憶體中沒有的版本（重啟或已淘汰）
+ * 由 game_setting_history 載入。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GameConfigRegistry implements MessageListener {
+
+    /** 每個遊戲保留的歷史配置版本數 */
+    private static final int MAX_HISTORY_VERSIONS = 20;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final GameSettingHistoryRepository gameSettingHistoryRepository;
+
+    private volatile Map<String, CompiledGameConfig> configs = Collections.emptyMap();
+    private volatile long version = -1L;
+    private final Map<String, Map<Long, CompiledGameConfig>> history = new ConcurrentHashMap<>();
+
+    /**
+     * 取得編譯後的遊戲配置，不存在時回傳 null
+     */
+    public CompiledGameConfig get(String gameCode) {
+        return configs.get(gameCode);
+    }
+
+    /**
+     * 取得指定配置版本，記憶體中沒有時由 game_setting_history 載入，仍找不到時回傳 null
+     */
+    public CompiledGameConfig get(String gameCode, long configVersion) {
+        CompiledGameConfig current = configs.get(gameCode);
+        if (current != null && current.getVersion() == configVersion) {
+            return current;
+        }
+        Map<Long, CompiledGameConfig> versions = history.get(gameCode);
+        if (versions != null) {
+            synchronized (versions) {
+                CompiledGameConfig config = versions.get(configVersion);
+                if (config != null) {
+                    return config;
+                }
+            }
+        }
+        return loadHistory(gameCode, configVersion);
+    }
+
+    private CompiledGameConfig loadHistory(String gameCode, long configVersion) {
+        GameSettingHistory snapshot = gameSettingHistoryRepository.findByGameCodeAndVersion(gameCode, configVersion)
+                .orElse(null);
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            CompiledGameConfig config = CompiledGameConfig.compile(gameCode,
+                    objectMapper.readValue(snapshot.getProperties(), GameProperties.class));
+            remember(config);
+            return config;
+        } catch (Exception e) {
+            log.error("Failed to compile historical game config: gameCode={}, version={}", gameCode, configVersion, e);
+            return null;
+        }
+    }
+
+    /**
+     * 目前已載入的遊戲代碼
+     */
+    public Set<String> gameCodes() {
+        return configs.keySet();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 以新的配置整批替換本地註冊表
+     */
+    public synchronized void replaceAll(Map<String, GameProperties> properties, long newVersion) {
+        Map<String, CompiledGameConfig> compiled = new HashMap<>();
+        for (Map.Entry<String, GameProperties> entry : properties.entrySet()) {
+            try {
+                CompiledGameConfig config = CompiledGameConfig.compile(entry.getKey(), entry.getValue());
+                compiled.put(entry.getKey(), config);
+                remember(config);
+            } catch (Exception e) {
+                log.error("Failed to compile game config for gameCode={}", entry.getKey(), e);
+            }
+        }
+        this.configs = Collections.unmodifiableMap(compiled);
+        this.version = newVersion;
+        log.info("Game config registry loaded: {} games, version={}", compiled.size(), newVersion);
+    }
+
+    private void remember(CompiledGameConfig config) {
+        Map<Long, CompiledGameConfig> versions = history.computeIfAbsent(config.getGameCode(),
+                k -> new LinkedHashMap<>(16, 0.75f, false) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Long, CompiledGameConfig> eldest) {
+                        return size() > MAX_HISTORY_VERSIONS;
+                    }
+                });
+        synchronized (versions) {
+            versions.putIfAbsent(config.getVersion(), config);
+        }
+    }
+
+    /**
+     * 從 Redis hash 重新載入全部配置
+     */
+    public synchronized void reloadFromRedis() {
+        long currentVersion = readRemoteVersion();
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(RedisConstant.GAME_SETTING_ALL);
+        Map<String, GameProperties> properties = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String gameCode = entry.getKey().toString();
+            try {
+                properties.put(gameCode, objectMapper.readValue((String) entry.getValue(), GameProperties.class));
+            } catch (Exception e) {
+                log.error("Failed to parse game config from Redis for gameCode={}", gameCode, e);
+            }
+        }
+        replaceAll(properties, currentVersion);
+    }
+
+    /**
+     * 收到配置變更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        log.info("Received game setting change notification: {}", new String(message.getBody()));
+        try {
+            reloadFromRedis();
+        } catch (Exception e) {
+            log.error("Failed to reload game settings after notification", e);
+        }
+    }
+
+    /**
+     * 版本號輪詢（pub/sub 訊息遺失時的備援）
+     */
+    @Scheduled(fixedDelayString = "${game.config.version-poll-interval-ms:5000}")
+    public void pollVersion() {
+        try {
+            long remoteVersion = readRemoteVersion();
+            if (remoteVersion != version) {
+                log.info("Game setting version changed: local={}, remote={}", version, remoteVersion);
+                reloadFromRedis();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to poll game setting version: {}", e.getMessage());
+        }
+    }
+
+    private long readRemoteVersion() {
+        String value = stringRedisTemplate.opsForValue().get(RedisConstant.GAME_SETTING_VERSION);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+}
@@ -0,0 +1,116 @@
+package com.games.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 輪替式 Bloom filter（以 long 鍵為元素，執行緒安全）
+ *
+ * 保留固定數量的世代，新元素只寫入最新世代，查詢時檢查所有世代；rotate() 以新的空世代取代最舊的世代。
+ * 元素在被寫入後至少保留 (generations - 1) 個輪替週期，記憶體用量固定，不隨時間成長。
+ * mightContain 回傳 false 時必定未加入過（在保留期間內）；回傳 true 時可能誤判，須再查詢來源確認。
+ */
+public final class RotatingBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final int bits;
+    private final int hashes;
+    private volatile Generation[] generations;
+
+    /**
+     * @param expectedInsertions 每個世代預期加入的元素數
+     * @param falsePositiveRate  每個世代的誤判率
+     * @param generationCount    保留的世代數（至少 2）
+     */
+    public RotatingBloomFilter(long expectedInsertions, double falsePositiveRate, int generationCount) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || generationCount < 2) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters");
+        }
+        long size = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        this.bits = (int) Math.min(Math.max(size, 64L), Integer.MAX_VALUE - 63L);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * LN2));
+        Generation[] initial = new Generation[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            initial[i] = new Generation(bits);
+        }
+        this.generations = initial;
+    }
+
+    public void put(long key) {
+        Generation current = generations[0];
+        long h1 = mix(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashes; i++) {
+            current.set(index(h1, h2, i));
+        }
+    }
+
+    public boolean mightContain(long key) {
+        long h1 = mix(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (Generation generation : generations) {
+            if (generation.containsAll(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以新的空世代取代最舊的世代
+     */
+    public synchronized void rotate() {
+        Generation[] current = generations;
+        Generation[] next = new Generation[current.length];
+        next[0] = new Generation(bits);
+        System.arraycopy(current, 0, next, 1, current.length - 1);
+        generations = next;
+    }
+
+    /**
+     * 所有世代佔用的位元組數
+     */
+    public long sizeInBytes() {
+        return (long) generations.length * ((bits + 63) / 64) * Long.BYTES;
+    }
+
+    private int index(long h1, long h2, int i) {
+        return (int) Math.floorMod(h1 + i * h2, (long) bits);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private final class Generation {
+
+        private final AtomicLongArray words;
+
+        private Generation(int bits) {
+            this.words = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        private void set(int bit) {
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            if ((words.get(word) & mask) == 0) {
+                words.accumulateAndGet(word, mask, (a, b) -> a | b);
+            }
+        }
+
+        private boolean containsAll(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(h1, h2, i);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
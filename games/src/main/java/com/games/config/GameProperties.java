@@ -16,4 +16,28 @@ public class GameProperties {
     private LinkedHashMap<String, Double> payoutMultipliers;
     private BigDecimal twoMatchMultiplier;
     private boolean isImage;
+    /** 配置版本（對應 game_setting.version） */
+    private Long version;
+    /** 理論 RTP（%），載入配置時由 RtpCalculatorService 計算 */
+    private Double theoreticalRtp;
+    /** 引擎：CLASSIC（預設）或 REEL_STRIP */
+    private String engine;
+    /** REEL_STRIP：每輪可見列數 */
+    private Integer rows;
+    /** REEL_STRIP：各輪滾輪條（符號代碼序列） */
+    private List<List<String>> reelStrips;
+    /** REEL_STRIP：賠付線，每條線為各輪的列索引 */
+    private List<List<Integer>> paylines;
+    /** REEL_STRIP：是否以 ways-to-win 計算（忽略 paylines） */
+    private Boolean waysToWin;
+    /** REEL_STRIP：賠率表，符號 → 連續 1..N 輪的倍數（以總投注額為 1） */
+    private LinkedHashMap<String, List<Double>> paytable;
+    /** REEL_STRIP：百搭符號代碼 */
+    private String wildSymbol;
+    /** 彩金池提撥比例（例如 0.01 = 投注額的 1%），未設定表示不啟用彩金 */
+    private Double jackpotRate;
+    /** 每次旋轉觸發彩金的機率 */
+    private Double jackpotTriggerProbability;
+    /** 彩金派出後的池底金額 */
+    private BigDecimal jackpotSeed;
 }
@@ -1,36 +1,75 @@
 package com.games.config;
 
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import com.games.serializer.BinaryMessageCodec;
+import com.games.serializer.BinaryMessageConverter;
 import org.apache.rocketmq.client.producer.DefaultMQProducer;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
+@ConditionalOnRocketMQEventBus
 public class RocketMQMultiConfig {
 
+    public static final String CODEC_BINARY = "binary";
+
+    /**
+     * 發送端編碼：json（預設）或 binary
+     * 消費端兩種格式都能解碼，須先部署消費端再切換為 binary
+     */
+    @Value("${game.mq.codec:json}")
+    private String codec;
+
     @Bean("gamesRocketMQTemplate")
     public RocketMQTemplate gamesTemplate(
             @Value("${rocketmq.name-server}") String namesrvAddr,
-            RocketMQMessageConverter rocketMQMessageConverter) {
+            RocketMQMessageConverter rocketMQMessageConverter,
+            BinaryMessageCodec binaryMessageCodec) {
         DefaultMQProducer producer = new DefaultMQProducer("games-group");
         producer.setNamesrvAddr(namesrvAddr);
         RocketMQTemplate template = new RocketMQTemplate();
         template.setProducer(producer);
-        template.setMessageConverter(rocketMQMessageConverter.getMessageConverter());
+        template.setMessageConverter(messageConverter(rocketMQMessageConverter, binaryMessageCodec));
         return template;
     }
 
     @Bean("sportRocketMQTemplate")
     public RocketMQTemplate sportTemplate(
             @Value("${rocketmq.sport-name-server:${rocketmq.name-server}}") String namesrvAddr,
-            RocketMQMessageConverter rocketMQMessageConverter) {
+            RocketMQMessageConverter rocketMQMessageConverter,
+            BinaryMessageCodec binaryMessageCodec) {
         DefaultMQProducer producer = new DefaultMQProducer("sport-group");
         producer.setNamesrvAddr(namesrvAddr);
         RocketMQTemplate template = new RocketMQTemplate();
         template.setProducer(producer);
-        template.setMessageConverter(rocketMQMessageConverter.getMessageConverter());
+        template.setMessageConverter(messageConverter(rocketMQMessageConverter, binaryMessageCodec));
         return template;
     }
+
+    /**
+     * binary 模式下已註冊的訊息類型以二進位編碼，其餘類型仍走原本的 JSON 轉換器
+     */
+    private MessageConverter messageConverter(RocketMQMessageConverter rocketMQMessageConverter,
+                                              BinaryMessageCodec binaryMessageCodec) {
+        MessageConverter fallback = rocketMQMessageConverter.getMessageConverter();
+        if (!CODEC_BINARY.equalsIgnoreCase(codec)) {
+            return fallback;
+        }
+        List<MessageConverter> converters = new ArrayList<>();
+        converters.add(new BinaryMessageConverter(binaryMessageCodec));
+        if (fallback instanceof CompositeMessageConverter composite) {
+            converters.addAll(composite.getConverters());
+        } else {
+            converters.add(fallback);
+        }
+        return new CompositeMessageConverter(converters);
+    }
 }
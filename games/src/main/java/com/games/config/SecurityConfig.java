@@ -1,6 +1,7 @@
 package com.games.config;
 
 import com.games.security.JwtAuthenticationFilter;
+import com.games.security.OpsApiKeyFilter;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,6 +26,7 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final OpsApiKeyFilter opsApiKeyFilter;
 
     @Value("${cors.allowed-origins:*}")
     private List<String> allowedOrigins;
@@ -37,12 +39,16 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        // RTP 模擬會佔用全部核心，需登入
+                        .requestMatchers("/api/rtp/simulate/**").authenticated()
                         .requestMatchers("/api/rtp/**").permitAll()
                         .requestMatchers("/api/league/**").permitAll()
                         .requestMatchers("/api/odds-format/**").permitAll()
                         .requestMatchers("/api/sport-type/**").permitAll()
                         // 爬蟲接口（使用 API Key 認證，不需要 JWT）
                         .requestMatchers("/api/crawler/**").permitAll()
+                        // 死信重播等維運接口（使用 X-OPS-KEY 維運金鑰，不接受商戶 API Key 與玩家 JWT）
+                        .requestMatchers(OpsApiKeyFilter.PATH_PREFIX + "/**").hasRole(OpsApiKeyFilter.ROLE)
                         // Swagger UI 相關路徑
                         .requestMatchers("/swagger-ui/**").permitAll()
                         .requestMatchers("/swagger-ui.html").permitAll()
@@ -58,6 +64,7 @@ public class SecurityConfig {
                             response.getWriter().write("{\"error\":\"Unauthorized\"}");
                         })
                 )
+                .addFilterBefore(opsApiKeyFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -68,7 +75,7 @@ public class SecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(allowedOrigins);
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "X-API-KEY", "Content-Type", "Accept"));
+        config.setAllowedHeaders(List.of("Authorization", "X-API-KEY", "X-OPS-KEY", "Content-Type", "Accept"));
         config.setExposedHeaders(List.of("Authorization"));
         // allowedOrigins 包含 "*" 時不能同時設 allowCredentials=true
         config.setAllowCredentials(!allowedOrigins.contains("*"));
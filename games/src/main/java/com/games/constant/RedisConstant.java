@@ -7,12 +7,19 @@ public class RedisConstant {
     public static final String WITHDRAW = "WITHDRAW";
     public static final String PLACE_BET = "PLACE_BET";
 
-    public static final String RTP_TOTAL_BET_KEY = "rtp:total:bet";
-    public static final String RTP_TOTAL_WIN_KEY = "rtp:total:win";
-    public static final String RTP_BET_COUNT_KEY = "rtp:total:count";
+    public static final String RTP_GAME_KEY_PREFIX = "rtp:game:";
+    public static final String RTP_WINDOW_KEY_PREFIX = "rtp:window:";
+    public static final String JACKPOT_POOL_KEY_PREFIX = "jackpot:pool:";
+    public static final String JACKPOT_CLAIMS_KEY_PREFIX = "jackpot:claims:";
+    public static final String WALLET_KEY_PREFIX = "wallet:user:";
+    public static final String WALLET_STREAM_PREFIX = "wallet:stream:";
+    public static final String WALLET_OPS_PREFIX = "wallet:ops:";
+    public static final String WALLET_CONSUMER_GROUP = "wallet-write-behind";
     public static final long STATS_TTL_DAYS = 30;
 
     public static final String GAME_SETTING_ALL = "game_setting_all";
+    public static final String GAME_SETTING_VERSION = "game_setting_version";
+    public static final String GAME_SETTING_CHANNEL = "game_setting_changed";
     public static final String SPORT_ODDS_FORMAT_ALL = "sport_odds_format_all";
     public static final String SPORT_TYPE_ALL = "sport_type_all";
     public static final String COUNTRY_ALL = "country_all";
@@ -11,4 +11,7 @@ public class RocketMQConstant {
     public static final String TRANSACTION_TAG = "transaction";
     public static final String SPORT_TRANSACTION_TAG = "sport-transaction";
     public static final String RTP_TAG = "rtp";
+
+    // Destination 常量（topic:tag）
+    public static final String RTP_UPDATE_DESTINATION = RTP_UPDATE_TOPIC + ":" + RTP_TAG;
 }
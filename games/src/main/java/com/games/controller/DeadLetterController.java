@@ -0,0 +1,93 @@
+package com.games.controller;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import com.games.dto.ApiResponse;
+import com.games.dto.DeadLetterReplayResponse;
+import com.games.rocketmq.consumer.DeadLetterReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/mq/dlq")
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+@Tag(name = "死信重播", description = "RocketMQ 死信佇列分類與限速重播相關 API（需以 X-OPS-KEY 標頭帶入維運金鑰）")
+public class DeadLetterController {
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    @Operation(summary = "查詢可重播的消費者群組", description = "列出可重播死信的消費者群組")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功")
+    })
+    @GetMapping("/groups")
+    public ResponseEntity<ApiResponse<List<String>>> getConsumerGroups() {
+        return ResponseEntity.ok(ApiResponse.success(deadLetterReplayService.getConsumerGroups()));
+    }
+
+    @Operation(summary = "開始重播死信", description = """
+            讀取 %DLQ%{consumerGroup} 並交給原本的處理邏輯重播，於背景執行
+
+            - rate：每秒重播筆數上限
+            - concurrency：並行度，同一用戶的訊息固定由同一條執行緒依序重播
+            - limit：最多處理的訊息數，0 表示直到讀完
+            - dryRun：只分類不重播，也不提交位移
+
+            無法重播的訊息暫存到 mq_parked_messages 後才提交位移；暫時性錯誤重試耗盡時工作停止且不提交
+            """)
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "已開始"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "參數超出範圍"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "消費者群組不存在"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "該群組已有重播工作執行中")
+    })
+    @PostMapping("/{consumerGroup}/replay")
+    public ResponseEntity<ApiResponse<DeadLetterReplayResponse>> replay(
+            @Parameter(description = "消費者群組") @PathVariable String consumerGroup,
+            @Parameter(description = "每秒重播筆數上限") @RequestParam(defaultValue = "200") int rate,
+            @Parameter(description = "並行度") @RequestParam(defaultValue = "4") int concurrency,
+            @Parameter(description = "最多處理的訊息數，0 表示直到讀完") @RequestParam(defaultValue = "0") long limit,
+            @Parameter(description = "只分類不重播") @RequestParam(defaultValue = "false") boolean dryRun) {
+        DeadLetterReplayResponse job = deadLetterReplayService.start(consumerGroup, rate, concurrency, limit, dryRun);
+        return ResponseEntity.ok(ApiResponse.success("Dead letter replay started", job));
+    }
+
+    @Operation(summary = "查詢重播工作", description = "列出本節點的重播工作與進度")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功")
+    })
+    @GetMapping("/jobs")
+    public ResponseEntity<ApiResponse<List<DeadLetterReplayResponse>>> getJobs() {
+        return ResponseEntity.ok(ApiResponse.success(deadLetterReplayService.getJobs()));
+    }
+
+    @Operation(summary = "查詢重播進度", description = "查詢指定重播工作的進度與各分類筆數")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "工作不存在")
+    })
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<DeadLetterReplayResponse>> getJob(
+            @Parameter(description = "工作ID") @PathVariable long jobId) {
+        return ResponseEntity.ok(ApiResponse.success(deadLetterReplayService.getJob(jobId)));
+    }
+
+    @Operation(summary = "取消重播", description = "目前這一批處理完後停止，未完成的批次不提交位移")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "已要求取消"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "工作不存在")
+    })
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<ApiResponse<DeadLetterReplayResponse>> cancel(
+            @Parameter(description = "工作ID") @PathVariable long jobId) {
+        return ResponseEntity.ok(ApiResponse.success("Dead letter replay cancel requested",
+                deadLetterReplayService.cancel(jobId)));
+    }
+}
@@ -1,11 +1,13 @@
 package com.games.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.games.dto.*;
 import com.games.entity.Merchant;
 import com.games.entity.User;
+import com.games.lock.UserShardExecutor;
 import com.games.service.AuthService;
+import com.games.service.JackpotService;
 import com.games.service.SlotGameService;
+import com.games.service.SpinReplayService;
 import com.games.util.PageDataResUtil;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,6 +32,9 @@ public class GameController {
 
     private final SlotGameService slotGameService;
     private final AuthService authService;
+    private final SpinReplayService spinReplayService;
+    private final JackpotService jackpotService;
+    private final UserShardExecutor userShardExecutor;
 
     @Operation(summary = "老虎機下注", description = "對指定遊戲進行下注，會根據 RTP 設定計算中獎結果")
     @ApiResponses(value = {
@@ -44,11 +49,32 @@ public class GameController {
             @Parameter(description = "遊戲代碼，例如：FRUIT_SLOT") @PathVariable String gameCode,
             @Valid @RequestBody BetRequest request,
             @Parameter(hidden = true) Authentication authentication,
-            @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant)
-            throws JsonProcessingException {
+            @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
+        String username = authentication.getName();
+        User user = authService.getUserByUsername(merchant.getId(), username);
+        BetResponse response = userShardExecutor.execute(user.getId(),
+                () -> slotGameService.placeBet(merchant, user, gameCode, request.getAmount()));
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @Operation(summary = "老虎機批次下注", description = "自動旋轉：在同一個鎖與交易內連續執行多次旋轉，餘額不足時提前停止")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "投注成功"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "餘額不足或參數錯誤"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "未授權"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "429", description = "請求過於頻繁")
+    })
+    @PostMapping("/spin/{gameCode}/batch")
+    @RateLimiter(name = "spin")
+    public ResponseEntity<ApiResponse<BatchBetResponse>> batchSpin(
+            @Parameter(description = "遊戲代碼，例如：FRUIT_SLOT") @PathVariable String gameCode,
+            @Valid @RequestBody BatchBetRequest request,
+            @Parameter(hidden = true) Authentication authentication,
+            @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        BetResponse response = slotGameService.placeBet(merchant, user, gameCode, request.getAmount());
+        BatchBetResponse response = userShardExecutor.execute(user.getId(),
+                () -> slotGameService.placeBatchBet(merchant, user, gameCode, request.getAmount(), request.getCount()));
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -87,4 +113,35 @@ public class GameController {
         PageDataResUtil<BetRecordsResponse> data = slotGameService.getBetRecords(user, request);
         return ResponseEntity.ok(ApiResponse.success(data));
     }
+
+    @Operation(summary = "重播投注", description = "以投注種子與當時的配置版本重現旋轉結果，並與投注記錄比對")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "未授權"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "投注不存在")
+    })
+    @GetMapping("/replay/{betId}")
+    public ResponseEntity<ApiResponse<SpinReplayResponse>> replay(
+            @Parameter(description = "投注ID") @PathVariable Long betId,
+            @Parameter(hidden = true) Authentication authentication,
+            @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
+        String username = authentication.getName();
+        User user = authService.getUserByUsername(merchant.getId(), username);
+        SpinReplayResponse response = spinReplayService.replay(user, betId);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @Operation(summary = "查詢彩金池", description = "查詢指定遊戲目前的累積彩金池金額")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "未授權")
+    })
+    @GetMapping("/jackpot/{gameCode}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJackpot(
+            @Parameter(description = "遊戲代碼，例如：FRUIT_SLOT") @PathVariable String gameCode) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("gameCode", gameCode);
+        data.put("poolAmount", jackpotService.getPoolAmount(gameCode));
+        return ResponseEntity.ok(ApiResponse.success(data));
+    }
 }
@@ -6,6 +6,7 @@ import com.games.dto.WalletResponse;
 import com.games.entity.Merchant;
 import com.games.entity.User;
 import com.games.enums.TransactionType;
+import com.games.lock.UserShardExecutor;
 import com.games.service.AuthService;
 import com.games.service.GamesWalletService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
@@ -27,6 +28,7 @@ public class GamesWalletController {
 
     private final GamesWalletService gamesWalletService;
     private final AuthService authService;
+    private final UserShardExecutor userShardExecutor;
 
     @Operation(summary = "遊戲錢包充值", description = "向電子遊戲錢包充值指定金額")
     @ApiResponses(value = {
@@ -43,7 +45,8 @@ public class GamesWalletController {
             @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        User updatedUser = gamesWalletService.deposit(merchant, user, request.getAmount());
+        User updatedUser = userShardExecutor.execute(user.getId(),
+                () -> gamesWalletService.deposit(merchant, user, request.getAmount()));
 
         WalletResponse response = new WalletResponse(
                 updatedUser.getUsername(),
@@ -70,7 +73,8 @@ public class GamesWalletController {
             @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        User updatedUser = gamesWalletService.withdrawAll(merchant, user);
+        User updatedUser = userShardExecutor.execute(user.getId(),
+                () -> gamesWalletService.withdrawAll(merchant, user));
 
         WalletResponse response = new WalletResponse(
                 updatedUser.getUsername(),
@@ -1,14 +1,20 @@
 package com.games.controller;
 
 import com.games.dto.ApiResponse;
+import com.games.dto.RtpSimulationJobResponse;
+import com.games.dto.RtpWindowResponse;
+import com.games.service.RtpSimulationService;
 import com.games.service.RtpStatisticsService;
+import com.games.service.RtpWindowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.math.BigDecimal;
 import java.util.Map;
 
 @RestController
@@ -18,6 +24,8 @@ import java.util.Map;
 public class RtpController {
 
     private final RtpStatisticsService rtpStatisticsService;
+    private final RtpSimulationService rtpSimulationService;
+    private final RtpWindowService rtpWindowService;
 
     @Operation(summary = "查詢 RTP 統計", description = "查詢指定遊戲的 RTP 統計數據")
     @ApiResponses(value = {
@@ -30,6 +38,28 @@ public class RtpController {
         return ResponseEntity.ok(ApiResponse.success("RTP statistics retrieved successfully", stats));
     }
 
+    @Operation(summary = "查詢遊戲滑動視窗 RTP", description = "查詢指定遊戲最近 1 分鐘、1 小時、24 小時的 RTP、投注次數與金額")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功")
+    })
+    @GetMapping("/window/{gameCode}")
+    public ResponseEntity<ApiResponse<RtpWindowResponse>> getGameWindows(
+            @Parameter(description = "遊戲代碼") @PathVariable String gameCode) {
+        RtpWindowResponse windows = rtpWindowService.getGameWindows(gameCode);
+        return ResponseEntity.ok(ApiResponse.success("RTP windows retrieved successfully", windows));
+    }
+
+    @Operation(summary = "查詢商戶滑動視窗 RTP", description = "查詢指定商戶所有遊戲最近 1 分鐘、1 小時、24 小時的 RTP、投注次數與金額")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功")
+    })
+    @GetMapping("/window/merchant/{merchantId}")
+    public ResponseEntity<ApiResponse<RtpWindowResponse>> getMerchantWindows(
+            @Parameter(description = "商戶ID") @PathVariable Long merchantId) {
+        RtpWindowResponse windows = rtpWindowService.getMerchantWindows(merchantId);
+        return ResponseEntity.ok(ApiResponse.success("RTP windows retrieved successfully", windows));
+    }
+
     @Operation(summary = "重置 RTP 統計", description = "重置指定遊戲的 RTP 統計數據")
     @ApiResponses(value = {
             @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "重置成功")
@@ -40,4 +70,33 @@ public class RtpController {
         rtpStatisticsService.resetStatistics(gameCode);
         return ResponseEntity.ok(ApiResponse.success("RTP statistics reset successfully", null));
     }
+
+    @Operation(summary = "模擬 RTP", description = "以蒙地卡羅方法模擬指定遊戲配置的 RTP、中獎頻率與贏分分佈（需登入，背景執行，以工作ID查詢結果）")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "202", description = "已排入模擬佇列"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "旋轉次數或投注額超出範圍"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "遊戲不存在"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "429", description = "排隊中的模擬過多")
+    })
+    @PostMapping("/simulate/{gameCode}")
+    public ResponseEntity<ApiResponse<RtpSimulationJobResponse>> simulate(
+            @Parameter(description = "遊戲代碼") @PathVariable String gameCode,
+            @Parameter(description = "模擬旋轉次數") @RequestParam(defaultValue = "10000000") long spins,
+            @Parameter(description = "隨機種子（選填，用於重現結果）") @RequestParam(required = false) Long seed,
+            @Parameter(description = "每注投注額（選填，預設為遊戲最小投注額；彩金占比與投注額有關）")
+            @RequestParam(required = false) BigDecimal betAmount) {
+        RtpSimulationJobResponse job = rtpSimulationService.submit(gameCode, spins, seed, betAmount);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("RTP simulation queued", job));
+    }
+
+    @Operation(summary = "查詢 RTP 模擬結果", description = "查詢模擬工作的狀態與結果（需登入）")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "工作不存在")
+    })
+    @GetMapping("/simulate/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<RtpSimulationJobResponse>> getSimulation(
+            @Parameter(description = "工作ID") @PathVariable long jobId) {
+        return ResponseEntity.ok(ApiResponse.success(rtpSimulationService.getJob(jobId)));
+    }
 }
@@ -3,6 +3,7 @@ package com.games.controller;
 import com.games.dto.*;
 import com.games.entity.Merchant;
 import com.games.entity.User;
+import com.games.lock.UserShardExecutor;
 import com.games.service.AuthService;
 import com.games.service.SportBetService;
 import com.games.util.PageDataResUtil;
@@ -27,6 +28,7 @@ public class SportBetController {
 
     private final SportBetService sportBetService;
     private final AuthService authService;
+    private final UserShardExecutor userShardExecutor;
 
     @Operation(summary = "下注", description = "支援單注（SINGLE）和串關（PARLAY）投注")
     @ApiResponses(value = {
@@ -42,7 +44,8 @@ public class SportBetController {
             @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        SportBetResponse response = sportBetService.placeBet(merchant, user, request);
+        SportBetResponse response = userShardExecutor.execute(user.getId(),
+                () -> sportBetService.placeBet(merchant, user, request));
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
@@ -101,7 +104,8 @@ public class SportBetController {
         try {
             String username = authentication.getName();
             User user = authService.getUserByUsername(merchant.getId(), username);
-            CancelBetResponse response = sportBetService.cancelBet(merchant, user, request);
+            CancelBetResponse response = userShardExecutor.execute(user.getId(),
+                    () -> sportBetService.cancelBet(merchant, user, request));
             return ResponseEntity.ok(ApiResponse.success(response));
         } catch (Exception e) {
             log.error("取消投注失敗", e);
@@ -153,7 +157,8 @@ public class SportBetController {
         try {
             String username = authentication.getName();
             User user = authService.getUserByUsername(merchant.getId(), username);
-            CashoutResponse response = sportBetService.cashout(merchant, user, request);
+            CashoutResponse response = userShardExecutor.execute(user.getId(),
+                    () -> sportBetService.cashout(merchant, user, request));
             return ResponseEntity.ok(ApiResponse.success(response));
         } catch (Exception e) {
             log.error("提前兌現失敗", e);
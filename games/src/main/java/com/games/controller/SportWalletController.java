@@ -8,6 +8,7 @@ import com.games.entity.Merchant;
 import com.games.entity.User;
 import com.games.enums.SportTransactionType;
 import com.games.enums.TransactionType;
+import com.games.lock.UserShardExecutor;
 import com.games.service.AuthService;
 import com.games.service.SportWalletService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
@@ -29,6 +30,7 @@ public class SportWalletController {
 
     private final SportWalletService sportsWalletService;
     private final AuthService authService;
+    private final UserShardExecutor userShardExecutor;
 
     @Operation(summary = "體育錢包充值", description = "向體育錢包充值指定金額")
     @ApiResponses(value = {
@@ -45,7 +47,8 @@ public class SportWalletController {
             @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        User updatedUser = sportsWalletService.deposit(merchant, user, request.getAmount());
+        User updatedUser = userShardExecutor.execute(user.getId(),
+                () -> sportsWalletService.deposit(merchant, user, request.getAmount()));
 
         SportWalletResponse response = new SportWalletResponse(
                 updatedUser.getUsername(),
@@ -72,7 +75,8 @@ public class SportWalletController {
             @Parameter(hidden = true) @RequestAttribute(name = "merchant", required = false) Merchant merchant) {
         String username = authentication.getName();
         User user = authService.getUserByUsername(merchant.getId(), username);
-        User updatedUser = sportsWalletService.withdrawAll(merchant, user);
+        User updatedUser = userShardExecutor.execute(user.getId(),
+                () -> sportsWalletService.withdrawAll(merchant, user));
 
         SportWalletResponse response = new SportWalletResponse(
                 updatedUser.getUsername(),
@@ -0,0 +1,20 @@
+package com.games.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class BatchBetRequest {
+    @NotNull(message = "Bet amount is required")
+    @DecimalMin(value = "0.01", message = "Bet amount must be positive")
+    @Digits(integer = 13, fraction = 2, message = "Bet amount must have at most 2 decimal places")
+    private BigDecimal amount;
+
+    @NotNull(message = "Spin count is required")
+    @Min(value = 1, message = "Spin count must be at least 1")
+    private Integer count;
+}
@@ -0,0 +1,19 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchBetResponse {
+    /** 實際執行的旋轉次數（餘額不足時提前停止） */
+    private Integer spinCount;
+    private BigDecimal totalBetAmount;
+    private BigDecimal totalWinAmount;
+    private BigDecimal balanceBefore;
+    private BigDecimal balanceAfter;
+    private List<BetResponse> spins;
+}
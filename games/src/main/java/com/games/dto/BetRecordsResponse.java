@@ -16,6 +16,8 @@ public class BetRecordsResponse {
     private BigDecimal winAmount;
     private Boolean isWin;
     private List<String> result;
+    /** 無法還原結果時的原因（投注時的配置版本已不存在） */
+    private String resultError;
     @JsonSerialize(using = LocalDateTimeEpochMillisSerializer.class)
     private LocalDateTime createdAt;
 }
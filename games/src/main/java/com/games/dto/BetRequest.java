@@ -1,6 +1,7 @@
 package com.games.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -9,5 +10,6 @@ import java.math.BigDecimal;
 public class BetRequest {
     @NotNull(message = "Bet amount is required")
     @DecimalMin(value = "0.01", message = "Bet amount must be positive")
+    @Digits(integer = 13, fraction = 2, message = "Bet amount must have at most 2 decimal places")
     private BigDecimal amount;
 }
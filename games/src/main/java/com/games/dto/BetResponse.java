@@ -17,4 +17,6 @@ public class BetResponse {
     private BigDecimal balanceBefore;
     private BigDecimal balanceAfter;
     private String message;
+    /** 彩金派彩金額，未觸發時為 0 */
+    private BigDecimal jackpotAmount;
 }
\ No newline at end of file
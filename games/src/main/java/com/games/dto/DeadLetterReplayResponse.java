@@ -0,0 +1,89 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 死信重播工作進度 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterReplayResponse {
+
+    /**
+     * 工作ID
+     */
+    private long jobId;
+
+    /**
+     * 原消費者群組
+     */
+    private String consumerGroup;
+
+    /**
+     * 死信 topic（%DLQ%{consumerGroup}）
+     */
+    private String topic;
+
+    /**
+     * 狀態：RUNNING / COMPLETED / CANCELLED / FAILED
+     */
+    private String status;
+
+    /**
+     * 只分類不重播
+     */
+    private boolean dryRun;
+
+    /**
+     * 每秒重播上限
+     */
+    private int rate;
+
+    /**
+     * 並行度（同一用戶的訊息固定由同一條執行緒依序重播）
+     */
+    private int concurrency;
+
+    /**
+     * 最多處理的訊息數，0 表示直到死信佇列讀完
+     */
+    private long limit;
+
+    /**
+     * 已讀取的訊息數
+     */
+    private long pulled;
+
+    /**
+     * 各分類的訊息數
+     */
+    private Map<String, Long> results;
+
+    /**
+     * 失敗訊息樣本（msgId、分類與原因）
+     */
+    private List<String> samples;
+
+    /**
+     * 錯誤訊息（狀態為 FAILED 時）
+     */
+    private String error;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    /**
+     * 實際處理速率（筆/秒）
+     */
+    private double throughput;
+}
@@ -1,6 +1,7 @@
 package com.games.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -9,5 +10,6 @@ import java.math.BigDecimal;
 public class DepositRequest {
     @NotNull(message = "Deposit amount is required")
     @DecimalMin(value = "0.01", message = "Deposit amount must be greater than 0")
+    @Digits(integer = 13, fraction = 2, message = "Deposit amount must have at most 2 decimal places")
     private BigDecimal amount;
 }
@@ -0,0 +1,53 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RTP 理論計算結果 DTO
+ *
+ * 以窮舉所有符號組合的方式精確計算，倍數皆以投注額為 1 計算
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RtpCalculationResult {
+
+    /**
+     * 理論 RTP（%）
+     */
+    private double rtp;
+
+    /**
+     * 中獎機率（贏分 > 0 的機率）
+     */
+    private double hitRate;
+
+    /**
+     * 單次旋轉贏分倍數的變異數
+     */
+    private double variance;
+
+    /**
+     * 單次旋轉贏分倍數的標準差（波動度）
+     */
+    private double standardDeviation;
+
+    /**
+     * 窮舉的組合數（模擬估算時為模擬旋轉次數）
+     */
+    private long combinations;
+
+    /**
+     * 組合數超過窮舉上限，改以模擬估算
+     */
+    private boolean estimated;
+
+    /**
+     * 模擬估算時 RTP 的 95% 信賴區間半寬（%）
+     */
+    private double rtpConfidence95;
+}
@@ -0,0 +1,52 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * RTP 模擬工作 DTO
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RtpSimulationJobResponse {
+
+    /**
+     * 工作ID
+     */
+    private long jobId;
+
+    /**
+     * 遊戲代碼
+     */
+    private String gameCode;
+
+    /**
+     * 模擬旋轉次數
+     */
+    private long spins;
+
+    /**
+     * 狀態：QUEUED / RUNNING / COMPLETED / FAILED
+     */
+    private String status;
+
+    /**
+     * 模擬結果（狀態為 COMPLETED 時）
+     */
+    private RtpSimulationResponse result;
+
+    /**
+     * 錯誤訊息（狀態為 FAILED 時）
+     */
+    private String error;
+
+    private LocalDateTime submittedAt;
+
+    private LocalDateTime finishedAt;
+}
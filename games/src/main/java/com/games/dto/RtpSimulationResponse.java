@@ -0,0 +1,139 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * RTP 蒙地卡羅模擬結果 DTO
+ *
+ * 所有倍數皆以投注額為 1 計算
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RtpSimulationResponse {
+
+    /**
+     * 遊戲代碼
+     */
+    private String gameCode;
+
+    /**
+     * 配置版本
+     */
+    private Long configVersion;
+
+    /**
+     * 模擬旋轉次數
+     */
+    private long spins;
+
+    /**
+     * 隨機種子（相同種子與配置可重現相同結果）
+     */
+    private long seed;
+
+    /**
+     * 平行度
+     */
+    private int parallelism;
+
+    /**
+     * 耗時（毫秒）
+     */
+    private long elapsedMs;
+
+    /**
+     * 目標 RTP（%）
+     */
+    private Double targetRtp;
+
+    /**
+     * 模擬投注額（依遊戲配置模擬時）
+     */
+    private BigDecimal betAmount;
+
+    /**
+     * 實測主遊戲 RTP（%，不含彩金）
+     */
+    private double measuredRtp;
+
+    /**
+     * 彩金的期望占比（%，依遊戲配置模擬時）
+     */
+    private Double jackpotRtp;
+
+    /**
+     * 主遊戲與彩金合計 RTP（%，依遊戲配置模擬時）
+     */
+    private Double totalRtp;
+
+    /**
+     * 實測 RTP 95% 信賴區間半寬（%）
+     */
+    private double rtpConfidence95;
+
+    /**
+     * 中獎頻率（贏分 > 0 的比例）
+     */
+    private double hitFrequency;
+
+    /**
+     * 單次旋轉贏分倍數的變異數
+     */
+    private double variance;
+
+    /**
+     * 單次旋轉贏分倍數的標準差
+     */
+    private double standardDeviation;
+
+    /**
+     * 贏分倍數百分位數
+     */
+    private double p50;
+    private double p90;
+    private double p99;
+    private double p999;
+
+    /**
+     * 最大贏分倍數
+     */
+    private double maxMultiplier;
+
+    /**
+     * 贏分倍數分佈
+     */
+    private List<PayoutBucket> payoutDistribution;
+
+    /**
+     * 贏分倍數分佈項目
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PayoutBucket {
+
+        /**
+         * 贏分倍數
+         */
+        private double multiplier;
+
+        /**
+         * 出現次數
+         */
+        private long count;
+
+        /**
+         * 出現比例
+         */
+        private double frequency;
+    }
+}
@@ -16,4 +16,10 @@ public class RtpUpdateMessage implements Serializable {
     private BigDecimal betAmount;
     private BigDecimal winAmount;
     private String gameCode;
+    /** 本訊息涵蓋的旋轉次數（舊訊息為 null，視為 1） */
+    private Integer spinCount;
+    /** 商戶ID */
+    private Long merchantId;
+    /** 旋轉時間（epoch 毫秒，舊訊息為 null 時以消費時間計） */
+    private Long timestamp;
 }
@@ -0,0 +1,79 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 滑動視窗 RTP 統計 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RtpWindowResponse {
+
+    /**
+     * 統計範圍：GAME 或 MERCHANT
+     */
+    private String scope;
+
+    /**
+     * 範圍識別（遊戲代碼或商戶ID）
+     */
+    private String scopeId;
+
+    /**
+     * 目標 RTP（%，僅遊戲範圍）
+     */
+    private Double targetRtp;
+
+    /**
+     * 各時間視窗統計
+     */
+    private List<Window> windows;
+
+    /**
+     * 單一時間視窗統計
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Window {
+
+        /**
+         * 視窗名稱：1m、1h、24h
+         */
+        private String window;
+
+        /**
+         * 視窗長度（秒）
+         */
+        private long seconds;
+
+        /**
+         * 投注次數
+         */
+        private long betCount;
+
+        /**
+         * 投注總額
+         */
+        private BigDecimal totalBetAmount;
+
+        /**
+         * 贏分總額
+         */
+        private BigDecimal totalWinAmount;
+
+        /**
+         * 視窗內 RTP（%），無投注時為 null
+         */
+        private Double rtp;
+    }
+}
@@ -0,0 +1,59 @@
+package com.games.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 旋轉重播驗證結果 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpinReplayResponse {
+
+    /**
+     * 投注ID
+     */
+    private Long betId;
+
+    /**
+     * 遊戲代碼
+     */
+    private String gameCode;
+
+    /**
+     * 投注時的配置版本
+     */
+    private Long configVersion;
+
+    /**
+     * 重播得到的旋轉結果
+     */
+    private List<String> result;
+
+    /**
+     * 重播計算的贏分
+     */
+    private BigDecimal winAmount;
+
+    /**
+     * 投注記錄中的贏分
+     */
+    private BigDecimal recordedWinAmount;
+
+    /**
+     * 驗證結果：true-一致, false-不一致, null-無法驗證
+     */
+    private Boolean verified;
+
+    /**
+     * 說明
+     */
+    private String message;
+}
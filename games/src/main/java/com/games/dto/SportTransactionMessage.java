@@ -26,4 +26,6 @@ public class SportTransactionMessage implements Serializable {
     private BigDecimal balanceAfter;
     private String description;
     private LocalDateTime timestamp;
+    /** 訊息唯一ID（寫入 outbox 時產生，消費端去重用） */
+    private Long messageId;
 }
@@ -24,4 +24,6 @@ public class TransactionMessage implements Serializable {
     private String description;
     private Long betId;
     private LocalDateTime timestamp;
+    /** 訊息唯一ID（寫入 outbox 時產生，消費端去重用） */
+    private Long messageId;
 }
@@ -31,15 +31,36 @@ public class Bet {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal winAmount;
 
-    @Column(nullable = false, length = 500)
+    /**
+     * 舊版結果顯示字串（逗號分隔），新投注改存 resultData
+     */
+    @Column(length = 500)
     private String result;
 
+    /**
+     * 結果符號索引（每格 1 byte），顯示字串於查詢時依 configVersion 解碼
+     */
+    @Column(name = "result_data")
+    private byte[] resultData;
+
     @Column(nullable = false)
     private Boolean isWin;
 
+    /**
+     * 彩金派彩金額（不含於 winAmount）
+     */
+    @Column(name = "jackpot_amount", precision = 15, scale = 2)
+    private BigDecimal jackpotAmount;
+
     @Column(name = "game_code", nullable = false, length = 10)
     private String gameCode;
 
+    /**
+     * 下注時的遊戲配置版本，用於重播驗證
+     */
+    @Column(name = "config_version")
+    private Long configVersion;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
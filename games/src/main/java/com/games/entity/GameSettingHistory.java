@@ -0,0 +1,49 @@
+package com.games.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遊戲配置歷史版本
+ *
+ * 每個載入過的配置版本保存一份 GameProperties JSON，重啟後仍可依投注的配置版本重播。
+ */
+@Entity
+@Table(name = "game_setting_history",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_game_setting_history_version", columnNames = {"game_code", "version"})
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GameSettingHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "game_code", nullable = false, length = 10)
+    private String gameCode;
+
+    /** 配置版本（game_setting.version） */
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /** 載入時的遊戲配置（JSON） */
+    @Column(name = "properties", nullable = false, columnDefinition = "TEXT")
+    private String properties;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,47 @@
+package com.games.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 彩金池快照
+ *
+ * 即時金額以 Redis 為準，此表由 JackpotService 定時同步，Redis 資料遺失時用於還原。
+ */
+@Entity
+@Table(name = "jackpot_pools")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JackpotPool {
+
+    @Id
+    @Column(name = "game_code", length = 10)
+    private String gameCode;
+
+    @Column(name = "pool_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal poolAmount = BigDecimal.ZERO;
+
+    @Column(name = "last_win_amount", precision = 15, scale = 2)
+    private BigDecimal lastWinAmount;
+
+    @Column(name = "last_winner_user_id")
+    private Long lastWinnerUserId;
+
+    @Column(name = "last_won_at")
+    private LocalDateTime lastWonAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
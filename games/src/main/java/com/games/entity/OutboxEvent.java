@@ -0,0 +1,49 @@
+package com.games.entity;
+
+import com.games.enums.OutboxEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 交易訊息 outbox
+ *
+ * 與餘額變動寫在同一個資料庫交易中，提交後才由 OutboxRelayService 轉送 RocketMQ 並刪除；
+ * 交易回滾時訊息一併消失，不會送出未生效的流水。
+ */
+@Entity
+@Table(name = "outbox_events")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 30)
+    private OutboxEventType eventType;
+
+    /** 訊息鍵（userId） */
+    @Column(name = "message_key", length = 64)
+    private String messageKey;
+
+    /** 訊息內容（JSON） */
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
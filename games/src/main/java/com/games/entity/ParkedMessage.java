@@ -0,0 +1,61 @@
+package com.games.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 暫存的 MQ 訊息
+ *
+ * 資料錯誤或重試次數用盡的訊息寫入此表後確認消費，不再阻塞順序消費的 queue；
+ * 修正資料後由人工處理。
+ */
+@Entity
+@Table(name = "mq_parked_messages",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_mq_parked_messages_msg", columnNames = {"consumer_group", "msg_id"})
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkedMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "consumer_group", nullable = false, length = 100)
+    private String consumerGroup;
+
+    @Column(name = "topic", nullable = false, length = 100)
+    private String topic;
+
+    /** RocketMQ msgId */
+    @Column(name = "msg_id", nullable = false, length = 64)
+    private String msgId;
+
+    @Column(name = "message_key", length = 128)
+    private String messageKey;
+
+    /** 原始訊息內容 */
+    @Column(name = "body", nullable = false)
+    private byte[] body;
+
+    /** 暫存前的重試次數 */
+    @Column(name = "reconsume_times", nullable = false)
+    private Integer reconsumeTimes;
+
+    @Column(name = "reason", length = 500)
+    private String reason;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -90,6 +90,11 @@ public class SportTransaction {
     @Comment("交易說明")
     private String description;
 
+    /** 訊息唯一ID（消費端去重） */
+    @Column(name = "message_id", unique = true)
+    @Comment("訊息唯一ID（消費端去重）")
+    private Long messageId;
+
     /** 交易時間 */
     @Column(name = "created_at", nullable = false, updatable = false)
     @Comment("交易時間")
@@ -49,6 +49,9 @@ public class Transaction {
     @JoinColumn(name = "bet_id")
     private Bet bet;
 
+    @Column(name = "message_id", unique = true)
+    private Long messageId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
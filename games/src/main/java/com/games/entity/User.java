@@ -33,6 +33,10 @@ public class User {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal sportBalance = BigDecimal.ZERO;
 
+    /** Redis 錢包最後寫回的變更序號（game.wallet.mode=redis） */
+    @Column(name = "wallet_seq", nullable = false)
+    private Long walletSeq = 0L;
+
     @Version
     @Column(nullable = false)
     private Long version = 0L;
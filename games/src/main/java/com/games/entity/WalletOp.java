@@ -0,0 +1,46 @@
+package com.games.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Redis 錢包變更紀錄
+ *
+ * 與變更所屬的資料庫交易一併提交；節點在提交前異常終止時，
+ * 對帳依此表判斷 Redis 中的扣款是否已生效，未生效者退回。
+ */
+@Entity
+@Table(name = "wallet_ops")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletOp {
+
+    /** 變更ID（與 Redis 變更串流的 op 欄位相同） */
+    @Id
+    @Column(name = "op_id")
+    private Long opId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** 餘額欄位：game / sport */
+    @Column(name = "balance_field", nullable = false, length = 10)
+    private String balanceField;
+
+    /** 變動金額（分） */
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
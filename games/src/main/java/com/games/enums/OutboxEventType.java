@@ -0,0 +1,32 @@
+package com.games.enums;
+
+import com.games.constant.RocketMQConstant;
+import com.games.dto.SportTransactionMessage;
+import com.games.dto.TransactionMessage;
+
+/**
+ * Outbox 事件類型，決定轉送的 topic / tag 與 payload 類別
+ */
+public enum OutboxEventType {
+    TRANSACTION(RocketMQConstant.TRANSACTION_TOPIC, RocketMQConstant.TRANSACTION_TAG, TransactionMessage.class),
+    SPORT_TRANSACTION(RocketMQConstant.SPORT_TRANSACTION_TOPIC, RocketMQConstant.SPORT_TRANSACTION_TAG,
+            SportTransactionMessage.class);
+
+    private final String topic;
+    private final String tag;
+    private final Class<?> payloadType;
+
+    OutboxEventType(String topic, String tag, Class<?> payloadType) {
+        this.topic = topic;
+        this.tag = tag;
+        this.payloadType = payloadType;
+    }
+
+    public String getDestination() {
+        return topic + ":" + tag;
+    }
+
+    public Class<?> getPayloadType() {
+        return payloadType;
+    }
+}
@@ -4,6 +4,7 @@ public enum TransactionType {
     REGISTER,
     BET,
     WIN,
+    JACKPOT,
     DEPOSIT,
     WITHDRAW
 }
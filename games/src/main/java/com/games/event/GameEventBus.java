@@ -0,0 +1,29 @@
+package com.games.event;
+
+import com.games.dto.RtpUpdateMessage;
+import com.games.enums.OutboxEventType;
+
+import java.util.List;
+
+/**
+ * 非同步事件發布
+ *
+ * 以 game.event-bus.mode 選擇實作：
+ * - rocketmq（預設）：MessageProducerService，經 broker 交付給 RocketMQ 消費者
+ * - in-process：InProcessEventBus，以記憶體環形佇列直接交付給同一個行程內的 GameEventHandler
+ */
+public interface GameEventBus {
+
+    String MODE_ROCKETMQ = "rocketmq";
+    String MODE_IN_PROCESS = "in-process";
+
+    /**
+     * 順序批次發布，同一 hashKey 的事件依序交付；失敗時拋出例外由呼叫端重試
+     */
+    void publishOrderly(OutboxEventType type, String hashKey, List<?> payloads);
+
+    /**
+     * 發布 RTP 彙總，不保證送達，失敗只記錄日誌
+     */
+    void publishRtpUpdate(RtpUpdateMessage message);
+}
@@ -0,0 +1,20 @@
+package com.games.event;
+
+/**
+ * 事件處理邏輯，與交付方式無關
+ * RocketMQ 消費者解碼後呼叫；in-process 模式下由 InProcessEventBus 依 destination 直接呼叫
+ */
+public interface GameEventHandler<T> {
+
+    /**
+     * 處理的目的地（topic:tag）
+     */
+    String destination();
+
+    Class<T> payloadType();
+
+    /**
+     * 處理單一事件，拋出例外表示需要重試
+     */
+    void handle(T payload);
+}
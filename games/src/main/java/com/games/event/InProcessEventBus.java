@@ -0,0 +1,296 @@
+package com.games.event;
+
+import com.games.constant.RocketMQConstant;
+import com.games.dto.RtpUpdateMessage;
+import com.games.enums.OutboxEventType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameEventBus 的行程內實作（game.event-bus.mode=in-process）
+ *
+ * 供單機壓測完整的 旋轉 → 流水 → RTP 流程，以及不架設 broker 的小型部署：
+ * 1. 事件不序列化，直接放入分區的無鎖環形佇列（MpscRingBuffer），每個分區一條消費執行緒
+ * 2. publishOrderly 依 hashKey 選擇分區，同一 hashKey 依序交付（與 RocketMQ 順序訊息相同的語意）
+ * 3. 消費執行緒依 destination 呼叫與 RocketMQ 消費者相同的 GameEventHandler；失敗時原地重試
+ * 4. publishOrderly 等到整批事件都處理成功才返回，outbox 轉送之後才刪除這些列；
+ *    重試超過次數或等待逾時則拋出例外，同批尚未處理的事件略過，轉送回滾後事件留在 outbox 下次重送
+ * 5. 佇列已滿時發布端等待，逾時拋出例外（同樣回滾重送）
+ *
+ * 事件處理完成前 outbox 列不會刪除，節點當機不會遺失事件；重送時已處理的事件由處理端以 messageId 去重。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "game.event-bus.mode", havingValue = GameEventBus.MODE_IN_PROCESS)
+public class InProcessEventBus implements GameEventBus {
+
+    /** 佇列已滿時發布端每次等待的時間 */
+    private static final long OFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** 消費執行緒閒置時先自旋的次數，之後改為 park */
+    private static final int IDLE_SPINS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long RETRY_BACKOFF_MS = 100L;
+
+    private final Map<String, GameEventHandler<?>> handlers = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    /** 分區數（消費執行緒數），0 表示 CPU 核心數 */
+    @Value("${game.event-bus.in-process.partitions:0}")
+    private int partitionCount;
+
+    /** 每個分區的佇列容量（2 的次方） */
+    @Value("${game.event-bus.in-process.capacity:65536}")
+    private int capacity;
+
+    /** 消費執行緒每次取出的最大事件數 */
+    @Value("${game.event-bus.in-process.batch-size:256}")
+    private int batchSize;
+
+    /** 處理失敗時的最大重試次數 */
+    @Value("${game.event-bus.in-process.max-retries:3}")
+    private int maxRetries;
+
+    /** 佇列已滿時發布端的最長等待時間 */
+    @Value("${game.event-bus.in-process.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    /** publishOrderly 等待整批事件處理完成的最長時間 */
+    @Value("${game.event-bus.in-process.handle-timeout-ms:30000}")
+    private long handleTimeoutMs;
+
+    private MpscRingBuffer<Envelope>[] partitions;
+    private Thread[] workers;
+    private volatile boolean running;
+
+    public InProcessEventBus(List<GameEventHandler<?>> handlerList, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (GameEventHandler<?> handler : handlerList) {
+            GameEventHandler<?> existing = handlers.putIfAbsent(handler.destination(), handler);
+            if (existing != null) {
+                throw new IllegalStateException("Duplicate event handlers for " + handler.destination() + ": "
+                        + existing.getClass().getSimpleName() + ", " + handler.getClass().getSimpleName());
+            }
+        }
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+        partitions = new MpscRingBuffer[count];
+        workers = new Thread[count];
+        running = true;
+        for (int i = 0; i < count; i++) {
+            MpscRingBuffer<Envelope> buffer = new MpscRingBuffer<>(capacity);
+            partitions[i] = buffer;
+            workers[i] = new Thread(() -> consume(buffer), "event-bus-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        Gauge.builder("event.bus.in-process.backlog", this, InProcessEventBus::backlog)
+                .description("Events queued in the in-process event bus")
+                .register(meterRegistry);
+        log.info("In-process event bus started: partitions={}, capacity={}, handlers={}", count, capacity,
+                handlers.keySet());
+    }
+
+    /**
+     * 放入 hashKey 對應的分區並等待整批處理成功；任一事件處理失敗或逾時拋出例外，同批其餘未處理的事件略過
+     */
+    @Override
+    public void publishOrderly(OutboxEventType type, String hashKey, List<?> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        MpscRingBuffer<Envelope> buffer = partitions[Math.floorMod(hashKey.hashCode(), partitions.length)];
+        Delivery delivery = new Delivery(payloads.size());
+        try {
+            for (Object payload : payloads) {
+                put(buffer, new Envelope(type.getDestination(), payload, delivery));
+            }
+            delivery.done.get(handleTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("In-process event handling failed: destination=" + type.getDestination(),
+                    e.getCause());
+        } catch (TimeoutException e) {
+            delivery.cancel();
+            throw new IllegalStateException("In-process event handling timed out: destination="
+                    + type.getDestination());
+        } catch (InterruptedException e) {
+            delivery.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-process event handling");
+        } catch (RuntimeException e) {
+            delivery.cancel();
+            throw e;
+        }
+    }
+
+    @Override
+    public void publishRtpUpdate(RtpUpdateMessage message) {
+        MpscRingBuffer<Envelope> buffer = partitions[ThreadLocalRandom.current().nextInt(partitions.length)];
+        if (!running || !buffer.offer(new Envelope(RocketMQConstant.RTP_UPDATE_DESTINATION, message, null))) {
+            log.error("Failed to publish RTP update in-process: gameCode={}, queue full or stopped",
+                    message.getGameCode());
+        }
+    }
+
+    /**
+     * 放入佇列，已滿時等待，逾時拋出例外
+     */
+    private void put(MpscRingBuffer<Envelope> buffer, Envelope envelope) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        while (!buffer.offer(envelope)) {
+            if (!running) {
+                throw new IllegalStateException("In-process event bus is stopped");
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("In-process event queue full: destination=" + envelope.destination);
+            }
+            LockSupport.parkNanos(OFFER_PARK_NANOS);
+        }
+    }
+
+    private void consume(MpscRingBuffer<Envelope> buffer) {
+        int idle = 0;
+        while (true) {
+            if (buffer.drain(this::dispatch, batchSize) > 0) {
+                idle = 0;
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(Envelope envelope) {
+        Delivery delivery = envelope.delivery;
+        if (delivery != null && delivery.done.isDone()) {
+            // 同批事件已失敗或發布端已放棄等待，留在 outbox 重送
+            return;
+        }
+        GameEventHandler<Object> handler = (GameEventHandler<Object>) handlers.get(envelope.destination);
+        if (handler == null) {
+            log.warn("No in-process handler for destination {}, dropping event", envelope.destination);
+            if (delivery != null) {
+                delivery.completeOne();
+            }
+            return;
+        }
+        Object payload = handler.payloadType().cast(envelope.payload);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                handler.handle(payload);
+                if (delivery != null) {
+                    delivery.completeOne();
+                }
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxRetries || (delivery != null && delivery.done.isDone())) {
+                    if (delivery != null) {
+                        log.error("In-process event failed after {} retries, leaving it in the outbox: "
+                                + "destination={}, payload={}", attempt, envelope.destination, payload, e);
+                        delivery.done.completeExceptionally(e);
+                    } else {
+                        log.error("Dropping in-process event after {} retries: destination={}, payload={}",
+                                attempt, envelope.destination, payload, e);
+                    }
+                    return;
+                }
+                // 原地重試，同一分區後續事件不會越過失敗的事件
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MS * (attempt + 1)));
+            }
+        }
+    }
+
+    private double backlog() {
+        long total = 0;
+        for (MpscRingBuffer<Envelope> buffer : partitions) {
+            total += buffer.size();
+        }
+        return total;
+    }
+
+    /**
+     * 停止接收新事件，處理完佇列中剩餘的事件後結束
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long remaining = (long) backlog();
+        if (remaining > 0) {
+            log.warn("In-process event bus stopped with {} unprocessed events", remaining);
+        }
+    }
+
+    private static final class Envelope {
+
+        private final String destination;
+        private final Object payload;
+        private final Delivery delivery;
+
+        private Envelope(String destination, Object payload, Delivery delivery) {
+            this.destination = destination;
+            this.payload = payload;
+            this.delivery = delivery;
+        }
+    }
+
+    /**
+     * 一次 publishOrderly 的處理進度：全部成功時完成，任一失敗或發布端放棄等待時以例外結束
+     */
+    private static final class Delivery {
+
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Delivery(int count) {
+            this.remaining = new AtomicInteger(count);
+        }
+
+        private void completeOne() {
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void cancel() {
+            done.completeExceptionally(new CancellationException("Publisher stopped waiting"));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.games.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界、無鎖的多生產者單消費者環形佇列
+ *
+ * 每個槽位帶有序號：生產者以 CAS 推進 tail 取得槽位，寫入元素後以 release 語意把序號設為 位置 + 1；
+ * 消費者看到序號等於 head + 1 才讀取，讀取後把序號設為 head + capacity，讓槽位在下一圈可再寫入。
+ * 容量須為 2 的次方；drain 只能由單一執行緒呼叫。
+ */
+final class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+
+    /** 只由消費執行緒寫入，volatile 供 size() 讀取 */
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 放入元素，佇列已滿時回傳 false
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 槽位仍是上一圈未讀取的元素
+                return false;
+            }
+            // diff > 0：其他生產者已取得此位置，重新讀取 tail
+        }
+    }
+
+    /**
+     * 依序取出最多 limit 個元素交給 consumer，回傳取出數量
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<? super E> consumer, int limit) {
+        int count = 0;
+        long position = head;
+        while (count < limit) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            E element = (E) elements[index];
+            elements[index] = null;
+            sequences.lazySet(index, position + mask + 1);
+            head = ++position;
+            count++;
+            consumer.accept(element);
+        }
+        return count;
+    }
+
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0L, Math.min(size, mask + 1L));
+    }
+}
@@ -0,0 +1,59 @@
+package com.games.event.handler;
+
+import com.games.constant.RocketMQConstant;
+import com.games.dto.RtpUpdateMessage;
+import com.games.event.GameEventHandler;
+import com.games.service.RtpCounterService;
+import com.games.service.RtpWindowService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * RTP 彙總累計
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RtpUpdateMessageHandler implements GameEventHandler<RtpUpdateMessage> {
+
+    private final RtpCounterService rtpCounterService;
+    private final RtpWindowService rtpWindowService;
+
+    @Override
+    public String destination() {
+        return RocketMQConstant.RTP_UPDATE_DESTINATION;
+    }
+
+    @Override
+    public Class<RtpUpdateMessage> payloadType() {
+        return RtpUpdateMessage.class;
+    }
+
+    @Override
+    public void handle(RtpUpdateMessage message) {
+        try {
+            log.debug("Processing RTP update message: gameCode={}, betAmount={}, winAmount={}",
+                    message.getGameCode(), message.getBetAmount(), message.getWinAmount());
+
+            if (message.getGameCode() == null) {
+                log.warn("Dropping RTP update message without gameCode");
+                return;
+            }
+
+            // 只累計到本地計數器，由 RtpCounterService / RtpWindowService 定時批次寫入 Redis
+            long spinCount = message.getSpinCount() == null ? 1 : message.getSpinCount();
+            rtpCounterService.record(message.getGameCode(), message.getBetAmount(), message.getWinAmount(),
+                    spinCount);
+            rtpWindowService.record(message.getGameCode(), message.getMerchantId(), message.getBetAmount(),
+                    message.getWinAmount(), spinCount,
+                    message.getTimestamp() != null ? message.getTimestamp() : System.currentTimeMillis());
+
+            log.debug("RTP update message processed successfully");
+        } catch (Exception e) {
+            log.error("Failed to process RTP update message: {}", e.getMessage(), e);
+            // 抛出异常会触发重试机制（RocketMQ 重新投递或 in-process 重试）
+            throw new RuntimeException("Failed to process RTP update message", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.games.event.handler;
+
+import com.games.dto.SportTransactionMessage;
+import com.games.entity.*;
+import com.games.enums.OutboxEventType;
+import com.games.enums.SportTransactionType;
+import com.games.event.GameEventHandler;
+import com.games.repository.*;
+import com.games.service.MessageIdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+/**
+ * 體育交易流水寫入
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SportTransactionMessageHandler implements GameEventHandler<SportTransactionMessage> {
+
+    private static final String IDEMPOTENT_KEY_PREFIX = "sport:transaction:idempotent:";
+    private static final Duration IDEMPOTENT_EXPIRE = Duration.ofHours(24);
+
+    private final MerchantRepository merchantRepository;
+    private final SportTransactionRepository sportTransactionRepository;
+    private final UserRepository userRepository;
+    private final SportBetRepository sportBetRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MessageIdempotencyService messageIdempotencyService;
+
+    @Override
+    public String destination() {
+        return OutboxEventType.SPORT_TRANSACTION.getDestination();
+    }
+
+    @Override
+    public Class<SportTransactionMessage> payloadType() {
+        return SportTransactionMessage.class;
+    }
+
+    @Override
+    @Transactional
+    public void handle(SportTransactionMessage message) {
+        Long messageId = message.getMessageId();
+        // 升級前送出的訊息沒有 messageId，沿用 Redis 冪等鍵
+        String idempotentKey = messageId == null ? buildIdempotentKey(message) : null;
+
+        if (isDuplicate(message, idempotentKey)) {
+            log.warn("Duplicate sport transaction message detected, skipping: messageId={}, userId={}, type={}, sportBetId={}",
+                    messageId, message.getUserId(), message.getType(), message.getSportBetId());
+            return;
+        }
+
+        try {
+            log.info("Processing sport transaction message: merchantId={}, userId={}, type={}, amount={}",
+                    message.getMerchantId(), message.getUserId(), message.getType(), message.getAmount());
+
+            User user = userRepository.findById(message.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found: " + message.getUserId()));
+
+            Merchant merchant = merchantRepository.findById(message.getMerchantId())
+                    .orElseThrow(() -> new RuntimeException("Merchant not found: " + message.getMerchantId()));
+
+            SportBet sportBet = null;
+            if (message.getSportBetId() != null) {
+                sportBet = sportBetRepository.findById(message.getSportBetId()).orElse(null);
+            }
+
+            SportTransaction sportTransaction = SportTransaction.builder()
+                    .merchant(merchant)
+                    .user(user)
+                    .type(SportTransactionType.valueOf(message.getType()))
+                    .amount(message.getAmount())
+                    .balanceBefore(message.getBalanceBefore())
+                    .balanceAfter(message.getBalanceAfter())
+                    .description(message.getDescription())
+                    .sportBet(sportBet)
+                    .messageId(messageId)
+                    .build();
+
+            sportTransactionRepository.save(sportTransaction);
+            // 交易提交後才加入 Bloom
+            if (messageId != null) {
+                messageIdempotencyService.confirm(OutboxEventType.SPORT_TRANSACTION, messageId);
+            }
+
+            log.info("Sport transaction message processed successfully: transactionId={}",
+                    sportTransaction.getId());
+        } catch (Exception e) {
+            if (messageId != null && e instanceof DataIntegrityViolationException) {
+                // 可能已由其他節點寫入（唯一索引），重新投遞時改查資料庫確認
+                messageIdempotencyService.markSuspect(OutboxEventType.SPORT_TRANSACTION, messageId);
+            } else if (idempotentKey != null) {
+                // 處理失敗時刪除冪等鍵，允許重試
+                stringRedisTemplate.delete(idempotentKey);
+            }
+            log.error("Failed to process sport transaction message: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to process sport transaction message", e);
+        }
+    }
+
+    /**
+     * 有 messageId 時以 Bloom + 資料庫唯一索引判斷；舊訊息以 Redis SET NX 判斷
+     */
+    private boolean isDuplicate(SportTransactionMessage message, String idempotentKey) {
+        if (idempotentKey == null) {
+            return messageIdempotencyService.isProcessed(OutboxEventType.SPORT_TRANSACTION,
+                    message.getMessageId(), sportTransactionRepository::existsByMessageId);
+        }
+        Boolean isNew = stringRedisTemplate.opsForValue()
+                .setIfAbsent(idempotentKey, "1", IDEMPOTENT_EXPIRE);
+        boolean duplicate = Boolean.FALSE.equals(isNew);
+        messageIdempotencyService.recordLegacy(OutboxEventType.SPORT_TRANSACTION, duplicate ? 1 : 0, duplicate ? 0 : 1);
+        return duplicate;
+    }
+
+    /**
+     * 建立舊訊息（沒有 messageId）的 Redis 冪等鍵
+     * 使用 userId + type + sportBetId + timestamp 作為唯一識別
+     */
+    private String buildIdempotentKey(SportTransactionMessage message) {
+        return IDEMPOTENT_KEY_PREFIX +
+                message.getUserId() + ":" +
+                message.getType() + ":" +
+                (message.getSportBetId() != null ? message.getSportBetId() : "null") + ":" +
+                (message.getTimestamp() != null ? message.getTimestamp().toString() : System.currentTimeMillis());
+    }
+}
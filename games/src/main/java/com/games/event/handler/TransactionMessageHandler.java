@@ -0,0 +1,137 @@
+package com.games.event.handler;
+
+import com.games.dto.TransactionMessage;
+import com.games.entity.Bet;
+import com.games.entity.Merchant;
+import com.games.entity.Transaction;
+import com.games.entity.User;
+import com.games.enums.OutboxEventType;
+import com.games.event.GameEventHandler;
+import com.games.repository.BetRepository;
+import com.games.repository.MerchantRepository;
+import com.games.repository.TransactionRepository;
+import com.games.repository.UserRepository;
+import com.games.service.MessageIdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 交易流水寫入（逐筆）
+ * RocketMQ 模式由 TransactionMessageConsumer 依 queue 順序呼叫；
+ * in-process 模式由 InProcessEventBus 依分區順序呼叫
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionMessageHandler implements GameEventHandler<TransactionMessage> {
+
+    private static final String IDEMPOTENT_KEY_PREFIX = "transaction:idempotent:";
+    public static final Duration IDEMPOTENT_EXPIRE = Duration.ofHours(24);
+
+    private final MerchantRepository merchantRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final BetRepository betRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MessageIdempotencyService messageIdempotencyService;
+
+    @Override
+    public String destination() {
+        return OutboxEventType.TRANSACTION.getDestination();
+    }
+
+    @Override
+    public Class<TransactionMessage> payloadType() {
+        return TransactionMessage.class;
+    }
+
+    @Override
+    public void handle(TransactionMessage message) {
+        Long messageId = message.getMessageId();
+        // 升級前送出的訊息沒有 messageId，沿用 Redis 冪等鍵
+        String idempotentKey = messageId == null ? buildIdempotentKey(message) : null;
+
+        if (isDuplicate(message, idempotentKey)) {
+            log.warn("Duplicate transaction message detected, skipping: messageId={}, userId={}, type={}, betId={}",
+                    messageId, message.getUserId(), message.getType(), message.getBetId());
+            return;
+        }
+        try {
+            log.info("Processing transaction message: merchantId={}, userId={}, type={}, amount={}",
+                    message.getMerchantId(), message.getUserId(), message.getType(), message.getAmount());
+
+            User user = userRepository.findById(message.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found: " + message.getUserId()));
+
+            Merchant merchant = merchantRepository.findById(message.getMerchantId())
+                    .orElseThrow(() -> new RuntimeException("Merchant not found: " + message.getMerchantId()));
+
+            Bet bet = null;
+            if (message.getBetId() != null) {
+                bet = betRepository.findById(message.getBetId()).orElse(null);
+            }
+
+            Transaction transaction = Transaction.builder()
+                    .merchant(merchant)
+                    .type(message.getType())
+                    .amount(message.getAmount())
+                    .bet(bet)
+                    .balanceBefore(message.getBalanceBefore())
+                    .balanceAfter(message.getBalanceAfter())
+                    .description(message.getDescription())
+                    .user(user)
+                    .messageId(messageId)
+                    .build();
+
+            transactionRepository.save(transaction);
+            if (messageId != null) {
+                messageIdempotencyService.confirm(OutboxEventType.TRANSACTION, messageId);
+            }
+
+            log.info("Transaction message processed successfully: transactionId={}", transaction.getId());
+        } catch (Exception e) {
+            if (messageId != null && e instanceof DataIntegrityViolationException) {
+                // 可能已由其他節點寫入（唯一索引），重新投遞時改查資料庫確認
+                messageIdempotencyService.markSuspect(OutboxEventType.TRANSACTION, messageId);
+            } else if (idempotentKey != null) {
+                // 處理失敗時刪除冪等鍵，允許重試
+                stringRedisTemplate.delete(idempotentKey);
+            }
+            log.error("Failed to process transaction message: {}", e.getMessage(), e);
+            // 抛出异常会触发重试机制（RocketMQ 重新投递或 in-process 重试）
+            throw new RuntimeException("Failed to process transaction message", e);
+        }
+    }
+
+    /**
+     * 有 messageId 時以 Bloom + 資料庫唯一索引判斷；舊訊息以 Redis SET NX 判斷
+     */
+    private boolean isDuplicate(TransactionMessage message, String idempotentKey) {
+        if (idempotentKey == null) {
+            return messageIdempotencyService.isProcessed(OutboxEventType.TRANSACTION, message.getMessageId(),
+                    transactionRepository::existsByMessageId);
+        }
+        Boolean isNew = stringRedisTemplate.opsForValue()
+                .setIfAbsent(idempotentKey, "1", IDEMPOTENT_EXPIRE);
+        boolean duplicate = Boolean.FALSE.equals(isNew);
+        messageIdempotencyService.recordLegacy(OutboxEventType.TRANSACTION, duplicate ? 1 : 0, duplicate ? 0 : 1);
+        return duplicate;
+    }
+
+    /**
+     * 建立舊訊息（沒有 messageId）的 Redis 冪等鍵
+     * 使用 userId + type + betId + timestamp 作為唯一識別
+     */
+    public static String buildIdempotentKey(TransactionMessage message) {
+        return IDEMPOTENT_KEY_PREFIX +
+                message.getUserId() + ":" +
+                message.getType() + ":" +
+                (message.getBetId() != null ? message.getBetId() : "null") + ":" +
+                (message.getTimestamp() != null ? message.getTimestamp().toString() : System.currentTimeMillis());
+    }
+}
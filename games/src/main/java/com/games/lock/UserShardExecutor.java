@@ -0,0 +1,193 @@
+package com.games.lock;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 依用戶序列化的執行器（single writer）
+ *
+ * 每位用戶一個信箱（mailbox），所有會變動餘額的操作依 userId 放入該用戶的信箱依序執行；
+ * 信箱有工作時才以虛擬執行緒處理，處理完即移除，不同用戶之間互不阻塞（不再有固定分片的隊頭阻塞）。
+ * 同一節點上同一用戶的並發請求因此排隊執行而不互相搶鎖；搭配負載平衡依用戶黏著路由，
+ * RedisLock 只剩跨節點時才會發生競爭。
+ *
+ * - 單一用戶排隊中的工作已達上限：回傳 429
+ * - 等待逾時：工作尚未開始則取消並回傳 503；已在執行則繼續等待結果，避免回應與實際結果不一致
+ * - 在該用戶的工作中再次提交同一用戶的工作時直接執行，避免自我等待
+ * - 提交端的 MDC 會帶入工作中，日誌的追蹤欄位不因換執行緒而遺失
+ */
+@Slf4j
+@Component
+public class UserShardExecutor {
+
+    private static final ThreadLocal<Long> CURRENT_USER = new ThreadLocal<>();
+
+    /** 單一用戶排隊中的工作上限 */
+    @Value("${game.wallet.executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    /** 等待排隊中工作開始執行的最長時間 */
+    @Value("${game.wallet.executor.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("user-mailbox-", 0).factory());
+
+    private final Map<Long, Queue<Task<?>>> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * 在該用戶的信箱中執行並等待結果，工作拋出的 RuntimeException 原樣拋出
+     */
+    public <T> T execute(Long userId, Supplier<T> task) {
+        if (userId.equals(CURRENT_USER.get())) {
+            return task.get();
+        }
+
+        Task<T> queued = new Task<>(userId, task, MDC.getCopyOfContextMap());
+        boolean[] start = new boolean[1];
+        boolean[] rejected = new boolean[1];
+        // 信箱不存在時建立並啟動處理；存在表示已有虛擬執行緒在處理（信箱頭為執行中的工作），只需排入
+        mailboxes.compute(userId, (key, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new ArrayDeque<>();
+                start[0] = true;
+            } else if (mailbox.size() >= queueCapacity) {
+                rejected[0] = true;
+                return mailbox;
+            }
+            mailbox.add(queued);
+            return mailbox;
+        });
+        if (rejected[0]) {
+            log.warn("User mailbox full: userId={}", userId);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many pending requests");
+        }
+        if (start[0]) {
+            try {
+                executor.execute(() -> drain(userId, queued));
+            } catch (RejectedExecutionException e) {
+                mailboxes.remove(userId);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Executor is shutting down");
+            }
+        }
+
+        try {
+            try {
+                return queued.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (queued.started.compareAndSet(false, true)) {
+                    log.warn("User mailbox task timed out before start: userId={}", userId);
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Request timed out");
+                }
+                // 已開始執行，等待實際結果
+                return queued.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Request interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 目前有排隊或執行中工作的用戶數
+     */
+    public int activeUsers() {
+        return mailboxes.size();
+    }
+
+    /**
+     * 依序處理信箱中的工作：執行完信箱頭後才移出，信箱清空時在同一個原子操作中移除，
+     * 之後提交的工作會重新啟動處理
+     */
+    private void drain(Long userId, Task<?> first) {
+        Task<?> task = first;
+        while (task != null) {
+            task.run();
+            Task<?>[] next = new Task<?>[1];
+            mailboxes.computeIfPresent(userId, (key, mailbox) -> {
+                mailbox.poll();
+                next[0] = mailbox.peek();
+                return mailbox.isEmpty() ? null : mailbox;
+            });
+            task = next[0];
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 排隊中的工作；started 由執行端與逾時的提交端競爭，只有一方能取得
+     */
+    private static final class Task<T> implements Runnable {
+
+        private final Long userId;
+        private final Supplier<T> supplier;
+        private final Map<String, String> context;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(Long userId, Supplier<T> supplier, Map<String, String> context) {
+            this.userId = userId;
+            this.supplier = supplier;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            if (context != null) {
+                MDC.setContextMap(context);
+            }
+            CURRENT_USER.set(userId);
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                CURRENT_USER.remove();
+                MDC.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.games.repository;
+
+import com.games.entity.GameSettingHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface GameSettingHistoryRepository extends JpaRepository<GameSettingHistory, Long> {
+
+    Optional<GameSettingHistory> findByGameCodeAndVersion(String gameCode, Long version);
+
+    /**
+     * 保存配置版本，已存在時略過（多個節點同時載入同一版本）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO game_setting_history (game_code, version, properties) " +
+            "VALUES (:gameCode, :version, :properties) ON CONFLICT (game_code, version) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("gameCode") String gameCode, @Param("version") Long version,
+                       @Param("properties") String properties);
+}
@@ -0,0 +1,26 @@
+package com.games.repository;
+
+import com.games.entity.JackpotPool;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface JackpotPoolRepository extends JpaRepository<JackpotPool, String> {
+
+    /**
+     * 只更新池額，不覆蓋得主欄位
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE JackpotPool p SET p.poolAmount = :poolAmount, p.updatedAt = :updatedAt WHERE p.gameCode = :gameCode")
+    int updatePoolAmount(@Param("gameCode") String gameCode,
+                         @Param("poolAmount") BigDecimal poolAmount,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+}
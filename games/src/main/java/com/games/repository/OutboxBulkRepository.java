@@ -0,0 +1,69 @@
+package com.games.repository;
+
+import com.games.entity.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox 事件批次寫入（JDBC）
+ *
+ * 整批以一個多列 INSERT 依列表順序寫入並以 RETURNING 取回 ID。ID 仍由 BIGSERIAL 在寫入時配置：
+ * 同一用戶的寫入受錢包列鎖序列化，後一筆的 nextval 必定發生在前一筆提交之後，ID 順序即為該用戶的轉送順序；
+ * 若改由各節點預先配置 ID 區段，不同節點寫入的同一用戶事件可能以較小的 ID 被先轉送。
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxBulkRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO outbox_events (event_type, message_key, payload, created_at) VALUES ";
+
+    private static final String INSERT_ROW = "(?, ?, ?, ?)";
+
+    private static final String INSERT_SUFFIX = " RETURNING id";
+
+    private static final int COLUMNS = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 寫入一批事件，並將配置的 ID 與建立時間回填到傳入的事件
+     */
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + INSERT_SUFFIX.length()
+                + events.size() * (INSERT_ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[events.size() * COLUMNS];
+        LocalDateTime now = LocalDateTime.now();
+        int i = 0;
+        for (OutboxEvent event : events) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+            event.setCreatedAt(now);
+            args[i++] = event.getEventType().name();
+            args[i++] = event.getMessageKey();
+            args[i++] = event.getPayload();
+            args[i++] = now;
+        }
+        sql.append(INSERT_SUFFIX);
+
+        // RETURNING 依 VALUES 的順序回傳，nextval 亦依此順序配置
+        List<Long> ids = jdbcTemplate.queryForList(sql.toString(), Long.class, args);
+        if (ids.size() != events.size()) {
+            throw new IllegalStateException("Outbox insert returned " + ids.size() + " ids for " + events.size()
+                    + " events");
+        }
+        for (int row = 0; row < ids.size(); row++) {
+            events.get(row).setId(ids.get(row));
+        }
+    }
+}
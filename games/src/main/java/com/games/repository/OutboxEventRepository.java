@@ -0,0 +1,38 @@
+package com.games.repository;
+
+import com.games.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 依寫入順序鎖定指定用戶分區的一批待轉送事件
+     * 分區與 OutboxRelayService.orderKey 相同：floorMod(userId, partitions)，沒有 messageKey 的事件歸入分區 0
+     * SKIP LOCKED：其他交易正在處理的列直接略過而不等待
+     */
+    @Query(value = "SELECT * FROM outbox_events WHERE CASE WHEN message_key IS NULL THEN 0 "
+            + "ELSE mod(mod(CAST(message_key AS BIGINT), :partitions) + :partitions, :partitions) END = :partition "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("partition") int partition,
+                                    @Param("partitions") int partitions,
+                                    @Param("limit") int limit);
+
+    /**
+     * 嘗試取得交易層級的 advisory lock（交易結束自動釋放），取得失敗立即回傳 false
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryRelayLock(@Param("key") long key);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,27 @@
+package com.games.repository;
+
+import com.games.entity.ParkedMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ParkedMessageRepository extends JpaRepository<ParkedMessage, Long> {
+
+    /**
+     * 暫存訊息，同一群組的同一則訊息已暫存時略過（重新投遞）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO mq_parked_messages (consumer_group, topic, msg_id, message_key, body, " +
+            "reconsume_times, reason) VALUES (:consumerGroup, :topic, :msgId, :messageKey, :body, " +
+            ":reconsumeTimes, :reason) ON CONFLICT (consumer_group, msg_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("consumerGroup") String consumerGroup, @Param("topic") String topic,
+                       @Param("msgId") String msgId, @Param("messageKey") String messageKey,
+                       @Param("body") byte[] body, @Param("reconsumeTimes") int reconsumeTimes,
+                       @Param("reason") String reason);
+}
@@ -6,4 +6,9 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface SportTransactionRepository extends JpaRepository<SportTransaction, Long> {
+
+    /**
+     * 該訊息是否已寫入（走主庫，去重依據）
+     */
+    boolean existsByMessageId(Long messageId);
 }
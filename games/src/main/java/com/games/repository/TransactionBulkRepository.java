@@ -0,0 +1,87 @@
+package com.games.repository;
+
+import com.games.dto.TransactionMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 交易流水批次寫入（JDBC）
+ *
+ * 整批以一個多列 INSERT 依列表順序寫入（id 遞增順序與訊息順序相同），不載入 User / Merchant / Bet 實體；
+ * bet_id 以 LEFT JOIN bets 解析，注單尚未寫入時與逐筆消費相同記為 null。
+ * message_id 已存在的列以 ON CONFLICT 略過（重新平衡後其他節點已寫入的重複投遞）。
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionBulkRepository {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO transactions (merchant_id, user_id, type, amount, balance_before, balance_after, " +
+                    "description, bet_id, message_id) " +
+                    "SELECT v.merchant_id, v.user_id, v.type, v.amount, v.balance_before, v.balance_after, " +
+                    "v.description, b.id, v.message_id FROM (VALUES ";
+
+    private static final String INSERT_ROW =
+            "(?::int, ?::bigint, ?::bigint, ?::varchar, ?::numeric, ?::numeric, ?::numeric, ?::varchar, ?::bigint, ?::bigint)";
+
+    private static final String INSERT_SUFFIX =
+            ") AS v(ord, merchant_id, user_id, type, amount, balance_before, balance_after, description, bet_id, " +
+                    "message_id) LEFT JOIN bets b ON b.id = v.bet_id ORDER BY v.ord " +
+                    "ON CONFLICT (message_id) DO NOTHING";
+
+    private static final int COLUMNS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 寫入一批交易流水
+     *
+     * @return 寫入筆數
+     */
+    public int insertAll(List<TransactionMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + INSERT_SUFFIX.length()
+                + messages.size() * (INSERT_ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[messages.size() * COLUMNS];
+        int i = 0;
+        int ord = 0;
+        for (TransactionMessage message : messages) {
+            if (ord > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+            args[i++] = ord++;
+            args[i++] = message.getMerchantId();
+            args[i++] = message.getUserId();
+            args[i++] = message.getType() != null ? message.getType().name() : null;
+            args[i++] = message.getAmount();
+            args[i++] = message.getBalanceBefore();
+            args[i++] = message.getBalanceAfter();
+            args[i++] = message.getDescription();
+            args[i++] = message.getBetId();
+            args[i++] = message.getMessageId();
+        }
+        sql.append(INSERT_SUFFIX);
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+
+    /**
+     * 傳入的 messageId 中已寫入者
+     */
+    public List<Long> findExistingMessageIds(Collection<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(messageIds.size(), "?"));
+        return jdbcTemplate.queryForList("SELECT message_id FROM transactions WHERE message_id IN (" + placeholders + ")",
+                Long.class, messageIds.toArray());
+    }
+}
@@ -15,4 +15,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      */
     @ReadOnly
     List<Transaction> findByUserOrderByCreatedAtDesc(User user);
+
+    /**
+     * 该消息是否已写入（走主库，去重依据）
+     */
+    boolean existsByMessageId(Long messageId);
 }
@@ -5,9 +5,11 @@ import com.games.entity.User;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -40,4 +42,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT u FROM User u WHERE u.merchant.id = :merId AND u.id = :id")
     Optional<User> findByIdWithLock(@Param("merId") Long merchantId, @Param("id") Long id);
+
+    /**
+     * 讀取餘額與版本號（樂觀更新用）- 必須使用主庫
+     */
+    @Query("SELECT u.gameBalance AS gameBalance, u.sportBalance AS sportBalance, u.version AS version " +
+            "FROM User u WHERE u.id = :id")
+    Optional<WalletSnapshot> findWalletSnapshot(@Param("id") Long id);
+
+    /**
+     * 樂觀更新遊戲餘額：版本號相同且餘額不少於 required 時才更新
+     *
+     * @return 更新筆數（0 表示版本衝突或餘額不足）
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.gameBalance = u.gameBalance + :delta, u.version = u.version + 1, " +
+            "u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = :id AND u.version = :version AND u.gameBalance >= :required")
+    int addGameBalanceIfVersion(@Param("id") Long id, @Param("delta") BigDecimal delta,
+                                @Param("required") BigDecimal required, @Param("version") Long version);
+
+    /**
+     * 樂觀更新體育餘額：版本號相同且餘額不少於 required 時才更新
+     *
+     * @return 更新筆數（0 表示版本衝突或餘額不足）
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.sportBalance = u.sportBalance + :delta, u.version = u.version + 1, " +
+            "u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = :id AND u.version = :version AND u.sportBalance >= :required")
+    int addSportBalanceIfVersion(@Param("id") Long id, @Param("delta") BigDecimal delta,
+                                 @Param("required") BigDecimal required, @Param("version") Long version);
+
+    /**
+     * 寫回 Redis 錢包餘額（write-behind）
+     * 只接受序號較新的變更，重複或亂序的寫回不會覆蓋較新的餘額
+     *
+     * @return 更新筆數（0 表示已是較新的序號）
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.gameBalance = :game, u.sportBalance = :sport, u.walletSeq = :seq, " +
+            "u.version = u.version + 1, u.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE u.id = :id AND u.walletSeq < :seq")
+    int updateWalletBalances(@Param("id") Long id, @Param("game") BigDecimal gameBalance,
+                             @Param("sport") BigDecimal sportBalance, @Param("seq") Long seq);
+
+    /**
+     * 餘額與版本號投影
+     */
+    interface WalletSnapshot {
+        BigDecimal getGameBalance();
+
+        BigDecimal getSportBalance();
+
+        Long getVersion();
+    }
 }
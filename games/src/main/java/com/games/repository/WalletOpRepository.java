@@ -0,0 +1,41 @@
+package com.games.repository;
+
+import com.games.entity.WalletOp;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletOpRepository extends JpaRepository<WalletOp, Long> {
+
+    /**
+     * 記錄變更（加入目前的交易，與變更所屬的資料一併提交）
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO wallet_ops (op_id, user_id, balance_field, amount) " +
+            "VALUES (:opId, :userId, :field, :amount)", nativeQuery = true)
+    int insert(@Param("opId") Long opId, @Param("userId") Long userId,
+               @Param("field") String field, @Param("amount") long amount);
+
+    /**
+     * 取得已提交的變更ID
+     */
+    @Query("SELECT o.opId FROM WalletOp o WHERE o.opId IN :opIds")
+    List<Long> findCommittedIds(@Param("opIds") Collection<Long> opIds);
+
+    /**
+     * 刪除早於指定時間的紀錄（對帳完成後已不需要）
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WalletOp o WHERE o.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,95 @@
+package com.games.rocketmq.consumer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.impl.consumer.ConsumeMessageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 依積壓量調整消費執行緒數（game.mq.consumer.autoscale.enabled=true 時啟用）
+ *
+ * 每個週期讀取各 consumer 的 mq.consumer.lag：
+ * - 積壓超過 scale-up-lag：執行緒數加倍，不超過 max-threads
+ * - 積壓低於 scale-down-lag：執行緒數減少 step，不低於 min-threads 與 consumer 原本設定的 consumeThreadMin
+ *   （例如 @RocketMQMessageListener 預設的 20 條），只收回擴充出來的執行緒
+ *
+ * 執行緒數上限同時受 consumer 的 consumeThreadMax 限制（RocketMQ 只接受小於該值的核心執行緒數）。
+ * 順序消費時同一個 queue 同時只有一條執行緒處理，上限再以本節點分配到的 queue 數為準，不為了積壓增加閒置的執行緒。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+@ConditionalOnProperty(name = "game.mq.consumer.autoscale.enabled", havingValue = "true")
+public class ConsumerConcurrencyController {
+
+    private final ConsumerMetrics consumerMetrics;
+
+    /** 最少消費執行緒數 */
+    @Value("${game.mq.consumer.autoscale.min-threads:4}")
+    private int minThreads;
+
+    /** 最多消費執行緒數 */
+    @Value("${game.mq.consumer.autoscale.max-threads:32}")
+    private int maxThreads;
+
+    /** 積壓超過此數量時加倍執行緒數 */
+    @Value("${game.mq.consumer.autoscale.scale-up-lag:10000}")
+    private long scaleUpLag;
+
+    /** 積壓低於此數量時減少執行緒數 */
+    @Value("${game.mq.consumer.autoscale.scale-down-lag:1000}")
+    private long scaleDownLag;
+
+    /** 每次減少的執行緒數 */
+    @Value("${game.mq.consumer.autoscale.step:2}")
+    private int step;
+
+    @Scheduled(fixedDelayString = "${game.mq.consumer.autoscale.interval-ms:10000}",
+            initialDelayString = "${game.mq.consumer.autoscale.interval-ms:10000}")
+    public void adjust() {
+        for (Map.Entry<String, DefaultMQPushConsumer> entry : consumerMetrics.getConsumers().entrySet()) {
+            try {
+                adjust(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.warn("Failed to adjust consumer threads: group={}, {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void adjust(String group, DefaultMQPushConsumer consumer) {
+        ConsumeMessageService service = consumer.getDefaultMQPushConsumerImpl().getConsumeMessageService();
+        if (service == null) {
+            return;
+        }
+        int current = service.getCorePoolSize();
+        int upper = Math.min(maxThreads, consumer.getConsumeThreadMax() - 1);
+        if (consumer.getDefaultMQPushConsumerImpl().isConsumeOrderly()) {
+            upper = Math.min(upper, ConsumerMetrics.assignedQueues(consumer));
+        }
+        // 不低於 consumer 原本的核心執行緒數；上限低於此值時維持原設定不再擴充
+        int lower = Math.max(1, Math.max(minThreads, consumer.getConsumeThreadMin()));
+        upper = Math.max(lower, upper);
+        long lag = ConsumerMetrics.lag(consumer);
+
+        int target = current;
+        if (lag > scaleUpLag) {
+            target = Math.min(upper, Math.max(current * 2, lower));
+        } else if (lag < scaleDownLag) {
+            target = Math.max(lower, current - step);
+        }
+        target = Math.max(lower, Math.min(upper, target));
+        if (target == current) {
+            return;
+        }
+        service.updateCorePoolSize(target);
+        log.info("Consumer threads adjusted: group={}, lag={}, threads={} -> {}", group, lag, current, target);
+    }
+}
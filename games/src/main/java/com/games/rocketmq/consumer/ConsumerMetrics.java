@@ -0,0 +1,169 @@
+package com.games.rocketmq.consumer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消費端指標（以 consumer group 為 tag，經 actuator /actuator/metrics 查詢）
+ *
+ * - mq.consumer.lag：本節點分配到的 queue 上尚未消費的訊息數（broker 上未拉取 + 已拉取未消費）
+ * - mq.consumer.buffered：已拉取到本地、尚未消費的訊息數
+ * - mq.consumer.threads：目前的消費執行緒數
+ * - mq.consumer.process：每次交付（單筆或整批）的處理時間
+ * - mq.consumer.delay：訊息寫入 broker 到開始處理的延遲
+ * - mq.consumer.batch.size：每次交付的訊息數
+ * - mq.consumer.failures：處理失敗（將重試或移入死信佇列）的訊息數
+ *
+ * 去重命中率見 MessageIdempotencyService 的 message.idempotency.checks。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+public class ConsumerMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, DefaultMQPushConsumer> consumers = new ConcurrentHashMap<>();
+
+    /**
+     * 註冊 consumer（啟動前呼叫），同一 group 只註冊一次
+     */
+    public void register(DefaultMQPushConsumer consumer) {
+        String group = consumer.getConsumerGroup();
+        if (consumers.putIfAbsent(group, consumer) != null) {
+            return;
+        }
+        Gauge.builder("mq.consumer.lag", consumer, ConsumerMetrics::lag)
+                .description("Messages not yet consumed on the queues assigned to this node")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("mq.consumer.buffered", consumer, ConsumerMetrics::buffered)
+                .description("Messages pulled but not yet consumed")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("mq.consumer.threads", consumer, ConsumerMetrics::threads)
+                .description("Current consume thread count")
+                .tag("group", group)
+                .register(meterRegistry);
+        log.info("Consumer metrics registered: group={}", group);
+    }
+
+    public Map<String, DefaultMQPushConsumer> getConsumers() {
+        return consumers;
+    }
+
+    public void record(String group, MessageExt message, long startNanos) {
+        record(group, List.of(message), startNanos);
+    }
+
+    /**
+     * 記錄一次成功交付的處理時間、批次大小與各訊息的延遲
+     *
+     * @param startNanos 開始處理時的 System.nanoTime()
+     */
+    public void record(String group, List<MessageExt> messages, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("mq.consumer.process")
+                .description("Time spent processing one delivery")
+                .tag("group", group)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("mq.consumer.batch.size")
+                .description("Messages per delivery")
+                .tag("group", group)
+                .register(meterRegistry)
+                .record(messages.size());
+
+        Timer delay = Timer.builder("mq.consumer.delay")
+                .description("Time from broker store to start of processing")
+                .tag("group", group)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        long started = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(elapsed);
+        for (MessageExt message : messages) {
+            if (message.getStoreTimestamp() > 0) {
+                delay.record(Math.max(0L, started - message.getStoreTimestamp()), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public void recordFailure(String group, MessageExt message) {
+        recordFailure(group, List.of(message));
+    }
+
+    /**
+     * 記錄一次失敗的交付（process 只記錄成功的交付，失敗另以計數器統計）
+     */
+    public void recordFailure(String group, List<MessageExt> messages) {
+        Counter.builder("mq.consumer.failures")
+                .description("Messages whose processing failed and will be retried or dead-lettered")
+                .tag("group", group)
+                .register(meterRegistry)
+                .increment(messages.size());
+    }
+
+    /**
+     * 尚未消費的訊息數：每個 queue 上次拉取時 broker 端剩餘的數量 + 本地已拉取未消費的數量
+     */
+    public static long lag(DefaultMQPushConsumer consumer) {
+        long lag = 0L;
+        for (ProcessQueue queue : processQueues(consumer)) {
+            if (!queue.isDropped()) {
+                lag += queue.getMsgAccCnt() + queue.getMsgCount().get();
+            }
+        }
+        return lag;
+    }
+
+    private static long buffered(DefaultMQPushConsumer consumer) {
+        long buffered = 0L;
+        for (ProcessQueue queue : processQueues(consumer)) {
+            if (!queue.isDropped()) {
+                buffered += queue.getMsgCount().get();
+            }
+        }
+        return buffered;
+    }
+
+    private static int threads(DefaultMQPushConsumer consumer) {
+        // 尚未啟動時沒有消費執行緒池
+        return consumer.getDefaultMQPushConsumerImpl().getConsumeMessageService() != null
+                ? consumer.getDefaultMQPushConsumerImpl().getConsumeMessageService().getCorePoolSize() : 0;
+    }
+
+    /**
+     * 本節點分配到的 queue 數
+     */
+    public static int assignedQueues(DefaultMQPushConsumer consumer) {
+        int count = 0;
+        for (ProcessQueue queue : processQueues(consumer)) {
+            if (!queue.isDropped()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Iterable<ProcessQueue> processQueues(DefaultMQPushConsumer consumer) {
+        return consumer.getDefaultMQPushConsumerImpl().getRebalanceImpl().getProcessQueueTable().values();
+    }
+}
@@ -0,0 +1,550 @@
+package com.games.rocketmq.consumer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import com.games.dto.DeadLetterReplayResponse;
+import com.games.dto.RtpUpdateMessage;
+import com.games.dto.SportTransactionMessage;
+import com.games.dto.TransactionMessage;
+import com.games.event.GameEventHandler;
+import com.games.event.handler.RtpUpdateMessageHandler;
+import com.games.event.handler.SportTransactionMessageHandler;
+import com.games.event.handler.TransactionMessageHandler;
+import com.games.repository.SportTransactionRepository;
+import com.games.repository.TransactionRepository;
+import com.games.serializer.MessagePayloadDecoder;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultLitePullConsumer;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.consumer.ConsumeFromWhere;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 死信重播
+ *
+ * broker 重試耗盡的訊息會進入 %DLQ%{consumerGroup}。重播工作以獨立的 consumer group（{consumerGroup}-dlq-replay）
+ * 讀取死信 topic，逐筆分類後交給原本的 GameEventHandler：
+ * - DECODE_FAILED：無法解碼，不重播
+ * - ALREADY_APPLIED：messageId 已寫入資料庫（原本的失敗發生在寫入之後），不重播
+ * - REPLAYED：重播成功
+ * - MISSING_REFERENCE：用戶 / 商戶不存在
+ * - TRANSIENT：資料庫或 Redis 暫時性錯誤，重試 max-retries 次後仍失敗
+ * - CONSTRAINT：違反資料庫限制
+ * - FAILED：其他錯誤
+ *
+ * DECODE_FAILED、MISSING_REFERENCE、CONSTRAINT、FAILED 的訊息先暫存到 mq_parked_messages（ParkedMessageService）
+ * 才提交位移，不會因提交而遺失；TRANSIENT 重試耗盡時停止工作（FAILED）且不提交該批，排除問題後重新開始即可從同一處接續。
+ *
+ * 以 RateLimiter 限制每秒重播筆數，避免大量補寫時壓垮資料庫；同一用戶的訊息固定由同一條執行緒依序重播。
+ * 每批全部處理完才提交位移，工作中斷後以同一個 group 重新開始會從上次提交處接續；未完成的批次（取消或達到 limit）
+ * 不提交，下次重新讀取時流水以 messageId 去重；只分類（dryRun）的工作一律不提交也不暫存。連續數次拉不到訊息即視為讀完。
+ * 工作狀態只保存在本節點記憶體中。
+ *
+ * 注意：死信 topic 由 broker 自動建立時可能只有寫入權限，需先以 mqadmin updateTopicPerm -p 6 開放讀取。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+public class DeadLetterReplayService {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String REPLAY_GROUP_SUFFIX = "-dlq-replay";
+    private static final int MAX_IDLE_POLLS = 3;
+    private static final int MAX_SAMPLES = 100;
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    /**
+     * 死信訊息分類
+     */
+    public enum Outcome {
+        DECODE_FAILED,
+        ALREADY_APPLIED,
+        REPLAYED,
+        MISSING_REFERENCE,
+        TRANSIENT,
+        CONSTRAINT,
+        FAILED
+    }
+
+    private final TransactionMessageHandler transactionMessageHandler;
+    private final SportTransactionMessageHandler sportTransactionMessageHandler;
+    private final RtpUpdateMessageHandler rtpUpdateMessageHandler;
+    private final TransactionRepository transactionRepository;
+    private final SportTransactionRepository sportTransactionRepository;
+    private final MessagePayloadDecoder messagePayloadDecoder;
+    private final ParkedMessageService parkedMessageService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, GameEventHandler<?>> handlers = new LinkedHashMap<>();
+    private final Map<Long, ReplayJob> jobs = new LinkedHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong();
+
+    @Value("${rocketmq.name-server}")
+    private String nameServer;
+
+    @Value("${rocketmq.consumer.transaction-group}")
+    private String transactionGroup;
+
+    @Value("${rocketmq.consumer.sport-transaction-group}")
+    private String sportTransactionGroup;
+
+    @Value("${rocketmq.consumer.rtp-group}")
+    private String rtpGroup;
+
+    /** 每秒重播筆數上限 */
+    @Value("${game.mq.dlq-replay.max-rate:2000}")
+    private int maxRate;
+
+    /** 並行度上限 */
+    @Value("${game.mq.dlq-replay.max-concurrency:16}")
+    private int maxConcurrency;
+
+    /** 每次拉取的訊息數（每批處理完才提交位移） */
+    @Value("${game.mq.dlq-replay.batch-size:64}")
+    private int batchSize;
+
+    /** 每次拉取的等待時間 */
+    @Value("${game.mq.dlq-replay.poll-timeout-ms:1000}")
+    private long pollTimeoutMs;
+
+    /** 暫時性錯誤的重試次數 */
+    @Value("${game.mq.dlq-replay.max-retries:3}")
+    private int maxRetries;
+
+    @PostConstruct
+    public void init() {
+        handlers.put(transactionGroup, transactionMessageHandler);
+        handlers.put(sportTransactionGroup, sportTransactionMessageHandler);
+        handlers.put(rtpGroup, rtpUpdateMessageHandler);
+    }
+
+    /**
+     * 可重播的消費者群組
+     */
+    public List<String> getConsumerGroups() {
+        return new ArrayList<>(handlers.keySet());
+    }
+
+    /**
+     * 開始重播指定消費者群組的死信，同一群組同時只能有一個工作
+     *
+     * @param limit 最多處理的訊息數，0 表示直到讀完
+     */
+    public synchronized DeadLetterReplayResponse start(String consumerGroup, int rate, int concurrency, long limit,
+                                                       boolean dryRun) {
+        GameEventHandler<?> handler = handlers.get(consumerGroup);
+        if (handler == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown consumer group: " + consumerGroup);
+        }
+        if (rate < 1 || rate > maxRate) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "rate must be between 1 and " + maxRate);
+        }
+        if (concurrency < 1 || concurrency > maxConcurrency) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "concurrency must be between 1 and " + maxConcurrency);
+        }
+        if (limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must not be negative");
+        }
+        for (ReplayJob job : jobs.values()) {
+            if (job.consumerGroup.equals(consumerGroup) && STATUS_RUNNING.equals(job.status)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Replay already running for " + consumerGroup + ": jobId=" + job.id);
+            }
+        }
+
+        ReplayJob job = new ReplayJob(jobSequence.incrementAndGet(), consumerGroup, handler, rate, concurrency,
+                limit, dryRun);
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+
+        Thread thread = new Thread(() -> run(job), "dlq-replay-" + job.id);
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Dead letter replay started: jobId={}, group={}, rate={}, concurrency={}, limit={}, dryRun={}",
+                job.id, consumerGroup, rate, concurrency, limit, dryRun);
+        return job.toResponse();
+    }
+
+    public synchronized DeadLetterReplayResponse getJob(long jobId) {
+        return requireJob(jobId).toResponse();
+    }
+
+    public synchronized List<DeadLetterReplayResponse> getJobs() {
+        List<DeadLetterReplayResponse> responses = new ArrayList<>(jobs.size());
+        for (ReplayJob job : jobs.values()) {
+            responses.add(job.toResponse());
+        }
+        return responses;
+    }
+
+    /**
+     * 取消工作，目前這一批處理完並提交位移後停止
+     */
+    public synchronized DeadLetterReplayResponse cancel(long jobId) {
+        ReplayJob job = requireJob(jobId);
+        job.cancelled = true;
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+    }
+
+    private void run(ReplayJob job) {
+        RateLimiter rateLimiter = RateLimiter.of("dlq-replay-" + job.id, RateLimiterConfig.custom()
+                .limitForPeriod(job.rate)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(1))
+                .build());
+        ThreadPoolExecutor[] workers = new ThreadPoolExecutor[job.concurrency];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "dlq-replay-" + job.id + "-" + i;
+            workers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        DefaultLitePullConsumer consumer = new DefaultLitePullConsumer(job.consumerGroup + REPLAY_GROUP_SUFFIX);
+        try {
+            consumer.setNamesrvAddr(nameServer);
+            consumer.setAutoCommit(false);
+            // 重播 group 第一次使用時從死信 topic 的起點開始
+            consumer.setConsumeFromWhere(ConsumeFromWhere.CONSUME_FROM_FIRST_OFFSET);
+            consumer.setPullBatchSize(batchSize);
+            consumer.subscribe(job.topic, "*");
+            consumer.start();
+
+            int idlePolls = 0;
+            while (!job.cancelled && (job.limit == 0 || job.pulled.get() < job.limit)) {
+                List<MessageExt> messages = consumer.poll(pollTimeoutMs);
+                if (messages.isEmpty()) {
+                    if (++idlePolls >= MAX_IDLE_POLLS) {
+                        break;
+                    }
+                    continue;
+                }
+                idlePolls = 0;
+
+                List<Future<?>> futures = new ArrayList<>(messages.size());
+                int processed = 0;
+                for (MessageExt message : messages) {
+                    if ((job.limit > 0 && job.pulled.get() >= job.limit) || !acquire(job, rateLimiter)) {
+                        break;
+                    }
+                    job.pulled.incrementAndGet();
+                    processed++;
+                    Object payload = decode(job, message);
+                    if (payload == null) {
+                        continue;
+                    }
+                    int worker = Math.floorMod(partitionKey(payload, message), workers.length);
+                    futures.add(workers[worker].submit(() -> replay(job, message, payload)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                // 只分類時不提交，之後的實際重播仍從同一處開始
+                if (processed == messages.size() && !job.dryRun) {
+                    consumer.commitSync();
+                }
+            }
+            job.finish(job.cancelled ? STATUS_CANCELLED : STATUS_COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(STATUS_FAILED, "Interrupted");
+        } catch (ExecutionException e) {
+            log.error("Dead letter replay worker failed: jobId={}", job.id, e.getCause());
+            job.finish(STATUS_FAILED, String.valueOf(e.getCause()));
+        } catch (Exception e) {
+            log.error("Dead letter replay failed: jobId={}, group={}", job.id, job.consumerGroup, e);
+            job.finish(STATUS_FAILED, e.getMessage());
+        } finally {
+            consumer.shutdown();
+            for (ThreadPoolExecutor worker : workers) {
+                worker.shutdownNow();
+            }
+        }
+        log.info("Dead letter replay finished: jobId={}, group={}, status={}, pulled={}, results={}",
+                job.id, job.consumerGroup, job.status, job.pulled.get(), job.results());
+    }
+
+    /**
+     * 等待重播額度，工作取消時回傳 false
+     */
+    private static boolean acquire(ReplayJob job, RateLimiter rateLimiter) {
+        while (!job.cancelled) {
+            if (rateLimiter.acquirePermission()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object decode(ReplayJob job, MessageExt message) {
+        try {
+            return messagePayloadDecoder.decode(message.getBody(), job.handler.payloadType());
+        } catch (RuntimeException e) {
+            job.record(Outcome.DECODE_FAILED, message, e);
+            park(job, Outcome.DECODE_FAILED, message, e);
+            return null;
+        }
+    }
+
+    private void replay(ReplayJob job, MessageExt message, Object payload) {
+        if (isAlreadyApplied(payload)) {
+            job.record(Outcome.ALREADY_APPLIED, message, null);
+            return;
+        }
+        if (job.dryRun) {
+            // 只分類：可重播的訊息記為 REPLAYED 但不實際處理
+            job.record(Outcome.REPLAYED, message, null);
+            return;
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                handle(job.handler, payload);
+                job.record(Outcome.REPLAYED, message, null);
+                return;
+            } catch (RuntimeException e) {
+                Outcome outcome = classify(e);
+                if (outcome != Outcome.TRANSIENT) {
+                    job.record(outcome, message, e);
+                    park(job, outcome, message, e);
+                    return;
+                }
+                if (attempt >= maxRetries || job.cancelled) {
+                    job.record(outcome, message, e);
+                    // 不提交這一批，停止工作後由同一處重新開始
+                    throw new IllegalStateException("Transient failure persisted after " + attempt
+                            + " retries: msgId=" + message.getMsgId(), e);
+                }
+                try {
+                    Thread.sleep(200L * (attempt + 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    job.record(outcome, message, e);
+                    throw new IllegalStateException("Interrupted while retrying msgId=" + message.getMsgId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 無法重播的訊息暫存後才能提交位移；只分類時不暫存。暫存失敗時拋出例外，該批不提交
+     */
+    private void park(ReplayJob job, Outcome outcome, MessageExt message, Throwable cause) {
+        if (job.dryRun) {
+            return;
+        }
+        parkedMessageService.park(job.consumerGroup, message, "dlq-replay " + outcome + ": " + rootMessage(cause));
+    }
+
+    private <T> void handle(GameEventHandler<T> handler, Object payload) {
+        handler.handle(handler.payloadType().cast(payload));
+    }
+
+    /**
+     * 有 messageId 的流水已寫入資料庫時不需重播
+     */
+    private boolean isAlreadyApplied(Object payload) {
+        if (payload instanceof TransactionMessage message && message.getMessageId() != null) {
+            return transactionRepository.existsByMessageId(message.getMessageId());
+        }
+        if (payload instanceof SportTransactionMessage message && message.getMessageId() != null) {
+            return sportTransactionRepository.existsByMessageId(message.getMessageId());
+        }
+        return false;
+    }
+
+    private static Outcome classify(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException) {
+                return Outcome.CONSTRAINT;
+            }
+            if (cause instanceof TransientDataAccessException || cause instanceof RedisConnectionFailureException) {
+                return Outcome.TRANSIENT;
+            }
+            if (cause.getMessage() != null && cause.getMessage().contains("not found")) {
+                return Outcome.MISSING_REFERENCE;
+            }
+        }
+        return Outcome.FAILED;
+    }
+
+    /**
+     * 同一用戶（RTP 為同一遊戲）的訊息分配到同一條執行緒，維持原本的先後順序
+     */
+    private static int partitionKey(Object payload, MessageExt message) {
+        if (payload instanceof TransactionMessage transaction && transaction.getUserId() != null) {
+            return Long.hashCode(transaction.getUserId());
+        }
+        if (payload instanceof SportTransactionMessage transaction && transaction.getUserId() != null) {
+            return Long.hashCode(transaction.getUserId());
+        }
+        if (payload instanceof RtpUpdateMessage rtp && rtp.getGameCode() != null) {
+            return rtp.getGameCode().hashCode();
+        }
+        return message.getMsgId().hashCode();
+    }
+
+    private ReplayJob requireJob(long jobId) {
+        ReplayJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Replay job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(job -> !STATUS_RUNNING.equals(job.status)).count();
+        Iterator<ReplayJob> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (!STATUS_RUNNING.equals(iterator.next().status)) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private final class ReplayJob {
+
+        private final long id;
+        private final String consumerGroup;
+        private final String topic;
+        private final GameEventHandler<?> handler;
+        private final int rate;
+        private final int concurrency;
+        private final long limit;
+        private final boolean dryRun;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicLong pulled = new AtomicLong();
+        private final Map<Outcome, AtomicLong> counts = new EnumMap<>(Outcome.class);
+        private final List<String> samples = new ArrayList<>();
+
+        private volatile boolean cancelled;
+        private volatile String status = STATUS_RUNNING;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+
+        private ReplayJob(long id, String consumerGroup, GameEventHandler<?> handler, int rate, int concurrency,
+                          long limit, boolean dryRun) {
+            this.id = id;
+            this.consumerGroup = consumerGroup;
+            this.topic = MixAll.getDLQTopic(consumerGroup);
+            this.handler = handler;
+            this.rate = rate;
+            this.concurrency = concurrency;
+            this.limit = limit;
+            this.dryRun = dryRun;
+            for (Outcome outcome : Outcome.values()) {
+                counts.put(outcome, new AtomicLong());
+            }
+        }
+
+        private void record(Outcome outcome, MessageExt message, Throwable cause) {
+            counts.get(outcome).incrementAndGet();
+            meterRegistry.counter("mq.dlq.replay", "group", consumerGroup, "outcome", outcome.name()).increment();
+            if (cause == null) {
+                return;
+            }
+            String originId = message.getProperty(MessageConst.PROPERTY_ORIGIN_MESSAGE_ID);
+            String sample = (originId != null ? originId : message.getMsgId()) + " " + outcome + ": "
+                    + rootMessage(cause);
+            synchronized (samples) {
+                if (samples.size() < MAX_SAMPLES) {
+                    samples.add(sample);
+                }
+            }
+            log.warn("Dead letter replay failed: jobId={}, msgId={}, outcome={}, reconsumeTimes={}",
+                    id, message.getMsgId(), outcome, message.getReconsumeTimes());
+        }
+
+        private void finish(String status, String error) {
+            this.error = error;
+            this.finishedNanos = System.nanoTime();
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        private Map<String, Long> results() {
+            Map<String, Long> results = new LinkedHashMap<>();
+            counts.forEach((outcome, count) -> results.put(outcome.name(), count.get()));
+            return results;
+        }
+
+        private DeadLetterReplayResponse toResponse() {
+            long end = STATUS_RUNNING.equals(status) ? System.nanoTime() : finishedNanos;
+            double seconds = Math.max(1L, end - startNanos) / 1_000_000_000.0;
+            List<String> sampleCopy;
+            synchronized (samples) {
+                sampleCopy = new ArrayList<>(samples);
+            }
+            return DeadLetterReplayResponse.builder()
+                    .jobId(id)
+                    .consumerGroup(consumerGroup)
+                    .topic(topic)
+                    .status(status)
+                    .dryRun(dryRun)
+                    .rate(rate)
+                    .concurrency(concurrency)
+                    .limit(limit)
+                    .pulled(pulled.get())
+                    .results(results())
+                    .samples(sampleCopy)
+                    .error(error)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .throughput(pulled.get() / seconds)
+                    .build();
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + " - " + root.getMessage();
+    }
+}
@@ -0,0 +1,65 @@
+package com.games.rocketmq.consumer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import com.games.repository.ParkedMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.stereotype.Service;
+
+/**
+ * 暫存無法處理的訊息（mq_parked_messages）
+ *
+ * 順序消費時一則資料錯誤的訊息會讓整個 queue 停住；寫入此表後即可確認消費讓後續訊息繼續。
+ * 寫入失敗時拋出例外，由呼叫端照常重試，不會在未暫存的情況下確認消費。
+ * 暫存筆數記錄於 mq.consumer.parked（tag：group）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+public class ParkedMessageService {
+
+    private static final int MAX_REASON_LENGTH = 500;
+
+    private final ParkedMessageRepository parkedMessageRepository;
+    private final MeterRegistry meterRegistry;
+
+    public void park(String consumerGroup, MessageExt message, Throwable cause) {
+        park(consumerGroup, message, describe(cause));
+    }
+
+    public void park(String consumerGroup, MessageExt message, String reason) {
+        String trimmed = reason != null && reason.length() > MAX_REASON_LENGTH
+                ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+        int inserted = parkedMessageRepository.insertIfAbsent(consumerGroup, message.getTopic(), message.getMsgId(),
+                message.getKeys(), message.getBody() != null ? message.getBody() : new byte[0],
+                message.getReconsumeTimes(), trimmed);
+        if (inserted > 0) {
+            Counter.builder("mq.consumer.parked")
+                    .description("Messages parked instead of blocking the queue")
+                    .tag("group", consumerGroup)
+                    .register(meterRegistry)
+                    .increment();
+        }
+        log.error("Message parked: group={}, topic={}, msgId={}, keys={}, reconsumeTimes={}, reason={}",
+                consumerGroup, message.getTopic(), message.getMsgId(), message.getKeys(),
+                message.getReconsumeTimes(), trimmed);
+    }
+
+    private static String describe(Throwable cause) {
+        if (cause == null) {
+            return null;
+        }
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root == cause
+                ? cause.getClass().getSimpleName() + ": " + cause.getMessage()
+                : cause.getClass().getSimpleName() + ": " + cause.getMessage() + " <- "
+                + root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+}
@@ -1,58 +1,51 @@
 package com.games.rocketmq.consumer;
 
+import com.games.annotation.ConditionalOnRocketMQEventBus;
 import com.games.constant.RocketMQConstant;
 import com.games.dto.RtpUpdateMessage;
+import com.games.event.handler.RtpUpdateMessageHandler;
+import com.games.serializer.MessagePayloadDecoder;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.apache.rocketmq.spring.core.RocketMQPushConsumerLifecycleListener;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
-
-@Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
 @RocketMQMessageListener(
         topic = RocketMQConstant.RTP_UPDATE_TOPIC,
         consumerGroup = "${rocketmq.consumer.rtp-group}",
         selectorExpression = RocketMQConstant.RTP_TAG
 )
-public class RtpUpdateMessageConsumer implements RocketMQListener<RtpUpdateMessage> {
+public class RtpUpdateMessageConsumer implements RocketMQListener<MessageExt>,
+        RocketMQPushConsumerLifecycleListener {
 
-    private final RedisTemplate<String, String> redisTemplate;
+    private final RtpUpdateMessageHandler rtpUpdateMessageHandler;
+    private final MessagePayloadDecoder messagePayloadDecoder;
+    private final ConsumerMetrics consumerMetrics;
 
-    private static final String RTP_TOTAL_BET_KEY = "rtp:total:bet";
-    private static final String RTP_TOTAL_WIN_KEY = "rtp:total:win";
-    private static final String RTP_BET_COUNT_KEY = "rtp:total:count";
-    private static final long RTP_TTL_DAYS = 30;
+    private String consumerGroup;
 
     @Override
-    public void onMessage(RtpUpdateMessage message) {
-        try {
-            log.debug("Processing RTP update message: betAmount={}, winAmount={}",
-                    message.getBetAmount(), message.getWinAmount());
-
-            // 更新 Redis 统计数据（原子操作）
-            redisTemplate.opsForValue().increment(RTP_TOTAL_BET_KEY,
-                    message.getBetAmount() == null ? 0 : message.getBetAmount().doubleValue());
-            redisTemplate.opsForValue().increment(RTP_TOTAL_WIN_KEY,
-                    message.getWinAmount() == null ? 0 : message.getWinAmount().doubleValue());
-            redisTemplate.opsForValue().increment(RTP_BET_COUNT_KEY, 1);
-
-            // 设置过期时间（30天）
-            redisTemplate.expire(RTP_TOTAL_BET_KEY, RTP_TTL_DAYS, TimeUnit.DAYS);
-            redisTemplate.expire(RTP_TOTAL_WIN_KEY, RTP_TTL_DAYS, TimeUnit.DAYS);
-            redisTemplate.expire(RTP_BET_COUNT_KEY, RTP_TTL_DAYS, TimeUnit.DAYS);
+    public void prepareStart(DefaultMQPushConsumer consumer) {
+        consumerGroup = consumer.getConsumerGroup();
+        consumerMetrics.register(consumer);
+    }
 
-            log.debug("RTP update message processed successfully");
-        } catch (Exception e) {
-            log.error("Failed to process RTP update message: {}", e.getMessage(), e);
-            // 抛出异常会触发 RocketMQ 重试机制
-            throw new RuntimeException("Failed to process RTP update message", e);
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        long start = System.nanoTime();
+        try {
+            // 依首位元組判斷二進位或 JSON（切換編碼期間兩種格式並存）
+            rtpUpdateMessageHandler.handle(messagePayloadDecoder.decode(messageExt.getBody(), RtpUpdateMessage.class));
+        } catch (RuntimeException e) {
+            consumerMetrics.recordFailure(consumerGroup, messageExt);
+            throw e;
         }
+        consumerMetrics.record(consumerGroup, messageExt, start);
     }
 }
-
-
@@ -0,0 +1,252 @@
+package com.games.rocketmq.consumer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import com.games.constant.RocketMQConstant;
+import com.games.dto.TransactionMessage;
+import com.games.enums.OutboxEventType;
+import com.games.event.handler.TransactionMessageHandler;
+import com.games.repository.TransactionBulkRepository;
+import com.games.serializer.MessagePayloadDecoder;
+import com.games.service.MessageIdempotencyService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批次消費交易流水（game.ledger.batch-consumer.enabled=true 時取代 TransactionMessageConsumer）
+ *
+ * 1. 原生 push consumer 以順序模式每次交付同一個 queue 的最多 batch-size 筆（同一用戶的訊息固定在同一個 queue）
+ * 2. 有 messageId 的訊息經 Bloom 過濾後，可能重複者以一次查詢確認；舊訊息的冪等鍵以一次 Redis pipeline 的 SET NX 檢查
+ * 3. 其餘訊息依原順序以一個多列 INSERT 寫入，不再逐筆查詢 User / Merchant / Bet
+ * 4. 寫入成功後整批加入 Bloom
+ *
+ * 多列 INSERT 因資料錯誤（約束、數值溢位等）失敗時改為逐筆寫入，出錯的訊息暫存到 mq_parked_messages，
+ * 其餘照常寫入，單一壞訊息不會讓整個 queue 停住；無法解碼的訊息同樣暫存。
+ * 其他寫入失敗（例如資料庫連線）時刪除尚未寫入的冪等鍵，暫停該 queue 後整批重新消費
+ * （後續訊息不會越過失敗的批次）；重試超過 game.mq.consumer.max-reconsume-times 次的訊息移入 %DLQ%{consumerGroup}，
+ * 可由 /api/mq/dlq 重播。consumer group 與逐筆消費相同，切換時不會重複消費。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+@ConditionalOnProperty(name = "game.ledger.batch-consumer.enabled", havingValue = "true")
+public class TransactionBatchConsumer {
+
+    private final TransactionBulkRepository transactionBulkRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MessagePayloadDecoder messagePayloadDecoder;
+    private final MessageIdempotencyService messageIdempotencyService;
+    private final ConsumerMetrics consumerMetrics;
+    private final ParkedMessageService parkedMessageService;
+
+    @Value("${rocketmq.name-server}")
+    private String nameServer;
+
+    @Value("${rocketmq.consumer.transaction-group}")
+    private String consumerGroup;
+
+    /** 每次交付的最大訊息數（同時作為每次拉取的數量） */
+    @Value("${game.ledger.batch-consumer.batch-size:128}")
+    private int batchSize;
+
+    /** 消費執行緒數 */
+    @Value("${game.ledger.batch-consumer.threads:4}")
+    private int threads;
+
+    /** 消費執行緒數上限（啟用 game.mq.consumer.autoscale 時依積壓量在 threads 與此值之間調整） */
+    @Value("${game.ledger.batch-consumer.max-threads:16}")
+    private int maxThreads;
+
+    /** 順序消費失敗的最大重試次數，超過後移入死信佇列（ORDERLY 模式預設為無限重試） */
+    @Value("${game.mq.consumer.max-reconsume-times:60}")
+    private int maxReconsumeTimes;
+
+    private DefaultMQPushConsumer consumer;
+
+    @PostConstruct
+    public void start() throws MQClientException {
+        consumer = new DefaultMQPushConsumer(consumerGroup);
+        consumer.setNamesrvAddr(nameServer);
+        consumer.subscribe(RocketMQConstant.TRANSACTION_TOPIC, RocketMQConstant.TRANSACTION_TAG);
+        consumer.setConsumeMessageBatchMaxSize(batchSize);
+        consumer.setPullBatchSize(batchSize);
+        consumer.setConsumeThreadMin(threads);
+        // RocketMQ 只接受小於 consumeThreadMax 的核心執行緒數
+        consumer.setConsumeThreadMax(Math.max(threads, maxThreads) + 1);
+        consumer.setMaxReconsumeTimes(maxReconsumeTimes);
+        consumer.registerMessageListener((MessageListenerOrderly) (messages, context) -> {
+            try {
+                long start = System.nanoTime();
+                consume(messages);
+                consumerMetrics.record(consumerGroup, messages, start);
+                return ConsumeOrderlyStatus.SUCCESS;
+            } catch (Exception e) {
+                log.error("Failed to process transaction message batch: size={}, {}", messages.size(),
+                        e.getMessage(), e);
+                consumerMetrics.recordFailure(consumerGroup, messages);
+                return ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
+            }
+        });
+        consumerMetrics.register(consumer);
+        consumer.start();
+        log.info("Transaction batch consumer started: group={}, batchSize={}, threads={}",
+                consumerGroup, batchSize, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+
+    private void consume(List<MessageExt> records) {
+        List<TransactionMessage> messages = new ArrayList<>(records.size());
+        List<MessageExt> sources = new ArrayList<>(records.size());
+        for (MessageExt record : records) {
+            TransactionMessage message = decode(record);
+            if (message != null) {
+                messages.add(message);
+                sources.add(record);
+            }
+        }
+
+        List<Long> messageIds = new ArrayList<>(messages.size());
+        List<String> keys = new ArrayList<>();
+        for (TransactionMessage message : messages) {
+            if (message.getMessageId() != null) {
+                messageIds.add(message.getMessageId());
+            } else {
+                // 升級前送出的訊息沒有 messageId，沿用 Redis 冪等鍵
+                keys.add(TransactionMessageHandler.buildIdempotentKey(message));
+            }
+        }
+        Set<Long> processed = messageIdempotencyService.findProcessed(OutboxEventType.TRANSACTION, messageIds,
+                transactionBulkRepository::findExistingMessageIds);
+        List<Object> results = keys.isEmpty() ? List.of() : markProcessed(keys);
+
+        List<TransactionMessage> fresh = new ArrayList<>(messages.size());
+        List<MessageExt> freshSources = new ArrayList<>(messages.size());
+        List<Long> freshIds = new ArrayList<>(messages.size());
+        List<String> freshKeys = new ArrayList<>(keys.size());
+        int legacy = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            TransactionMessage message = messages.get(i);
+            Long messageId = message.getMessageId();
+            if (messageId != null) {
+                if (!processed.contains(messageId)) {
+                    fresh.add(message);
+                    freshSources.add(sources.get(i));
+                    freshIds.add(messageId);
+                }
+            } else {
+                if (Boolean.TRUE.equals(results.get(legacy))) {
+                    fresh.add(message);
+                    freshSources.add(sources.get(i));
+                    freshKeys.add(keys.get(legacy));
+                }
+                legacy++;
+            }
+        }
+        messageIdempotencyService.recordLegacy(OutboxEventType.TRANSACTION, keys.size() - freshKeys.size(),
+                freshKeys.size());
+        if (fresh.size() < messages.size()) {
+            log.warn("Duplicate transaction messages skipped: {}", messages.size() - fresh.size());
+        }
+
+        try {
+            int inserted = transactionBulkRepository.insertAll(fresh);
+            messageIdempotencyService.confirm(OutboxEventType.TRANSACTION, freshIds);
+            log.debug("Transaction message batch processed: received={}, inserted={}", messages.size(), inserted);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Transaction batch insert rejected, falling back to row-by-row: size={}, {}", fresh.size(),
+                    e.getMessage());
+            insertEach(fresh, freshSources);
+        } catch (RuntimeException e) {
+            // 寫入失敗時刪除本批冪等鍵，允許重新消費
+            stringRedisTemplate.delete(freshKeys);
+            throw e;
+        }
+    }
+
+    /**
+     * 逐筆寫入：資料錯誤的訊息暫存後略過，其他錯誤時刪除尚未寫入的冪等鍵並拋出，整批重新消費
+     * （已寫入者重新消費時以 message_id 或冪等鍵略過）
+     */
+    private void insertEach(List<TransactionMessage> fresh, List<MessageExt> sources) {
+        List<Long> insertedIds = new ArrayList<>(fresh.size());
+        int parked = 0;
+        for (int i = 0; i < fresh.size(); i++) {
+            TransactionMessage message = fresh.get(i);
+            try {
+                transactionBulkRepository.insertAll(List.of(message));
+            } catch (DataIntegrityViolationException e) {
+                parkedMessageService.park(consumerGroup, sources.get(i), e);
+                parked++;
+                continue;
+            } catch (RuntimeException e) {
+                List<String> pendingKeys = new ArrayList<>();
+                for (TransactionMessage pending : fresh.subList(i, fresh.size())) {
+                    if (pending.getMessageId() == null) {
+                        pendingKeys.add(TransactionMessageHandler.buildIdempotentKey(pending));
+                    }
+                }
+                stringRedisTemplate.delete(pendingKeys);
+                messageIdempotencyService.confirm(OutboxEventType.TRANSACTION, insertedIds);
+                throw e;
+            }
+            if (message.getMessageId() != null) {
+                insertedIds.add(message.getMessageId());
+            }
+        }
+        messageIdempotencyService.confirm(OutboxEventType.TRANSACTION, insertedIds);
+        log.warn("Transaction batch inserted row-by-row: size={}, parked={}", fresh.size(), parked);
+    }
+
+    /**
+     * 以一次 pipeline 對所有冪等鍵執行 SET NX EX，回傳各鍵是否為首次處理
+     */
+    private List<Object> markProcessed(List<String> keys) {
+        Expiration expiration = Expiration.from(TransactionMessageHandler.IDEMPOTENT_EXPIRE);
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[] value = "1".getBytes(StandardCharsets.UTF_8);
+            for (String key : keys) {
+                connection.stringCommands().set(key.getBytes(StandardCharsets.UTF_8), value, expiration,
+                        RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 解碼訊息，無法解碼時暫存並回傳 null
+     */
+    private TransactionMessage decode(MessageExt record) {
+        try {
+            return messagePayloadDecoder.decode(record.getBody(), TransactionMessage.class);
+        } catch (IllegalArgumentException e) {
+            parkedMessageService.park(consumerGroup, record, e);
+            return null;
+        }
+    }
+}
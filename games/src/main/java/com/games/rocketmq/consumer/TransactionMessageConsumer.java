@@ -1,104 +1,66 @@
 package com.games.rocketmq.consumer;
 
+import com.games.annotation.ConditionalOnRocketMQEventBus;
 import com.games.constant.RocketMQConstant;
 import com.games.dto.TransactionMessage;
-import com.games.entity.Bet;
-import com.games.entity.Merchant;
-import com.games.entity.Transaction;
-import com.games.entity.User;
-import com.games.repository.BetRepository;
-import com.games.repository.MerchantRepository;
-import com.games.repository.TransactionRepository;
-import com.games.repository.UserRepository;
+import com.games.event.handler.TransactionMessageHandler;
+import com.games.serializer.MessagePayloadDecoder;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.spring.annotation.ConsumeMode;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.apache.rocketmq.spring.core.RocketMQPushConsumerLifecycleListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
-
-@Slf4j
+/**
+ * 逐筆消費交易流水（game.ledger.batch-consumer.enabled=true 時改由 TransactionBatchConsumer 批次消費）
+ * 訊息依 userId 分區順序發送，以 ORDERLY 模式逐 queue 依序消費，同一用戶的流水依序寫入
+ * 重試超過 game.mq.consumer.max-reconsume-times 次的訊息移入 %DLQ%{consumerGroup}，不會無限重試而卡住整個 queue
+ */
 @Component
 @RequiredArgsConstructor
+@ConditionalOnRocketMQEventBus
+@ConditionalOnProperty(name = "game.ledger.batch-consumer.enabled", havingValue = "false", matchIfMissing = true)
 @RocketMQMessageListener(
         topic = RocketMQConstant.TRANSACTION_TOPIC,
         consumerGroup = "${rocketmq.consumer.transaction-group}",
-        selectorExpression = RocketMQConstant.TRANSACTION_TAG
+        selectorExpression = RocketMQConstant.TRANSACTION_TAG,
+        consumeMode = ConsumeMode.ORDERLY
 )
-public class TransactionMessageConsumer implements RocketMQListener<TransactionMessage> {
-
-    private static final String IDEMPOTENT_KEY_PREFIX = "transaction:idempotent:";
-    private static final Duration IDEMPOTENT_EXPIRE = Duration.ofHours(24);
+public class TransactionMessageConsumer implements RocketMQListener<MessageExt>,
+        RocketMQPushConsumerLifecycleListener {
 
-    private final MerchantRepository merchantRepository;
-    private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
-    private final BetRepository betRepository;
-    private final StringRedisTemplate stringRedisTemplate;
+    private final TransactionMessageHandler transactionMessageHandler;
+    private final MessagePayloadDecoder messagePayloadDecoder;
+    private final ConsumerMetrics consumerMetrics;
 
-    @Override
-    public void onMessage(TransactionMessage message) {
+    /** 順序消費失敗的最大重試次數，超過後移入死信佇列（ORDERLY 模式預設為無限重試） */
+    @Value("${game.mq.consumer.max-reconsume-times:60}")
+    private int maxReconsumeTimes;
 
-        // 生成唯一的冪等鍵
-        String idempotentKey = buildIdempotentKey(message);
+    private String consumerGroup;
 
-        // 冪等性檢查：如果已處理過，直接返回
-        Boolean isNew = stringRedisTemplate.opsForValue()
-                .setIfAbsent(idempotentKey, "1", IDEMPOTENT_EXPIRE);
+    @Override
+    public void prepareStart(DefaultMQPushConsumer consumer) {
+        consumerGroup = consumer.getConsumerGroup();
+        consumer.setMaxReconsumeTimes(maxReconsumeTimes);
+        consumerMetrics.register(consumer);
+    }
 
-        if (Boolean.FALSE.equals(isNew)) {
-            log.warn("Duplicate transaction message detected, skipping: userId={}, type={}, sportBetId={}",
-                    message.getUserId(), message.getType(), message.getBetId());
-            return;
-        }
+    @Override
+    public void onMessage(MessageExt messageExt) {
+        long start = System.nanoTime();
         try {
-            log.info("Processing transaction message: merchantId={}, userId={}, type={}, amount={}",
-                    message.getMerchantId(), message.getUserId(), message.getType(), message.getAmount());
-
-            User user = userRepository.findById(message.getUserId())
-                    .orElseThrow(() -> new RuntimeException("User not found: " + message.getUserId()));
-
-            Merchant merchant = merchantRepository.findById(message.getMerchantId())
-                    .orElseThrow(() -> new RuntimeException("Merchant not found: " + message.getMerchantId()));
-
-            Bet bet = null;
-            if (message.getBetId() != null) {
-                bet = betRepository.findById(message.getBetId()).orElse(null);
-            }
-
-            Transaction transaction = Transaction.builder()
-                    .merchant(merchant)
-                    .type(message.getType())
-                    .amount(message.getAmount())
-                    .bet(bet)
-                    .balanceAfter(message.getBalanceAfter())
-                    .balanceAfter(message.getBalanceAfter())
-                    .description(message.getDescription())
-                    .user(user)
-                    .amount(message.getAmount())
-                    .build();
-
-            transactionRepository.save(transaction);
-
-            log.info("Transaction message processed successfully: transactionId={}", transaction.getId());
-        } catch (Exception e) {
-            log.error("Failed to process transaction message: {}", e.getMessage(), e);
-            // 抛出异常会触发 RocketMQ 重试机制
-            throw new RuntimeException("Failed to process transaction message", e);
+            // 依首位元組判斷二進位或 JSON（切換編碼期間兩種格式並存）
+            transactionMessageHandler.handle(messagePayloadDecoder.decode(messageExt.getBody(), TransactionMessage.class));
+        } catch (RuntimeException e) {
+            consumerMetrics.recordFailure(consumerGroup, messageExt);
+            throw e;
         }
-    }
-
-    /**
-     * 建立冪等鍵
-     * 使用 userId + type + betId + timestamp 作為唯一識別
-     */
-    private String buildIdempotentKey(TransactionMessage message) {
-        return IDEMPOTENT_KEY_PREFIX +
-                message.getUserId() + ":" +
-                message.getType() + ":" +
-                (message.getBetId() != null ? message.getBetId() : "null") + ":" +
-                (message.getTimestamp() != null ? message.getTimestamp().toString() : System.currentTimeMillis());
+        consumerMetrics.record(consumerGroup, messageExt, start);
     }
 }
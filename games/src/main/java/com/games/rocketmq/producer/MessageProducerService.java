@@ -1,57 +1,88 @@
 package com.games.rocketmq.producer;
 
+import com.games.annotation.ConditionalOnRocketMQEventBus;
 import com.games.constant.RocketMQConstant;
 import com.games.dto.RtpUpdateMessage;
-import com.games.dto.SportTransactionMessage;
-import com.games.dto.TransactionMessage;
+import com.games.enums.OutboxEventType;
+import com.games.event.GameEventBus;
+import com.games.serializer.BinaryMessageCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.client.producer.SendCallback;
 import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GameEventBus 的 RocketMQ 實作（game.event-bus.mode=rocketmq，預設）
+ *
+ * 交易流水經 outbox 轉送，發送失敗時留在資料庫中重送；RTP 彙總發送失敗時寫入本地暫存 MessageSpool，
+ * 由 replaySpool 在 broker 恢復後依序重送。暫存仍有積壓時新訊息直接附加，不在故障期間逐筆等待 broker。
+ */
 @Slf4j
 @Service
-public class MessageProducerService {
+@ConditionalOnRocketMQEventBus
+public class MessageProducerService implements GameEventBus {
 
     private final RocketMQTemplate gamesTemplate;
     private final RocketMQTemplate sportTemplate;
+    private final MessageSpool messageSpool;
+    private final BinaryMessageCodec binaryMessageCodec;
+
+    @Value("${rocketmq.producer.send-message-timeout:3000}")
+    private long sendTimeoutMs;
+
+    /** 每次排程最多重播的暫存訊息數 */
+    @Value("${game.mq.spool.replay-batch-size:500}")
+    private int spoolReplayBatchSize;
 
     public MessageProducerService(
             @Qualifier("gamesRocketMQTemplate") RocketMQTemplate gamesTemplate,
-            @Qualifier("sportRocketMQTemplate") RocketMQTemplate sportTemplate) {
+            @Qualifier("sportRocketMQTemplate") RocketMQTemplate sportTemplate,
+            MessageSpool messageSpool,
+            BinaryMessageCodec binaryMessageCodec) {
         this.gamesTemplate = gamesTemplate;
         this.sportTemplate = sportTemplate;
+        this.messageSpool = messageSpool;
+        this.binaryMessageCodec = binaryMessageCodec;
     }
 
-    public void sendTransactionMessage(final TransactionMessage message) {
-        try {
-            String destination = RocketMQConstant.TRANSACTION_TOPIC + ":" + RocketMQConstant.TRANSACTION_TAG;
-            gamesTemplate.asyncSend(destination, MessageBuilder.withPayload(message).build(),
-                    new SendCallback() {
-                        @Override
-                        public void onSuccess(SendResult sendResult) {
-                            log.info("Transaction message sent successfully: userId={}, type={}, amount={}",
-                                    message.getUserId(), message.getType(), message.getAmount());
-                        }
-
-                        @Override
-                        public void onException(Throwable e) {
-                            log.error("Failed to send transaction message: {}", e.getMessage(), e);
-                        }
-                    });
-        } catch (Exception e) {
-            log.error("Failed to send transaction message: {}", e.getMessage(), e);
+    /**
+     * 同步順序批次發送（outbox 轉送用），同一 hashKey 的訊息送到同一個 queue，失敗時拋出例外由呼叫端重試
+     */
+    @Override
+    public void publishOrderly(OutboxEventType type, String hashKey, List<?> payloads) {
+        RocketMQTemplate template = type == OutboxEventType.SPORT_TRANSACTION ? sportTemplate : gamesTemplate;
+        List<Message<?>> batch = new ArrayList<>(payloads.size());
+        for (Object payload : payloads) {
+            batch.add(MessageBuilder.withPayload(payload).build());
+        }
+        SendResult result = template.syncSendOrderly(type.getDestination(), batch, hashKey, sendTimeoutMs);
+        if (result.getSendStatus() != SendStatus.SEND_OK) {
+            // 訊息已寫入 broker，僅刷盤或同步至 slave 逾時
+            log.warn("Outbox batch sent with status {}: type={}, size={}", result.getSendStatus(), type,
+                    payloads.size());
         }
     }
 
-    public void sendRtpUpdateMessage(final RtpUpdateMessage message) {
+    @Override
+    public void publishRtpUpdate(final RtpUpdateMessage message) {
+        if (messageSpool.hasBacklog()) {
+            // 暫存中仍有未重送的訊息，直接附加以保持順序
+            spool(RocketMQConstant.RTP_UPDATE_DESTINATION, message);
+            return;
+        }
         try {
-            String destination = RocketMQConstant.RTP_UPDATE_TOPIC + ":" + RocketMQConstant.RTP_TAG;
-            gamesTemplate.asyncSend(destination, MessageBuilder.withPayload(message).build(),
+            gamesTemplate.asyncSend(RocketMQConstant.RTP_UPDATE_DESTINATION, MessageBuilder.withPayload(message).build(),
                     new SendCallback() {
                         @Override
                         public void onSuccess(SendResult sendResult) {
@@ -61,32 +92,49 @@ public class MessageProducerService {
 
                         @Override
                         public void onException(Throwable e) {
-                            log.error("Failed to send RTP update message: {}", e.getMessage(), e);
+                            log.warn("Failed to send RTP update message, spooling: {}", e.getMessage());
+                            spool(RocketMQConstant.RTP_UPDATE_DESTINATION, message);
                         }
                     });
         } catch (Exception e) {
-            log.error("Failed to send RTP update message: {}", e.getMessage(), e);
+            log.warn("Failed to send RTP update message, spooling: {}", e.getMessage());
+            spool(RocketMQConstant.RTP_UPDATE_DESTINATION, message);
         }
     }
 
-    public void sendSportTransactionMessage(final SportTransactionMessage message) {
-        try {
-            String destination = RocketMQConstant.SPORT_TRANSACTION_TOPIC + ":" + RocketMQConstant.SPORT_TRANSACTION_TAG;
-            sportTemplate.asyncSend(destination, MessageBuilder.withPayload(message).build(),
-                    new SendCallback() {
-                        @Override
-                        public void onSuccess(SendResult sendResult) {
-                            log.info("Sport transaction message sent successfully: userId={}, type={}, amount={}",
-                                    message.getUserId(), message.getType(), message.getAmount());
-                        }
+    /**
+     * 依寫入順序重送暫存的訊息，遇到發送失敗即停止，等待下次排程
+     */
+    @Scheduled(fixedDelayString = "${game.mq.spool.replay-interval-ms:1000}")
+    public void replaySpool() {
+        if (!messageSpool.isEnabled()) {
+            return;
+        }
+        messageSpool.flush();
+        int replayed = messageSpool.replay(this::resend, spoolReplayBatchSize);
+        if (replayed > 0) {
+            log.info("Spooled messages replayed: count={}, backlog={}", replayed, messageSpool.hasBacklog());
+        }
+    }
 
-                        @Override
-                        public void onException(Throwable e) {
-                            log.error("Failed to send sport transaction message: {}", e.getMessage(), e);
-                        }
-                    });
+    /**
+     * 寫入本地暫存（以 BinaryMessageCodec 編碼，消費端兩種格式都接受）
+     */
+    private void spool(String destination, Object message) {
+        if (!messageSpool.append(destination, binaryMessageCodec.encode(message))) {
+            log.error("Message dropped, spool unavailable: destination={}, message={}", destination, message);
+        }
+    }
+
+    private boolean resend(String destination, byte[] body) {
+        RocketMQTemplate template = destination.startsWith(RocketMQConstant.SPORT_TRANSACTION_TOPIC + ":")
+                ? sportTemplate : gamesTemplate;
+        try {
+            template.syncSend(destination, MessageBuilder.withPayload(body).build(), sendTimeoutMs);
+            return true;
         } catch (Exception e) {
-            log.error("Failed to send sport transaction message: {}", e.getMessage(), e);
+            log.debug("Spool replay paused, broker unavailable: {}", e.getMessage());
+            return false;
         }
     }
 }
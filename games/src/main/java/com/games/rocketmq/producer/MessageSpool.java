@@ -0,0 +1,383 @@
+package com.games.rocketmq.producer;
+
+import com.games.annotation.ConditionalOnRocketMQEventBus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 發送端本地暫存（broker 無法使用時）
+ *
+ * 以固定大小的記憶體映射區段檔（{起始位移}.spool）循序附加，位移在所有區段間連續遞增：
+ * - 記錄格式：長度(4) | CRC32(4) | destination 長度(2) | destination | 訊息內容
+ * - 長度 0 表示尚未寫入；-1 表示本區段結束，接續下一個區段
+ * - 重播位移寫入 checkpoint（先寫暫存檔再原子更名），已重播完的區段直接刪除
+ *
+ * 附加只是記憶體複製，不等待磁碟與 broker；行程當機後資料仍在 page cache 中，
+ * 定期 flush 降低主機斷電的遺失範圍。啟動時由 checkpoint 接續，並掃描最後一個區段，
+ * 在第一筆長度或 CRC 不正確的記錄處截斷（寫到一半的記錄）。
+ *
+ * 暫存目錄必須明確設定為重啟後仍保留的本機目錄：未設定或位於 java.io.tmpdir 之下時啟動失敗，
+ * 避免重開機清空暫存目錄而遺失尚未重播的訊息。
+ */
+@Slf4j
+@Component
+@ConditionalOnRocketMQEventBus
+public class MessageSpool {
+
+    private static final String SUFFIX = ".spool";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+    private static final int END_OF_SEGMENT = -1;
+
+    @Value("${game.mq.spool.enabled:true}")
+    private boolean enabled;
+
+    /** 暫存目錄（必填，需為重啟後保留的本機目錄） */
+    @Value("${game.mq.spool.dir:}")
+    private String dir;
+
+    /** 每個區段檔大小 */
+    @Value("${game.mq.spool.segment-bytes:16777216}")
+    private int segmentBytes;
+
+    /** 最多保留的區段數，超過時拒絕寫入 */
+    @Value("${game.mq.spool.max-segments:64}")
+    private int maxSegments;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Path directory;
+
+    /** 下一筆記錄的寫入位移 */
+    private volatile long writeOffset;
+
+    /** 下一筆待重播記錄的位移（只由重播執行緒更新） */
+    private volatile long readOffset;
+
+    private boolean dirty;
+
+    @PostConstruct
+    public synchronized void recover() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (dir == null || dir.isBlank()) {
+            throw new IllegalStateException("game.mq.spool.dir must be set to a persistent local directory "
+                    + "(or disable the spool with game.mq.spool.enabled=false)");
+        }
+        directory = Paths.get(dir).toAbsolutePath().normalize();
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        if (directory.startsWith(tmp)) {
+            throw new IllegalStateException("game.mq.spool.dir must not be under java.io.tmpdir: " + directory);
+        }
+        Files.createDirectories(directory);
+
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        long checkpointOffset = Files.exists(checkpoint)
+                ? Long.parseLong(Files.readString(checkpoint, StandardCharsets.US_ASCII).trim()) : 0L;
+
+        List<Long> bases = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> bases.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        bases.sort(null);
+        for (Long base : bases) {
+            if (base + segmentBytes <= checkpointOffset) {
+                // 已重播完，只是尚未刪除
+                Files.deleteIfExists(segmentPath(base));
+            } else {
+                segments.addLast(open(base));
+            }
+        }
+        if (segments.isEmpty()) {
+            long base = checkpointOffset - Math.floorMod(checkpointOffset, (long) segmentBytes);
+            segments.addLast(open(base));
+        }
+
+        Segment last = segments.peekLast();
+        writeOffset = last.base + scanEnd(last);
+        readOffset = Math.max(checkpointOffset, segments.peekFirst().base);
+        if (readOffset < writeOffset) {
+            log.warn("Message spool recovered with pending messages: dir={}, segments={}, pendingBytes={}",
+                    directory, segments.size(), writeOffset - readOffset);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 是否仍有尚未重播的記錄
+     */
+    public boolean hasBacklog() {
+        return enabled && readOffset < writeOffset;
+    }
+
+    /**
+     * 附加一筆記錄，暫存停用、記錄過大或超過區段上限時回傳 false
+     */
+    public synchronized boolean append(String destination, byte[] body) {
+        if (!enabled) {
+            return false;
+        }
+        byte[] target = destination.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + target.length + body.length;
+        int recordBytes = HEADER_BYTES + length;
+        // 保留區段結束標記的空間
+        if (recordBytes + 4 > segmentBytes) {
+            log.error("Message too large for spool: destination={}, bytes={}", destination, body.length);
+            return false;
+        }
+
+        Segment segment = segments.peekLast();
+        int position = (int) (writeOffset - segment.base);
+        if (position + recordBytes + 4 > segmentBytes) {
+            if (segments.size() >= maxSegments) {
+                log.error("Message spool full, dropping message: destination={}, segments={}", destination,
+                        segments.size());
+                return false;
+            }
+            segment.buffer.putInt(position, END_OF_SEGMENT);
+            try {
+                segment = open(segment.base + segmentBytes);
+            } catch (IOException e) {
+                log.error("Failed to create spool segment: {}", e.getMessage(), e);
+                return false;
+            }
+            segments.addLast(segment);
+            position = 0;
+        }
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(position + 4);
+        buffer.putInt(crc(target, body));
+        buffer.putShort((short) target.length);
+        buffer.put(target);
+        buffer.put(body);
+        // 長度最後寫入，讀取端看到長度時內容已完整
+        segment.buffer.putInt(position, length);
+
+        writeOffset = segment.base + position + recordBytes;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * 依寫入順序重播，sender 回傳 false 時停止（broker 仍無法使用），下次從同一筆開始
+     * 每批結束後更新 checkpoint 並刪除已重播完的區段；只能由單一執行緒呼叫
+     *
+     * @return 本次重播的記錄數
+     */
+    public int replay(BiPredicate<String, byte[]> sender, int limit) {
+        if (!hasBacklog()) {
+            return 0;
+        }
+        long offset = readOffset;
+        long end = writeOffset;
+        int replayed = 0;
+        try {
+            while (offset < end && replayed < limit) {
+                Segment segment = segmentAt(offset);
+                int position = (int) (offset - segment.base);
+                ByteBuffer buffer = segment.buffer.duplicate();
+                int length = buffer.getInt(position);
+                if (length == END_OF_SEGMENT || length == 0) {
+                    offset = segment.base + segmentBytes;
+                    continue;
+                }
+                buffer.position(position + 4);
+                int expectedCrc = buffer.getInt();
+                int targetLength = buffer.getShort() & 0xFFFF;
+                byte[] target = new byte[targetLength];
+                buffer.get(target);
+                byte[] body = new byte[length - 2 - targetLength];
+                buffer.get(body);
+
+                long next = offset + HEADER_BYTES + length;
+                if (crc(target, body) != expectedCrc) {
+                    log.error("Skipping corrupt spool record: offset={}", offset);
+                    offset = next;
+                    continue;
+                }
+                if (!sender.test(new String(target, StandardCharsets.UTF_8), body)) {
+                    break;
+                }
+                offset = next;
+                replayed++;
+            }
+        } finally {
+            if (offset != readOffset) {
+                readOffset = offset;
+                checkpoint(offset);
+                release(offset);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * 將映射區段寫入磁碟（只有變更過的分頁會實際寫入）
+     */
+    public void flush() {
+        List<Segment> targets;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            targets = new ArrayList<>(segments);
+        }
+        for (Segment segment : targets) {
+            segment.buffer.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close spool segment {}: {}", segment.base, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized Segment segmentAt(long offset) {
+        for (Segment segment : segments) {
+            if (offset >= segment.base && offset < segment.base + segmentBytes) {
+                return segment;
+            }
+        }
+        throw new IllegalStateException("No spool segment for offset " + offset);
+    }
+
+    /**
+     * 刪除已完全重播的區段（保留目前寫入中的區段）
+     */
+    private synchronized void release(long offset) {
+        while (segments.size() > 1 && segments.peekFirst().base + segmentBytes <= offset) {
+            Segment segment = segments.pollFirst();
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segmentPath(segment.base));
+            } catch (IOException e) {
+                log.warn("Failed to delete spool segment {}: {}", segment.base, e.getMessage());
+            }
+        }
+    }
+
+    private void checkpoint(long offset) {
+        Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+        try {
+            Files.writeString(tmp, Long.toString(offset), StandardCharsets.US_ASCII);
+            Files.move(tmp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 下次重播時再寫入；當機時最多重送上一個 checkpoint 之後的記錄
+            log.warn("Failed to write spool checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 掃描區段找出最後一筆完整記錄之後的位置
+     */
+    private int scanEnd(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length == END_OF_SEGMENT || length <= 2 || position + HEADER_BYTES + length > segmentBytes) {
+                break;
+            }
+            buffer.position(position + 4);
+            int expectedCrc = buffer.getInt();
+            int targetLength = buffer.getShort() & 0xFFFF;
+            if (2 + targetLength > length) {
+                break;
+            }
+            byte[] target = new byte[targetLength];
+            buffer.get(target);
+            byte[] body = new byte[length - 2 - targetLength];
+            buffer.get(body);
+            if (crc(target, body) != expectedCrc) {
+                log.warn("Truncating spool segment {} at torn record: position={}", segment.base, position);
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        // 清除截斷點之後的殘留內容，避免與之後寫入的記錄混淆
+        for (int i = position; i < Math.min(position + HEADER_BYTES, segmentBytes); i++) {
+            segment.buffer.put(i, (byte) 0);
+        }
+        return position;
+    }
+
+    private Segment open(long base) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            return new Segment(base, channel, buffer);
+        } catch (IOException | UncheckedIOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private static int crc(byte[] target, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(target.length >>> 8);
+        crc.update(target.length);
+        crc.update(target);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+
+        private final long base;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long base, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.games.rocketmq.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.games.entity.OutboxEvent;
+import com.games.enums.OutboxEventType;
+import com.games.event.GameEventBus;
+import com.games.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Outbox 轉送
+ *
+ * 1. 依用戶分區（與順序訊息的 hashKey 相同）逐一轉送，每個分區以各自的 advisory lock 確保同一時間只有一個節點轉送
+ *    （同一用戶的事件不會被不同節點亂序送出），不同分區可由不同節點同時轉送；
+ *    取得鎖後以 FOR UPDATE SKIP LOCKED 依寫入順序鎖定該分區的一批事件
+ * 2. 依事件類型分組，每組保持寫入順序，以該分區的 hashKey 順序批次發送到同一個 queue
+ * 3. 全部送出後在同一交易中刪除；發送失敗則回滾，事件留在表中下次重送
+ *
+ * 送出後、提交前當機會造成重送（at-least-once），消費端以 messageId 去重。
+ * in-process 模式下 publishOrderly 等到處理端成功才返回，處理失敗的事件同樣回滾並留在表中。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxRelayService {
+
+    /** 轉送節點互斥用的 advisory lock 鍵，各分區使用 RELAY_LOCK_KEY + 分區號 */
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L << 16;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final GameEventBus gameEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    /** 每批鎖定並轉送的事件數 */
+    @Value("${game.outbox.batch-size:200}")
+    private int batchSize;
+
+    /** 每個分區每次排程最多轉送的批數，積壓時連續轉送而不等待下一次排程 */
+    @Value("${game.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    /** 順序訊息的用戶分區數（hashKey 數），建議與 topic 的 queue 數相同 */
+    @Value("${game.mq.order-partitions:16}")
+    private int orderPartitions;
+
+    @Scheduled(fixedDelayString = "${game.outbox.relay-interval-ms:100}")
+    public void relay() {
+        // 各節點從隨機分區開始輪詢，減少多個節點同時競爭同一個分區
+        int offset = ThreadLocalRandom.current().nextInt(orderPartitions);
+        for (int i = 0; i < orderPartitions; i++) {
+            relayPartition((offset + i) % orderPartitions);
+        }
+    }
+
+    private void relayPartition(int partition) {
+        for (int round = 0; round < maxBatchesPerRun; round++) {
+            Integer relayed;
+            try {
+                relayed = transactionTemplate.execute(status -> relayBatch(partition));
+            } catch (Exception e) {
+                log.warn("Failed to relay outbox events, will retry: partition={}, error={}", partition, e.getMessage());
+                return;
+            }
+            if (relayed == null || relayed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private int relayBatch(int partition) {
+        if (!outboxEventRepository.tryRelayLock(RELAY_LOCK_KEY + partition)) {
+            // 其他節點正在轉送此分區
+            return 0;
+        }
+        List<OutboxEvent> events = outboxEventRepository.lockNextBatch(partition, orderPartitions, batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(events.size());
+        Map<OutboxEventType, List<OutboxEvent>> groups = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            ids.add(event.getId());
+            groups.computeIfAbsent(event.getEventType(), k -> new ArrayList<>()).add(event);
+        }
+        String hashKey = String.valueOf(partition);
+        for (List<OutboxEvent> group : groups.values()) {
+            send(group, hashKey);
+        }
+
+        outboxEventRepository.deleteByIds(ids);
+        log.debug("Outbox events relayed: partition={}, count={}, lastId={}", partition, events.size(),
+                ids.get(ids.size() - 1));
+        return events.size();
+    }
+
+    private void send(List<OutboxEvent> events, String hashKey) {
+        OutboxEventType type = events.get(0).getEventType();
+        List<Object> payloads = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            try {
+                payloads.add(objectMapper.readValue(event.getPayload(), type.getPayloadType()));
+            } catch (Exception e) {
+                // 無法解析的事件不可能送出，保留內容於日誌後略過，避免卡住後續事件
+                log.error("Dropping corrupt outbox event: id={}, type={}, payload={}",
+                        event.getId(), type, event.getPayload(), e);
+            }
+        }
+        if (!payloads.isEmpty()) {
+            gameEventBus.publishOrderly(type, hashKey, payloads);
+        }
+    }
+}
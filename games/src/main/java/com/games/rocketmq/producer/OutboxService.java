@@ -0,0 +1,90 @@
+package com.games.rocketmq.producer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.games.config.SnowflakeIdGenerator;
+import com.games.dto.SportTransactionMessage;
+import com.games.dto.TransactionMessage;
+import com.games.entity.OutboxEvent;
+import com.games.enums.OutboxEventType;
+import com.games.repository.OutboxBulkRepository;
+import com.games.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易流水 outbox 寫入
+ *
+ * 流水訊息與餘額變動寫在同一個資料庫交易中，交易提交才會由 OutboxRelayService 轉送，
+ * 回滾則一併消失。每筆訊息在寫入時取得固定的 messageId，轉送重複時消費端以此去重。
+ * 多筆流水以一個多列 INSERT 寫入（OutboxBulkRepository），ID 仍由資料庫在寫入時依序配置。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxBulkRepository outboxBulkRepository;
+    private final ObjectMapper objectMapper;
+    private final SnowflakeIdGenerator idGenerator;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueTransaction(TransactionMessage message) {
+        enqueueTransactions(List.of(message));
+    }
+
+    /**
+     * 批次寫入老虎機交易流水（依列表順序）
+     *
+     * @return 寫入的 outbox 事件，可交給 discard 撤銷
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OutboxEvent> enqueueTransactions(List<TransactionMessage> messages) {
+        List<OutboxEvent> events = new ArrayList<>(messages.size());
+        for (TransactionMessage message : messages) {
+            message.setMessageId(idGenerator.nextId());
+            events.add(toEvent(OutboxEventType.TRANSACTION, message.getUserId(), message));
+        }
+        outboxBulkRepository.insertAll(events);
+        return events;
+    }
+
+    /**
+     * 撤銷同一交易中稍早寫入的事件（例如樂觀更新衝突後需以新的餘額重建流水）
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void discard(List<OutboxEvent> events) {
+        List<Long> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        if (!ids.isEmpty()) {
+            outboxEventRepository.deleteByIds(ids);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueSportTransaction(SportTransactionMessage message) {
+        message.setMessageId(idGenerator.nextId());
+        outboxEventRepository.save(toEvent(OutboxEventType.SPORT_TRANSACTION, message.getUserId(), message));
+    }
+
+    private OutboxEvent toEvent(OutboxEventType type, Long userId, Object message) {
+        try {
+            return OutboxEvent.builder()
+                    .eventType(type)
+                    .messageKey(userId != null ? String.valueOf(userId) : null)
+                    .payload(objectMapper.writeValueAsString(message))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox message: " + type, e);
+        }
+    }
+}
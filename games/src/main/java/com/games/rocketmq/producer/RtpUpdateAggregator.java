@@ -0,0 +1,126 @@
+package com.games.rocketmq.producer;
+
+import com.games.dto.RtpUpdateMessage;
+import com.games.event.GameEventBus;
+import com.games.util.MoneyUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RTP 更新訊息的發送端彙總
+ *
+ * 旋轉結果只累加到本地 LongAdder（依 gameCode + merchantId 分組），每個視窗結束時每組只發送一則
+ * 帶有 spinCount 的彙總訊息；單組累積旋轉數達到 max-spins 時提前發送。
+ * broker 與消費端的 RTP 訊息量只取決於視窗長度與遊戲數，與旋轉數無關。
+ *
+ * 可容忍的遺失上限：節點異常終止時最多遺失一個視窗（window-ms 或 max-spins 次旋轉）的統計；
+ * 正常關閉時會先送出剩餘的彙總。enabled=false 時每次旋轉立即發送。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RtpUpdateAggregator {
+
+    private final GameEventBus gameEventBus;
+
+    private final Map<Key, Counters> counters = new ConcurrentHashMap<>();
+
+    @Value("${game.rtp.aggregate.enabled:true}")
+    private boolean enabled;
+
+    /** 單組累積旋轉數達到此值時提前發送 */
+    @Value("${game.rtp.aggregate.max-spins:1000}")
+    private long maxSpins;
+
+    /**
+     * 記錄旋轉結果（金額皆為分）
+     */
+    public void record(String gameCode, Long merchantId, long betCents, long winCents, int spinCount) {
+        if (!enabled) {
+            send(gameCode, merchantId, betCents, winCents, spinCount);
+            return;
+        }
+        Key key = new Key(gameCode, merchantId);
+        Counters counter = counters.computeIfAbsent(key, k -> new Counters());
+        counter.bet.add(betCents);
+        counter.win.add(winCents);
+        counter.count.add(spinCount);
+        if (counter.count.sum() >= maxSpins) {
+            flush(key, counter);
+        }
+    }
+
+    /**
+     * 視窗結束，送出各組彙總
+     */
+    @Scheduled(fixedDelayString = "${game.rtp.aggregate.window-ms:200}")
+    public void flush() {
+        for (Map.Entry<Key, Counters> entry : counters.entrySet()) {
+            flush(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flush(Key key, Counters counter) {
+        long count = counter.count.sumThenReset();
+        long bet = counter.bet.sumThenReset();
+        long win = counter.win.sumThenReset();
+        if (count == 0 && bet == 0 && win == 0) {
+            return;
+        }
+        send(key.gameCode, key.merchantId, bet, win, (int) Math.min(count, Integer.MAX_VALUE));
+        log.debug("RTP aggregate sent: gameCode={}, merchantId={}, spins={}", key.gameCode, key.merchantId, count);
+    }
+
+    private void send(String gameCode, Long merchantId, long betCents, long winCents, int spinCount) {
+        gameEventBus.publishRtpUpdate(new RtpUpdateMessage(MoneyUtils.fromCents(betCents),
+                MoneyUtils.fromCents(winCents), gameCode, spinCount, merchantId, System.currentTimeMillis()));
+    }
+
+    private static final class Key {
+
+        private final String gameCode;
+        private final Long merchantId;
+
+        private Key(String gameCode, Long merchantId) {
+            this.gameCode = gameCode;
+            this.merchantId = merchantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return Objects.equals(gameCode, other.gameCode) && Objects.equals(merchantId, other.merchantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(gameCode, merchantId);
+        }
+    }
+
+    private static final class Counters {
+
+        private final LongAdder bet = new LongAdder();
+        private final LongAdder win = new LongAdder();
+        private final LongAdder count = new LongAdder();
+    }
+}
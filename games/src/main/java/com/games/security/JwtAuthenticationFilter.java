@@ -37,6 +37,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             filterChain.doFilter(request, response);
             return;
         }
+        // 維運接口由 OpsApiKeyFilter 認證
+        if (path.startsWith(OpsApiKeyFilter.PATH_PREFIX)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
         if (path.startsWith("/actuator") || path.startsWith("/health") || path.startsWith("/static/")
                 || path.indexOf("/odds-format/") > 0 || path.indexOf("/sport-type/") > 0
                 || path.indexOf("/league/") > 0 || path.indexOf("/sport/event/") > 0
@@ -0,0 +1,54 @@
+package com.games.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 維運接口認證（/api/mq/dlq/**）
+ *
+ * 以 X-OPS-KEY 標頭比對 game.mq.dlq-replay.api-key，相符時授予 ROLE_OPS；
+ * 商戶的 X-API-KEY 與玩家 JWT 都不能呼叫維運接口。未設定金鑰時維運接口一律回傳 401。
+ */
+@Component
+public class OpsApiKeyFilter extends OncePerRequestFilter {
+
+    public static final String PATH_PREFIX = "/api/mq/dlq";
+    public static final String ROLE = "OPS";
+
+    private static final String HEADER = "X-OPS-KEY";
+
+    @Value("${game.mq.dlq-replay.api-key:}")
+    private String apiKey;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (apiKey != null && !apiKey.isBlank() && key != null && MessageDigest.isEqual(
+                apiKey.getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8))) {
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken("ops", null,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + ROLE)));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,369 @@
+package com.games.serializer;
+
+import com.games.dto.RtpUpdateMessage;
+import com.games.dto.SportTransactionMessage;
+import com.games.dto.TransactionMessage;
+import com.games.enums.TransactionType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * RocketMQ 訊息二進位編碼
+ *
+ * 格式：MAGIC(1) | 格式版本(1) | 類型ID(varint) | 欄位存在位元圖(varint) | 各非 null 欄位
+ * - 整數：zigzag varint
+ * - BigDecimal：scale(zigzag varint) + unscaled 補數位元組（長度前綴）
+ * - LocalDateTime：視為 UTC 的 epoch 秒（zigzag varint）+ 奈秒（varint），與發送端、消費端的系統時區無關
+ *   （格式版本 1 為系統時區 epoch 毫秒，仍可讀取）
+ * - 字串與列舉：UTF-8 長度前綴（列舉寫名稱，不受宣告順序影響）
+ *
+ * 欄位只能附加在既有欄位之後：舊版本讀取時忽略位元圖中未知的欄位與多出的位元組。
+ * JSON 以 '{' 開頭，與 MAGIC 不衝突，消費端可依首位元組判斷格式。
+ */
+@Component
+public class BinaryMessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final int FORMAT_VERSION = 2;
+
+    /** 時間以系統時區 epoch 毫秒編碼的舊格式版本 */
+    private static final int LEGACY_ZONED_MILLIS_VERSION = 1;
+
+    public static final int TYPE_TRANSACTION = 1;
+    public static final int TYPE_SPORT_TRANSACTION = 2;
+    public static final int TYPE_RTP_UPDATE = 3;
+
+    private static final ZoneId LEGACY_ZONE = ZoneId.systemDefault();
+
+    private final Map<Class<?>, Schema<?>> byClass = new HashMap<>();
+    private final Map<Integer, Schema<?>> byId = new HashMap<>();
+
+    public BinaryMessageCodec() {
+        register(TYPE_TRANSACTION, TransactionMessage.class, (m, w) -> {
+            w.presence(m.getUserId(), m.getMerchantId(), m.getType(), m.getAmount(), m.getBalanceBefore(),
+                    m.getBalanceAfter(), m.getDescription(), m.getBetId(), m.getTimestamp(), m.getMessageId());
+            w.writeLong(m.getUserId());
+            w.writeLong(m.getMerchantId());
+            w.writeEnum(m.getType());
+            w.writeDecimal(m.getAmount());
+            w.writeDecimal(m.getBalanceBefore());
+            w.writeDecimal(m.getBalanceAfter());
+            w.writeString(m.getDescription());
+            w.writeLong(m.getBetId());
+            w.writeDateTime(m.getTimestamp());
+            w.writeLong(m.getMessageId());
+        }, r -> {
+            TransactionMessage m = new TransactionMessage();
+            m.setUserId(r.readLong());
+            m.setMerchantId(r.readLong());
+            String type = r.readString();
+            m.setType(type != null ? TransactionType.valueOf(type) : null);
+            m.setAmount(r.readDecimal());
+            m.setBalanceBefore(r.readDecimal());
+            m.setBalanceAfter(r.readDecimal());
+            m.setDescription(r.readString());
+            m.setBetId(r.readLong());
+            m.setTimestamp(r.readDateTime());
+            m.setMessageId(r.readLong());
+            return m;
+        });
+
+        register(TYPE_SPORT_TRANSACTION, SportTransactionMessage.class, (m, w) -> {
+            w.presence(m.getSportBetId(), m.getUserId(), m.getMerchantId(), m.getType(), m.getAmount(),
+                    m.getBalanceBefore(), m.getBalanceAfter(), m.getDescription(), m.getTimestamp(),
+                    m.getMessageId());
+            w.writeLong(m.getSportBetId());
+            w.writeLong(m.getUserId());
+            w.writeLong(m.getMerchantId());
+            w.writeString(m.getType());
+            w.writeDecimal(m.getAmount());
+            w.writeDecimal(m.getBalanceBefore());
+            w.writeDecimal(m.getBalanceAfter());
+            w.writeString(m.getDescription());
+            w.writeDateTime(m.getTimestamp());
+            w.writeLong(m.getMessageId());
+        }, r -> {
+            SportTransactionMessage m = new SportTransactionMessage();
+            m.setSportBetId(r.readLong());
+            m.setUserId(r.readLong());
+            m.setMerchantId(r.readLong());
+            m.setType(r.readString());
+            m.setAmount(r.readDecimal());
+            m.setBalanceBefore(r.readDecimal());
+            m.setBalanceAfter(r.readDecimal());
+            m.setDescription(r.readString());
+            m.setTimestamp(r.readDateTime());
+            m.setMessageId(r.readLong());
+            return m;
+        });
+
+        register(TYPE_RTP_UPDATE, RtpUpdateMessage.class, (m, w) -> {
+            w.presence(m.getBetAmount(), m.getWinAmount(), m.getGameCode(), m.getSpinCount(), m.getMerchantId(),
+                    m.getTimestamp());
+            w.writeDecimal(m.getBetAmount());
+            w.writeDecimal(m.getWinAmount());
+            w.writeString(m.getGameCode());
+            w.writeInt(m.getSpinCount());
+            w.writeLong(m.getMerchantId());
+            w.writeLong(m.getTimestamp());
+        }, r -> {
+            RtpUpdateMessage m = new RtpUpdateMessage();
+            m.setBetAmount(r.readDecimal());
+            m.setWinAmount(r.readDecimal());
+            m.setGameCode(r.readString());
+            m.setSpinCount(r.readInt());
+            m.setMerchantId(r.readLong());
+            m.setTimestamp(r.readLong());
+            return m;
+        });
+    }
+
+    private <T> void register(int typeId, Class<T> type, BiConsumer<T, Writer> writer, Function<Reader, T> reader) {
+        Schema<T> schema = new Schema<>(typeId, writer, reader);
+        byClass.put(type, schema);
+        byId.put(typeId, schema);
+    }
+
+    public boolean supports(Class<?> type) {
+        return byClass.containsKey(type);
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Object message) {
+        Schema<Object> schema = (Schema<Object>) byClass.get(message.getClass());
+        if (schema == null) {
+            throw new IllegalArgumentException("No binary schema registered for " + message.getClass().getName());
+        }
+        Writer writer = new Writer();
+        writer.writeByte(MAGIC);
+        writer.writeByte(FORMAT_VERSION);
+        writer.writeVarLong(schema.typeId);
+        schema.writer.accept(message, writer);
+        return writer.toByteArray();
+    }
+
+    public <T> T decode(byte[] data, Class<T> type) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary message payload");
+        }
+        Reader reader = new Reader(data);
+        reader.pos = 1;
+        int version = reader.readByte();
+        reader.version = version;
+        if (version != FORMAT_VERSION && version != LEGACY_ZONED_MILLIS_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary message format version: " + version);
+        }
+        int typeId = (int) reader.readVarLong();
+        Schema<?> schema = byId.get(typeId);
+        if (schema == null || schema != byClass.get(type)) {
+            throw new IllegalArgumentException("Binary message type " + typeId + " does not match " + type.getName());
+        }
+        reader.bitmap = reader.readVarLong();
+        return type.cast(schema.reader.apply(reader));
+    }
+
+    private static final class Schema<T> {
+
+        private final int typeId;
+        private final BiConsumer<T, Writer> writer;
+        private final Function<Reader, T> reader;
+
+        private Schema(int typeId, BiConsumer<T, Writer> writer, Function<Reader, T> reader) {
+            this.typeId = typeId;
+            this.writer = writer;
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * 寫入端：先以 presence 寫出位元圖，各 write 方法略過 null
+     */
+    static final class Writer {
+
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        void presence(Object... values) {
+            long bitmap = 0L;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    bitmap |= 1L << i;
+                }
+            }
+            writeVarLong(bitmap);
+        }
+
+        void writeLong(Long value) {
+            if (value != null) {
+                writeVarLong(zigzag(value));
+            }
+        }
+
+        void writeInt(Integer value) {
+            if (value != null) {
+                writeVarLong(zigzag(value));
+            }
+        }
+
+        void writeString(String value) {
+            if (value != null) {
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void writeEnum(Enum<?> value) {
+            if (value != null) {
+                writeString(value.name());
+            }
+        }
+
+        void writeDecimal(BigDecimal value) {
+            if (value != null) {
+                writeVarLong(zigzag(value.scale()));
+                writeBytes(value.unscaledValue().toByteArray());
+            }
+        }
+
+        void writeDateTime(LocalDateTime value) {
+            if (value != null) {
+                writeVarLong(zigzag(value.toEpochSecond(ZoneOffset.UTC)));
+                writeVarLong(value.getNano());
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * 讀取端：依欄位順序檢查位元圖，欄位不存在時回傳 null
+     */
+    static final class Reader {
+
+        private final byte[] data;
+        private int pos;
+        private long bitmap;
+        private int field;
+        private int version = FORMAT_VERSION;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        Long readLong() {
+            return next() ? unzigzag(readVarLong()) : null;
+        }
+
+        Integer readInt() {
+            return next() ? Math.toIntExact(unzigzag(readVarLong())) : null;
+        }
+
+        String readString() {
+            return next() ? new String(readBytes(), StandardCharsets.UTF_8) : null;
+        }
+
+        BigDecimal readDecimal() {
+            if (!next()) {
+                return null;
+            }
+            int scale = Math.toIntExact(unzigzag(readVarLong()));
+            return new BigDecimal(new BigInteger(readBytes()), scale);
+        }
+
+        LocalDateTime readDateTime() {
+            if (!next()) {
+                return null;
+            }
+            if (version == LEGACY_ZONED_MILLIS_VERSION) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(unzigzag(readVarLong())), LEGACY_ZONE);
+            }
+            long epochSecond = unzigzag(readVarLong());
+            return LocalDateTime.ofEpochSecond(epochSecond, Math.toIntExact(readVarLong()), ZoneOffset.UTC);
+        }
+
+        int readByte() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("Truncated binary message");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long result = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary message");
+        }
+
+        private byte[] readBytes() {
+            int length = Math.toIntExact(readVarLong());
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("Truncated binary message");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        private boolean next() {
+            return (bitmap & (1L << field++)) != 0;
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.games.serializer;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+
+/**
+ * 以 BinaryMessageCodec 編碼已註冊的訊息類型，其餘類型交由後續的轉換器（JSON）處理
+ */
+public class BinaryMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType MIME_TYPE = new MimeType("application", "x-games-binary");
+
+    private final BinaryMessageCodec codec;
+
+    public BinaryMessageConverter(BinaryMessageCodec codec) {
+        super(MIME_TYPE);
+        this.codec = codec;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return codec.supports(clazz);
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        Object payload = message.getPayload();
+        if (payload instanceof byte[] bytes && BinaryMessageCodec.isBinary(bytes)) {
+            return codec.decode(bytes, targetClass);
+        }
+        // 非二進位格式（JSON），交由下一個轉換器
+        return null;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return codec.encode(payload);
+    }
+}
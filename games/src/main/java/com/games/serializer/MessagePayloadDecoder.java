@@ -0,0 +1,30 @@
+package com.games.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 消費端訊息解碼：首位元組為 BinaryMessageCodec.MAGIC 時以二進位解碼，否則視為 JSON
+ * 切換編碼期間（game.mq.codec）兩種格式的訊息可同時存在於 broker 中
+ */
+@Component
+@RequiredArgsConstructor
+public class MessagePayloadDecoder {
+
+    private final BinaryMessageCodec binaryMessageCodec;
+    private final ObjectMapper objectMapper;
+
+    public <T> T decode(byte[] body, Class<T> type) {
+        if (BinaryMessageCodec.isBinary(body)) {
+            return binaryMessageCodec.decode(body, type);
+        }
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to decode message payload as " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.games.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.games.cache.GameConfigRegistry;
 import com.games.config.GameProperties;
 import com.games.constant.RedisConstant;
+import com.games.dto.RtpCalculationResult;
 import com.games.entity.GameSetting;
+import com.games.repository.GameSettingHistoryRepository;
 import com.games.repository.GameSettingRepository;
 import com.games.repository.OddsFormatRepository;
+import com.games.slot.SlotEngine;
 import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,14 +34,27 @@ import java.util.stream.IntStream;
 @Slf4j
 public class GameSettingService {
 
+    /** 理論 RTP 與 rtp_set 允許的誤差（百分點） */
+    @Value("${game.rtp.validation.tolerance:0.5}")
+    private double rtpTolerance;
+
+    /** 誤差超出範圍時是否拒絕載入該遊戲配置（false 則僅標記並記錄警告） */
+    @Value("${game.rtp.validation.reject-mismatch:false}")
+    private boolean rejectRtpMismatch;
+
     private final ObjectMapper objectMapper;
     private final GameSettingRepository gameSettingRepository;
+    private final GameSettingHistoryRepository gameSettingHistoryRepository;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final GameConfigRegistry gameConfigRegistry;
+    private final RtpCalculatorService rtpCalculatorService;
 
     public void refreshGameSettings() {
         log.info("Refreshing game settings...");
         List<GameSetting> settings = gameSettingRepository.findAll();
         Map<String, String> redisMap = new LinkedHashMap<>();
+        Map<String, GameProperties> propertiesMap = new LinkedHashMap<>();
 
         for (GameSetting setting : settings) {
             String gameCode = setting.getGameCode();
@@ -44,6 +64,7 @@ public class GameSettingService {
                 properties.setMaxBet(setting.getMaxBet());
                 properties.setTargetRtp(setting.getRtpSet());
                 properties.setTwoMatchMultiplier(setting.getTwoMatchMultiplier());
+                properties.setVersion(setting.getVersion());
 
                 String gameSetting = setting.getGameSettings();
                 if (StringUtils.isNotBlank(gameSetting)) {
@@ -78,10 +99,39 @@ public class GameSettingService {
                         properties.setPayoutMultipliers(payoutMultipliers);
                         properties.setImage(isImageNode.isBoolean());
                     }
+
+                    // 引擎設定（選填，預設 CLASSIC）
+                    JsonNode engineNode = root.get("engine");
+                    if (engineNode != null && engineNode.isTextual()) {
+                        properties.setEngine(engineNode.asText());
+                    }
+                    if (SlotEngine.REEL_STRIP.equalsIgnoreCase(properties.getEngine())) {
+                        readReelStripSettings(root, properties);
+                    }
+
+                    // 彩金設定（選填）
+                    JsonNode jackpotRateNode = root.get("jackpotRate");
+                    JsonNode jackpotProbabilityNode = root.get("jackpotTriggerProbability");
+                    JsonNode jackpotSeedNode = root.get("jackpotSeed");
+                    if (jackpotRateNode != null && jackpotRateNode.isNumber()) {
+                        properties.setJackpotRate(jackpotRateNode.asDouble());
+                    }
+                    if (jackpotProbabilityNode != null && jackpotProbabilityNode.isNumber()) {
+                        properties.setJackpotTriggerProbability(jackpotProbabilityNode.asDouble());
+                    }
+                    if (jackpotSeedNode != null && jackpotSeedNode.isNumber()) {
+                        properties.setJackpotSeed(jackpotSeedNode.decimalValue());
+                    }
+                }
+
+                if (!validateRtp(gameCode, properties)) {
+                    continue;
                 }
 
                 String json = objectMapper.writeValueAsString(properties);
                 redisMap.put(gameCode, json);
+                propertiesMap.put(gameCode, properties);
+                rememberVersion(gameCode, properties.getVersion(), json);
             } catch (JsonProcessingException e) {
                 log.error("Failed to parse/serialize game setting for gameCode={}", gameCode, e);
             } catch (Exception e) {
@@ -91,9 +141,117 @@ public class GameSettingService {
 
         try {
             redisTemplate.opsForHash().putAll(RedisConstant.GAME_SETTING_ALL, redisMap);
+            // 移除被拒絕、解析失敗或已刪除的遊戲，其他節點重新載入時才不會沿用舊配置
+            Object[] staleGameCodes = redisTemplate.opsForHash().keys(RedisConstant.GAME_SETTING_ALL).stream()
+                    .filter(field -> !redisMap.containsKey(String.valueOf(field)))
+                    .toArray();
+            if (staleGameCodes.length > 0) {
+                redisTemplate.opsForHash().delete(RedisConstant.GAME_SETTING_ALL, staleGameCodes);
+                log.warn("Removed stale game settings from Redis: {}", Arrays.toString(staleGameCodes));
+            }
             log.info("Loaded {} game settings into Redis hash 'game_setting_all'.", redisMap.size());
         } catch (Exception e) {
             log.error("Failed to write game settings to Redis", e);
+            return;
+        }
+
+        // 更新本地註冊表，並通知其他節點重新載入
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(RedisConstant.GAME_SETTING_VERSION);
+            long newVersion = version != null ? version : 0L;
+            gameConfigRegistry.replaceAll(propertiesMap, newVersion);
+            stringRedisTemplate.convertAndSend(RedisConstant.GAME_SETTING_CHANNEL, String.valueOf(newVersion));
+        } catch (Exception e) {
+            log.error("Failed to publish game setting change", e);
+        }
+    }
+
+    /**
+     * 保存配置版本快照，重啟後仍可依 bets.config_version 重播舊投注
+     */
+    private void rememberVersion(String gameCode, Long version, String json) {
+        if (version == null) {
+            return;
+        }
+        try {
+            gameSettingHistoryRepository.insertIfAbsent(gameCode, version, json);
+        } catch (Exception e) {
+            log.error("Failed to save game setting history for gameCode={}, version={}", gameCode, version, e);
+        }
+    }
+
+    /**
+     * 以理論計算驗證配置的 RTP
+     * 計算結果寫入 theoreticalRtp 供 RTP 統計參考；誤差超出容許範圍時依設定拒絕或標記
+     *
+     * @return false 表示配置被拒絕，不應載入
+     */
+    private boolean validateRtp(String gameCode, GameProperties properties) {
+        boolean reelStrip = SlotEngine.REEL_STRIP.equalsIgnoreCase(properties.getEngine());
+        if (!reelStrip && (properties.getSymbolWeights() == null || properties.getSymbolWeights().isEmpty())) {
+            return true;
+        }
+
+        RtpCalculationResult result;
+        try {
+            result = rtpCalculatorService.calculate(properties);
+        } catch (Exception e) {
+            log.warn("Failed to calculate theoretical RTP for gameCode={}: {}", gameCode, e.getMessage());
+            return true;
+        }
+        properties.setTheoreticalRtp(result.getRtp());
+
+        Double targetRtp = properties.getTargetRtp();
+        if (targetRtp == null) {
+            return true;
+        }
+
+        // 模擬估算的結果另加上 95% 信賴區間半寬，避免抽樣誤差造成誤判
+        double tolerance = result.isEstimated() ? rtpTolerance + result.getRtpConfidence95() : rtpTolerance;
+        double difference = result.getRtp() - targetRtp;
+        if (Math.abs(difference) <= tolerance) {
+            log.info("Game {} theoretical RTP {} matches rtp_set {}", gameCode, result.getRtp(), targetRtp);
+            return true;
+        }
+
+        if (rejectRtpMismatch) {
+            log.error("Rejecting game setting {}: theoretical RTP {} differs from rtp_set {} by {}",
+                    gameCode, result.getRtp(), targetRtp, difference);
+            return false;
+        }
+        log.warn("Game setting {} flagged: theoretical RTP {} differs from rtp_set {} by {}",
+                gameCode, result.getRtp(), targetRtp, difference);
+        return true;
+    }
+
+    /**
+     * 讀取 REEL_STRIP 引擎設定：rows、reelStrips、paylines、waysToWin、paytable、wildSymbol
+     */
+    private void readReelStripSettings(JsonNode root, GameProperties properties) {
+        JsonNode rowsNode = root.get("rows");
+        if (rowsNode != null && rowsNode.isInt()) {
+            properties.setRows(rowsNode.asInt());
+        }
+        JsonNode waysNode = root.get("waysToWin");
+        properties.setWaysToWin(waysNode != null && waysNode.asBoolean(false));
+        JsonNode wildNode = root.get("wildSymbol");
+        if (wildNode != null && wildNode.isTextual()) {
+            properties.setWildSymbol(wildNode.asText());
+        }
+        JsonNode stripsNode = root.get("reelStrips");
+        if (stripsNode != null && stripsNode.isArray()) {
+            properties.setReelStrips(objectMapper.convertValue(stripsNode,
+                    new TypeReference<List<List<String>>>() {}));
+        }
+        JsonNode paylinesNode = root.get("paylines");
+        if (paylinesNode != null && paylinesNode.isArray()) {
+            properties.setPaylines(objectMapper.convertValue(paylinesNode,
+                    new TypeReference<List<List<Integer>>>() {}));
+        }
+        JsonNode paytableNode = root.get("paytable");
+        if (paytableNode != null && paytableNode.isObject()) {
+            properties.setPaytable(objectMapper.convertValue(paytableNode,
+                    new TypeReference<LinkedHashMap<String, List<Double>>>() {}));
         }
     }
 }
@@ -5,11 +5,13 @@ import com.games.constant.RedisConstant;
 import com.games.dto.TransactionMessage;
 import com.games.entity.Bet;
 import com.games.entity.Merchant;
+import com.games.entity.OutboxEvent;
 import com.games.entity.User;
 import com.games.enums.TransactionType;
 import com.games.lock.RedisLock;
 import com.games.repository.UserRepository;
-import com.games.rocketmq.producer.MessageProducerService;
+import com.games.rocketmq.producer.OutboxService;
+import com.games.util.MoneyUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -18,6 +20,8 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -26,8 +30,10 @@ import java.util.UUID;
 public class GamesWalletService {
 
     private final UserRepository userRepository;
-    private final MessageProducerService messageProducerService;
+    private final OutboxService outboxService;
     private final RedisLock redisLock;
+    private final RedisWalletService redisWalletService;
+    private final WalletLockService walletLockService;
 
     /**
      * 扣除余额
@@ -57,16 +63,133 @@ public class GamesWalletService {
      */
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.MANDATORY)
     public void addBalance(Merchant merchant, User user, BigDecimal amount, Bet bet, String description) {
+        addBalance(merchant, user, amount, bet, description, TransactionType.WIN);
+    }
+
+    /**
+     * 增加余额（指定交易類型，例如彩金派彩）
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.MANDATORY)
+    public void addBalance(Merchant merchant, User user, BigDecimal amount, Bet bet, String description,
+                           TransactionType type) {
         BigDecimal balanceBefore = user.getGameBalance();
         BigDecimal newBalance = balanceBefore.add(amount);
 
         user.setGameBalance(newBalance);
         userRepository.save(user);
 
-        createTransaction(user, merchant, TransactionType.WIN, amount, balanceBefore, newBalance,
+        createTransaction(user, merchant, type, amount, balanceBefore, newBalance,
                 description, bet);
     }
 
+    /**
+     * 結算單次旋轉（金額皆以分計算）
+     * 扣注、派彩與彩金一次套用，餘額只更新一次，交易流水批次寫入 outbox
+     * 注意：此方法应该在已有事务中调用
+     * DB 模式下传入的 user 对象应该已经通过悲观锁获取；Redis 錢包模式以 Lua 原子扣款；
+     * SPIN 使用樂觀更新時先寫入流水，最後才以條件式 UPDATE 扣款（列鎖只持有到提交），不修改受管理的 user
+     *
+     * @return 結算後餘額（分）
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.MANDATORY)
+    public long settleSpin(Merchant merchant, User user, long betCents, long winCents, long jackpotCents, Bet bet) {
+        if (walletLockService.isOptimistic(WalletLockService.Operation.SPIN)) {
+            WalletLockService.Result result = walletLockService.applyLast(WalletLockService.Operation.SPIN,
+                    user.getId(), WalletLockService.Balance.GAME,
+                    before -> enqueueSpin(merchant, user, before, betCents, winCents, jackpotCents, bet),
+                    outboxService::discard,
+                    -betCents, winCents, jackpotCents);
+            if (result.isInsufficient()) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            log.debug("Spin settled for user: {}", user.getId());
+            return result.getBalanceAfter();
+        }
+
+        long balanceBefore;
+        if (redisWalletService.isEnabled()) {
+            RedisWalletService.Change change = redisWalletService.apply(user.getId(), RedisWalletService.FIELD_GAME,
+                    -betCents, winCents, jackpotCents);
+            if (change.isInsufficient()) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            balanceBefore = change.getBalanceBefore();
+        } else {
+            balanceBefore = MoneyUtils.toCents(user.getGameBalance());
+        }
+        if (balanceBefore < betCents) {
+            throw new RuntimeException("Insufficient balance");
+        }
+        long afterJackpot = balanceBefore - betCents + winCents + jackpotCents;
+
+        if (walletLockService.needsRowLock(WalletLockService.Operation.SPIN)) {
+            user.setGameBalance(MoneyUtils.fromCents(afterJackpot));
+            userRepository.save(user);
+        }
+
+        List<OutboxEvent> events = enqueueSpin(merchant, user, balanceBefore, betCents, winCents, jackpotCents, bet);
+        log.debug("Spin settled for user: {}, transactions: {}", user.getId(), events.size());
+        return afterJackpot;
+    }
+
+    /**
+     * 依套用前餘額建立單次旋轉的交易流水（投注、派彩、彩金）並寫入 outbox
+     */
+    private List<OutboxEvent> enqueueSpin(Merchant merchant, User user, long balanceBefore, long betCents,
+                                          long winCents, long jackpotCents, Bet bet) {
+        long afterBet = balanceBefore - betCents;
+        long afterWin = afterBet + winCents;
+        long afterJackpot = afterWin + jackpotCents;
+
+        List<TransactionMessage> messages = new ArrayList<>(3);
+        messages.add(buildTransactionMessage(user, merchant, TransactionType.BET, MoneyUtils.fromCents(betCents),
+                MoneyUtils.fromCents(balanceBefore), MoneyUtils.fromCents(afterBet), "Slot game bet", bet));
+        if (winCents > 0) {
+            messages.add(buildTransactionMessage(user, merchant, TransactionType.WIN, MoneyUtils.fromCents(winCents),
+                    MoneyUtils.fromCents(afterBet), MoneyUtils.fromCents(afterWin), "Slot game win", bet));
+        }
+        if (jackpotCents > 0) {
+            messages.add(buildTransactionMessage(user, merchant, TransactionType.JACKPOT,
+                    MoneyUtils.fromCents(jackpotCents), MoneyUtils.fromCents(afterWin),
+                    MoneyUtils.fromCents(afterJackpot), "Slot game jackpot", bet));
+        }
+        return outboxService.enqueueTransactions(messages);
+    }
+
+    /**
+     * 批次套用餘額變動
+     * 整批旋轉只更新一次餘額，交易流水批次寫入 outbox
+     * 注意：此方法应该在已有事务中调用
+     * DB 模式下传入的 user 对象应该已经通过悲观锁获取；Redis 錢包模式下餘額必須仍為 balanceBefore，
+     * 否則代表期間有其他變動，整批拒絕以免流水的前後餘額錯誤；BATCH_SPIN 使用樂觀更新時同樣比對餘額
+     */
+    @Transactional(propagation = org.springframework.transaction.annotation.Propagation.MANDATORY)
+    public void applyBatch(User user, BigDecimal balanceBefore, BigDecimal newBalance,
+                           List<TransactionMessage> messages) {
+        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
+            throw new RuntimeException("Insufficient balance");
+        }
+
+        if (redisWalletService.isEnabled()) {
+            long before = MoneyUtils.toCents(balanceBefore);
+            RedisWalletService.Change change = redisWalletService.applyIfBalance(user.getId(),
+                    RedisWalletService.FIELD_GAME, before, MoneyUtils.toCents(newBalance) - before);
+            if (!change.isApplied()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Balance changed during batch spin");
+            }
+        } else if (walletLockService.isOptimistic(WalletLockService.Operation.BATCH_SPIN)) {
+            long before = MoneyUtils.toCents(balanceBefore);
+            walletLockService.applyIfBalance(WalletLockService.Operation.BATCH_SPIN, user.getId(),
+                    WalletLockService.Balance.GAME, before, MoneyUtils.toCents(newBalance) - before);
+        } else {
+            user.setGameBalance(newBalance);
+            userRepository.save(user);
+        }
+
+        outboxService.enqueueTransactions(messages);
+        log.debug("Transaction message batch queued for user: {}, size: {}", user.getId(), messages.size());
+    }
+
     @Transactional
     public User deposit(Merchant merchant, User user, BigDecimal amount) {
         final Long userId = user.getId();  // 保存到 final 变量
@@ -85,8 +208,29 @@ public class GamesWalletService {
         }
 
         try {
+            if (redisWalletService.isEnabled()) {
+                RedisWalletService.Change change = redisWalletService.apply(userId, RedisWalletService.FIELD_GAME,
+                        MoneyUtils.toCents(amount));
+                User updated = withGameBalance(user, MoneyUtils.fromCents(change.getBalanceAfter()));
+                createTransaction(updated, merchant, TransactionType.DEPOSIT, amount,
+                        MoneyUtils.fromCents(change.getBalanceBefore()), updated.getGameBalance(),
+                        "Deposit to wallet", null);
+                return updated;
+            }
+
+            if (walletLockService.isOptimistic(WalletLockService.Operation.GAME_DEPOSIT)) {
+                WalletLockService.Result result = walletLockService.apply(WalletLockService.Operation.GAME_DEPOSIT,
+                        userId, WalletLockService.Balance.GAME, MoneyUtils.toCents(amount));
+                User updated = withGameBalance(user, MoneyUtils.fromCents(result.getBalanceAfter()));
+                createTransaction(updated, merchant, TransactionType.DEPOSIT, amount,
+                        MoneyUtils.fromCents(result.getBalanceBefore()), updated.getGameBalance(),
+                        "Deposit to wallet", null);
+                return updated;
+            }
+
             // 使用悲观锁重新查询用户，确保数据库层面的并发安全
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.GAME_DEPOSIT,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
             BigDecimal balanceBefore = lockedUser.getGameBalance();
@@ -120,8 +264,35 @@ public class GamesWalletService {
         }
 
         try {
+            if (redisWalletService.isEnabled()) {
+                RedisWalletService.Change change = redisWalletService.withdrawAll(userId,
+                        RedisWalletService.FIELD_GAME);
+                if (change == null) {
+                    throw new RuntimeException("No balance to withdraw");
+                }
+                BigDecimal withdrawAmount = MoneyUtils.fromCents(change.getBalanceBefore());
+                User updated = withGameBalance(user, BigDecimal.ZERO);
+                createTransaction(updated, merchant, TransactionType.WITHDRAW, withdrawAmount, withdrawAmount,
+                        BigDecimal.ZERO, "Withdraw all balance", null);
+                return updated;
+            }
+
+            if (walletLockService.isOptimistic(WalletLockService.Operation.GAME_WITHDRAW)) {
+                WalletLockService.Result result = walletLockService.withdrawAll(
+                        WalletLockService.Operation.GAME_WITHDRAW, userId, WalletLockService.Balance.GAME);
+                if (result == null) {
+                    throw new RuntimeException("No balance to withdraw");
+                }
+                BigDecimal withdrawAmount = MoneyUtils.fromCents(result.getBalanceBefore());
+                User updated = withGameBalance(user, BigDecimal.ZERO);
+                createTransaction(updated, merchant, TransactionType.WITHDRAW, withdrawAmount, withdrawAmount,
+                        BigDecimal.ZERO, "Withdraw all balance", null);
+                return updated;
+            }
+
             // 使用悲观锁重新查询用户，确保数据库层面的并发安全
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.GAME_WITHDRAW,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
             BigDecimal balanceBefore = lockedUser.getGameBalance();
@@ -142,11 +313,33 @@ public class GamesWalletService {
         return user;
     }
 
+    /**
+     * Redis 錢包模式與樂觀更新下不修改受管理的 User（避免提交時覆寫 users 餘額），回傳帶有新餘額的副本
+     */
+    private static User withGameBalance(User user, BigDecimal gameBalance) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setMerchant(user.getMerchant());
+        copy.setUsername(user.getUsername());
+        copy.setGameBalance(gameBalance);
+        copy.setSportBalance(user.getSportBalance());
+        return copy;
+    }
+
     public void createTransaction(User user, Merchant merchant, TransactionType type, BigDecimal amount,
                                   BigDecimal balanceBefore, BigDecimal balanceAfter,
                                   String description, Bet bet) {
-        // 使用异步消息记录交易，提高性能
-        TransactionMessage message = new TransactionMessage(
+        // 流水寫入 outbox，與餘額變動同一交易提交後再非同步送出
+        TransactionMessage message = buildTransactionMessage(user, merchant, type, amount, balanceBefore,
+                balanceAfter, description, bet);
+        outboxService.enqueueTransaction(message);
+        log.debug("Transaction message queued for user: {}, type: {}", user.getId(), type);
+    }
+
+    public TransactionMessage buildTransactionMessage(User user, Merchant merchant, TransactionType type,
+                                                      BigDecimal amount, BigDecimal balanceBefore,
+                                                      BigDecimal balanceAfter, String description, Bet bet) {
+        return new TransactionMessage(
                 user.getId(),
                 merchant.getId(),
                 type,
@@ -155,9 +348,8 @@ public class GamesWalletService {
                 balanceAfter,
                 description,
                 bet != null ? bet.getId() : null,
-                java.time.LocalDateTime.now()
+                java.time.LocalDateTime.now(),
+                null
         );
-        messageProducerService.sendTransactionMessage(message);
-        log.debug("Transaction message sent for user: {}, type: {}", user.getId(), type);
     }
 }
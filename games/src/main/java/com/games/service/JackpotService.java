@@ -0,0 +1,366 @@
+package com.games.service;
+
+import com.games.cache.GameConfigRegistry;
+import com.games.constant.RedisConstant;
+import com.games.entity.JackpotPool;
+import com.games.repository.BetRepository;
+import com.games.repository.JackpotPoolRepository;
+import com.games.slot.CompiledGameConfig;
+import com.games.util.MoneyUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+/**
+ * 累積彩金池
+ *
+ * 1. 提撥：每次旋轉只寫入本地 LongAdder（最小單位整數），不取鎖、不寫資料庫
+ * 2. 對帳：定時將各節點的提撥量併入 Redis jackpot:pool:{gameCode}；key 不存在時
+ *    在同一個 Lua 腳本中先以資料庫快照（或池底）建立，不會從 0 開始累加
+ * 3. 快照：定時將 Redis 池額同步到 jackpot_pools，Redis 遺失時由資料庫還原
+ * 4. 派彩：觸發時以 Lua 腳本原子地取出池額並重設為池底，只有一位得主；
+ *    同一腳本在 jackpot:claims:{gameCode} 記下「投注ID → 派出金額」，交易提交後刪除，
+ *    回滾時加回池中；節點在提交前異常終止時，由定時檢查依投注是否已寫入資料庫決定結案或加回
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JackpotService {
+
+    /**
+     * KEYS[1] 池 key；ARGV[1] key 不存在時的初始池額；ARGV[2] 提撥量
+     */
+    private static final String CONTRIBUTE_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[1]) end " +
+                    "return redis.call('INCRBY', KEYS[1], ARGV[2])";
+
+    /**
+     * KEYS[1] 池 key；KEYS[2] 未完成派彩 hash
+     * ARGV[1] 池底；ARGV[2] 派彩最小單位；ARGV[3] key 不存在時的初始池額；ARGV[4] 本節點未對帳的提撥量；
+     * ARGV[5] 投注ID；ARGV[6] 派彩時間（毫秒）
+     * 派出可整除最小單位的部分，零頭留在池中，回傳派彩金額
+     */
+    private static final String CLAIM_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[3]) end " +
+                    "local pool = redis.call('INCRBY', KEYS[1], ARGV[4]) " +
+                    "local unit = tonumber(ARGV[2]) " +
+                    "local payout = pool - (pool % unit) " +
+                    "if payout <= 0 then return 0 end " +
+                    "local seed = tonumber(ARGV[1]) " +
+                    "redis.call('SET', KEYS[1], string.format('%d', seed + (pool - payout))) " +
+                    "redis.call('HSET', KEYS[2], ARGV[5], string.format('%d:%s', payout - seed, ARGV[6])) " +
+                    "return payout";
+
+    /**
+     * KEYS[1] 池 key；KEYS[2] 未完成派彩 hash；ARGV[1] 投注ID；ARGV[2] key 不存在時的初始池額
+     * 只有仍未結案的派彩會加回，與定時檢查同時執行也不會重複加回
+     */
+    private static final String RESTORE_SCRIPT =
+            "local claim = redis.call('HGET', KEYS[2], ARGV[1]) " +
+                    "if not claim then return 0 end " +
+                    "redis.call('HDEL', KEYS[2], ARGV[1]) " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[2]) end " +
+                    "redis.call('INCRBY', KEYS[1], string.sub(claim, 1, string.find(claim, ':') - 1)) " +
+                    "return 1";
+
+    private static final DefaultRedisScript<Long> CONTRIBUTE = new DefaultRedisScript<>(CONTRIBUTE_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> CLAIM = new DefaultRedisScript<>(CLAIM_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RESTORE = new DefaultRedisScript<>(RESTORE_SCRIPT, Long.class);
+
+    /** 派彩金額為小數 2 位，以最小單位表示 */
+    private static final long PAYOUT_UNIT = BigDecimal.ONE.movePointLeft(2)
+            .movePointRight(RtpCounterService.AMOUNT_SCALE).longValueExact();
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final JackpotPoolRepository jackpotPoolRepository;
+    private final BetRepository betRepository;
+    private final GameConfigRegistry gameConfigRegistry;
+
+    /** 派彩超過此時間仍未結案即視為交易已中斷 */
+    @Value("${game.jackpot.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    private final Map<String, LongAdder> contributions = new ConcurrentHashMap<>();
+
+    /** 分 × ppm 換算為池最小單位的除數 */
+    private static final long CONTRIBUTION_DIVISOR = BigDecimal.ONE.movePointRight(2 + 6)
+            .movePointLeft(RtpCounterService.AMOUNT_SCALE).longValueExact();
+
+    /**
+     * 提撥（熱路徑，只寫本地計數器）
+     * 投注額（分）× 提撥比例（ppm），四捨五入到池最小單位，全程整數運算
+     */
+    public void contribute(CompiledGameConfig gameConfig, long betCents) {
+        if (!gameConfig.isJackpotEnabled()) {
+            return;
+        }
+        long product = Math.multiplyExact(betCents, gameConfig.getJackpotRatePpm());
+        long amount = (product + CONTRIBUTION_DIVISOR / 2) / CONTRIBUTION_DIVISOR;
+        contributions.computeIfAbsent(gameConfig.getGameCode(), k -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * 判定是否觸發彩金
+     * 隨機數取自該注的 SpinRandom，重播時可重現
+     */
+    public boolean isTriggered(CompiledGameConfig gameConfig, RandomGenerator random) {
+        return gameConfig.isJackpotEnabled() && random.nextDouble() < gameConfig.getJackpotTriggerProbability();
+    }
+
+    /**
+     * 原子地領取彩金池
+     * 需在寫入該注的交易中呼叫：提交後結案，回滾時自動把彩金加回池中；
+     * 提交前節點異常終止時，由 recoverClaims 依投注是否存在補償
+     *
+     * @param betId 該注的投注ID，作為派彩的識別
+     * @return 派彩金額（分），未派彩時為 0
+     */
+    public long claim(CompiledGameConfig gameConfig, Long userId, Long betId) {
+        String gameCode = gameConfig.getGameCode();
+
+        // 本節點尚未對帳的提撥在同一腳本中併入
+        LongAdder pending = contributions.get(gameCode);
+        long delta = pending != null ? pending.sumThenReset() : 0L;
+
+        long seed = RtpCounterService.toMinorUnits(gameConfig.getJackpotSeed());
+        Long payout;
+        try {
+            payout = stringRedisTemplate.execute(CLAIM, List.of(poolKey(gameCode), claimsKey(gameCode)),
+                    String.valueOf(seed), String.valueOf(PAYOUT_UNIT), String.valueOf(restorePoint(gameCode)),
+                    String.valueOf(delta), String.valueOf(betId), String.valueOf(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            if (delta != 0) {
+                contributions.computeIfAbsent(gameCode, k -> new LongAdder()).add(delta);
+            }
+            throw e;
+        }
+        if (payout == null || payout <= 0) {
+            return 0L;
+        }
+
+        // payout 必為 PAYOUT_UNIT 的整數倍
+        long cents = payout / PAYOUT_UNIT;
+        BigDecimal amount = MoneyUtils.fromCents(cents);
+        recordWinner(gameCode, userId, amount);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        complete(gameCode, betId);
+                    } else {
+                        restore(gameCode, betId);
+                    }
+                }
+            });
+        } else {
+            complete(gameCode, betId);
+        }
+
+        log.info("Jackpot claimed: gameCode={}, userId={}, betId={}, amount={}", gameCode, userId, betId, amount);
+        return cents;
+    }
+
+    /**
+     * 目前彩金池金額（含本節點尚未對帳的提撥）
+     */
+    public BigDecimal getPoolAmount(String gameCode) {
+        String value = stringRedisTemplate.opsForValue().get(poolKey(gameCode));
+        long pool = value != null ? Long.parseLong(value) : 0L;
+        LongAdder pending = contributions.get(gameCode);
+        if (pending != null) {
+            pool += pending.sum();
+        }
+        return RtpCounterService.fromMinorUnits(pool).setScale(2, RoundingMode.DOWN);
+    }
+
+    /**
+     * 定時將本地提撥併入 Redis
+     */
+    @Scheduled(fixedDelayString = "${game.jackpot.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        Map<String, Long> deltas = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : contributions.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta != 0) {
+                deltas.put(entry.getKey(), delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            String gameCode = entry.getKey();
+            try {
+                stringRedisTemplate.execute(CONTRIBUTE, List.of(poolKey(gameCode)),
+                        String.valueOf(restorePoint(gameCode)), String.valueOf(entry.getValue()));
+            } catch (Exception e) {
+                log.warn("Failed to reconcile jackpot contributions, will retry: gameCode={}, error={}",
+                        gameCode, e.getMessage());
+                contributions.computeIfAbsent(gameCode, k -> new LongAdder()).add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 定時處理逾時未結案的派彩：投注已寫入資料庫表示交易已提交，直接結案；否則把彩金加回池中
+     */
+    @Scheduled(fixedDelayString = "${game.jackpot.claim-recover-interval-ms:30000}")
+    public void recoverClaims() {
+        long deadline = System.currentTimeMillis() - claimTimeoutMs;
+        for (String gameCode : gameConfigRegistry.gameCodes()) {
+            try {
+                Map<Object, Object> claims = stringRedisTemplate.opsForHash().entries(claimsKey(gameCode));
+                for (Map.Entry<Object, Object> claim : claims.entrySet()) {
+                    String value = (String) claim.getValue();
+                    long claimedAt = Long.parseLong(value.substring(value.indexOf(':') + 1));
+                    if (claimedAt > deadline) {
+                        continue;
+                    }
+                    Long betId = Long.valueOf((String) claim.getKey());
+                    if (betRepository.existsById(betId)) {
+                        complete(gameCode, betId);
+                    } else {
+                        restore(gameCode, betId);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to recover jackpot claims: gameCode={}, error={}", gameCode, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 定時將 Redis 池額快照寫入資料庫；Redis 無資料時由資料庫（或池底）還原
+     */
+    @Scheduled(fixedDelayString = "${game.jackpot.snapshot-interval-ms:10000}")
+    public void snapshot() {
+        List<CompiledGameConfig> games = new ArrayList<>();
+        for (String gameCode : gameConfigRegistry.gameCodes()) {
+            CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+            if (gameConfig != null && gameConfig.isJackpotEnabled()) {
+                games.add(gameConfig);
+            }
+        }
+        if (games.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<String> keys = games.stream().map(g -> poolKey(g.getGameCode())).toList();
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < games.size(); i++) {
+                CompiledGameConfig gameConfig = games.get(i);
+                String gameCode = gameConfig.getGameCode();
+                String value = values != null ? values.get(i) : null;
+                if (value == null) {
+                    long restored = restorePoint(gameCode);
+                    stringRedisTemplate.opsForValue().setIfAbsent(keys.get(i), String.valueOf(restored));
+                    log.info("Jackpot pool initialized: gameCode={}, amount={}", gameCode,
+                            RtpCounterService.fromMinorUnits(restored));
+                    continue;
+                }
+                BigDecimal poolAmount = RtpCounterService.fromMinorUnits(Long.parseLong(value));
+                if (jackpotPoolRepository.updatePoolAmount(gameCode, poolAmount, now) == 0) {
+                    JackpotPool pool = new JackpotPool();
+                    pool.setGameCode(gameCode);
+                    pool.setPoolAmount(poolAmount);
+                    jackpotPoolRepository.save(pool);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to snapshot jackpot pools: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcile();
+    }
+
+    /**
+     * 派彩交易已提交，移除未結案紀錄
+     */
+    private void complete(String gameCode, Long betId) {
+        try {
+            stringRedisTemplate.opsForHash().delete(claimsKey(gameCode), String.valueOf(betId));
+        } catch (Exception e) {
+            // 留待 recoverClaims 依投注紀錄結案
+            log.warn("Failed to complete jackpot claim: gameCode={}, betId={}, error={}",
+                    gameCode, betId, e.getMessage());
+        }
+    }
+
+    /**
+     * 派彩交易未提交，把派出的金額加回池中
+     */
+    private void restore(String gameCode, Long betId) {
+        try {
+            Long restored = stringRedisTemplate.execute(RESTORE, List.of(poolKey(gameCode), claimsKey(gameCode)),
+                    String.valueOf(betId), String.valueOf(restorePoint(gameCode)));
+            if (restored != null && restored > 0) {
+                log.warn("Jackpot claim rolled back: gameCode={}, betId={}", gameCode, betId);
+            }
+        } catch (Exception e) {
+            // 留待 recoverClaims 重試
+            log.error("Failed to restore jackpot pool: gameCode={}, betId={}", gameCode, betId, e);
+        }
+    }
+
+    /**
+     * Redis 池 key 不存在時的初始池額（最小單位）：資料庫快照，無快照時為池底
+     */
+    private long restorePoint(String gameCode) {
+        BigDecimal amount = jackpotPoolRepository.findById(gameCode)
+                .map(JackpotPool::getPoolAmount)
+                .orElseGet(() -> {
+                    CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+                    return gameConfig != null ? gameConfig.getJackpotSeed() : BigDecimal.ZERO;
+                });
+        return RtpCounterService.toMinorUnits(amount);
+    }
+
+    /**
+     * 記錄得主（與投注同一交易，只在觸發彩金時寫入）
+     */
+    private void recordWinner(String gameCode, Long userId, BigDecimal amount) {
+        JackpotPool pool = jackpotPoolRepository.findById(gameCode).orElseGet(() -> {
+            JackpotPool created = new JackpotPool();
+            created.setGameCode(gameCode);
+            return created;
+        });
+        pool.setLastWinAmount(amount);
+        pool.setLastWinnerUserId(userId);
+        pool.setLastWonAt(LocalDateTime.now());
+        jackpotPoolRepository.save(pool);
+    }
+
+    private static String poolKey(String gameCode) {
+        return RedisConstant.JACKPOT_POOL_KEY_PREFIX + gameCode;
+    }
+
+    private static String claimsKey(String gameCode) {
+        return RedisConstant.JACKPOT_CLAIMS_KEY_PREFIX + gameCode;
+    }
+}
@@ -0,0 +1,162 @@
+package com.games.service;
+
+import com.games.cache.RotatingBloomFilter;
+import com.games.enums.OutboxEventType;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+/**
+ * 消費端去重（依 outbox 產生的 messageId）
+ *
+ * 1. 每種流水一個本地輪替 Bloom filter：判定未見過時直接寫入，不查詢資料庫也不存取 Redis
+ * 2. 可能見過時（已處理或誤判）以唯一索引欄位 message_id 查詢資料庫確認
+ * 3. 資料庫唯一索引為最終依據：其他節點已寫入（重新平衡後重複投遞）時寫入失敗，
+ *    以 markSuspect 加入 Bloom，重新投遞時改查資料庫而判定為重複
+ * 4. 寫入後以 confirm 加入 Bloom；在交易中呼叫時整批於提交後才加入，回滾則不加入
+ *
+ * Bloom 只在本節點記憶體中，重啟或世代輪替後遺失的只是查詢捷徑，去重結果不受影響。
+ * 檢查結果記錄於 message.idempotency.checks（tag：type、result），舊訊息的 Redis 冪等鍵檢查也一併記錄。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MessageIdempotencyService {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<OutboxEventType, RotatingBloomFilter> filters = new EnumMap<>(OutboxEventType.class);
+
+    /** 每個世代預期加入的 messageId 數 */
+    @Value("${game.idempotency.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    /** 每個世代的誤判率 */
+    @Value("${game.idempotency.bloom.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    /** 保留的世代數，messageId 至少保留 (generations - 1) 個輪替週期 */
+    @Value("${game.idempotency.bloom.generations:3}")
+    private int generations;
+
+    @PostConstruct
+    public void init() {
+        for (OutboxEventType type : OutboxEventType.values()) {
+            filters.put(type, new RotatingBloomFilter(expectedInsertions, falsePositiveRate, generations));
+        }
+        log.info("Message idempotency bloom filters initialized: types={}, bytesEach={}", filters.size(),
+                filters.get(OutboxEventType.TRANSACTION).sizeInBytes());
+    }
+
+    /**
+     * 是否已處理
+     *
+     * @param existsInDatabase 以 messageId 查詢資料庫是否已寫入
+     */
+    public boolean isProcessed(OutboxEventType type, long messageId, LongPredicate existsInDatabase) {
+        if (!filters.get(type).mightContain(messageId)) {
+            count(type, "bloom_negative", 1);
+            return false;
+        }
+        boolean exists = existsInDatabase.test(messageId);
+        count(type, exists ? "database_hit" : "database_miss", 1);
+        return exists;
+    }
+
+    /**
+     * 批次版本：只以一次查詢確認 Bloom 判定可能見過的 messageId，回傳已處理的 messageId
+     *
+     * @param existingInDatabase 回傳傳入的 messageId 中已寫入資料庫者
+     */
+    public Set<Long> findProcessed(OutboxEventType type, Collection<Long> messageIds,
+                                   Function<Collection<Long>, Collection<Long>> existingInDatabase) {
+        RotatingBloomFilter filter = filters.get(type);
+        List<Long> suspects = new ArrayList<>();
+        for (Long messageId : messageIds) {
+            if (filter.mightContain(messageId)) {
+                suspects.add(messageId);
+            }
+        }
+        count(type, "bloom_negative", messageIds.size() - suspects.size());
+        if (suspects.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> processed = new HashSet<>(existingInDatabase.apply(suspects));
+        count(type, "database_hit", processed.size());
+        count(type, "database_miss", suspects.size() - processed.size());
+        return processed;
+    }
+
+    public void confirm(OutboxEventType type, long messageId) {
+        confirm(type, List.of(messageId));
+    }
+
+    /**
+     * 記錄已寫入的 messageId，交易中呼叫時於提交後才加入
+     */
+    public void confirm(OutboxEventType type, Collection<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        RotatingBloomFilter filter = filters.get(type);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            messageIds.forEach(filter::put);
+            return;
+        }
+        List<Long> pending = new ArrayList<>(messageIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.forEach(filter::put);
+            }
+        });
+    }
+
+    /**
+     * 寫入時違反唯一索引：加入 Bloom，重新投遞時改查資料庫
+     */
+    public void markSuspect(OutboxEventType type, long messageId) {
+        filters.get(type).put(messageId);
+    }
+
+    /**
+     * 記錄舊訊息（沒有 messageId）以 Redis 冪等鍵檢查的結果
+     */
+    public void recordLegacy(OutboxEventType type, long duplicates, long fresh) {
+        count(type, "redis_hit", duplicates);
+        count(type, "redis_miss", fresh);
+    }
+
+    /**
+     * 定時以新世代取代最舊的世代
+     */
+    @Scheduled(fixedRateString = "${game.idempotency.bloom.rotate-interval-ms:3600000}",
+            initialDelayString = "${game.idempotency.bloom.rotate-interval-ms:3600000}")
+    public void rotate() {
+        filters.values().forEach(RotatingBloomFilter::rotate);
+        log.debug("Message idempotency bloom filters rotated");
+    }
+
+    private void count(OutboxEventType type, String result, long amount) {
+        if (amount > 0) {
+            meterRegistry.counter("message.idempotency.checks", "type", type.name(), "result", result)
+                    .increment(amount);
+        }
+    }
+}
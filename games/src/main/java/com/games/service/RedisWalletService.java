@@ -0,0 +1,355 @@
+package com.games.service;
+
+import com.games.config.SnowflakeIdGenerator;
+import com.games.constant.RedisConstant;
+import com.games.entity.User;
+import com.games.repository.UserRepository;
+import com.games.repository.WalletOpRepository;
+import com.games.util.MoneyUtils;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Redis 常駐錢包（game.wallet.mode=redis 時啟用）
+ *
+ * 每位用戶一個 hash wallet:user:{userId}，欄位 game / sport 為餘額（分），seq 為變更序號。
+ * 1. 扣款/入帳：Lua 腳本原子地檢查餘額、更新 hash，並把變更後的餘額與變更ID（op）XADD 到
+ *    wallet:stream:{partition}，不再需要分布式鎖與 SELECT ... FOR UPDATE
+ * 2. 首次存取：hash 不存在時由資料庫載入，序號以 users.wallet_seq 為起點
+ * 3. 在資料庫交易中的變更：同一腳本把變更記入 wallet:ops:{partition}，並在交易中寫入 wallet_ops；
+ *    提交後移除紀錄，回滾時以反向金額補償。節點在提交前異常終止時，由 WalletWriteBehindService
+ *    對帳找出逾時仍未結案、且 wallet_ops 沒有紀錄的變更退回（refund）
+ * 4. 串流由 WalletWriteBehindService 依序號寫回 users，確認（XACK）後才裁剪
+ *
+ * Redis 需開啟 AOF 並設定 maxmemory-policy noeviction，錢包 hash 與串流不可被淘汰。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RedisWalletService {
+
+    public static final String MODE_REDIS = "redis";
+
+    public static final String FIELD_GAME = "game";
+    public static final String FIELD_SPORT = "sport";
+    public static final String FIELD_SEQ = "seq";
+
+    private static final long APPLIED = 1L;
+    private static final long NOT_LOADED = -1L;
+    private static final long INSUFFICIENT = -2L;
+    private static final long CONFLICT = -3L;
+
+    /**
+     * KEYS[1] 錢包 hash；KEYS[2] 變更串流；KEYS[3] 未結案變更 hash
+     * ARGV[1] 餘額欄位；ARGV[2] 預期餘額（空字串表示不比對）；ARGV[3] 允許負餘額（1/0）；
+     * ARGV[4] userId；ARGV[5] 變更ID（空字串表示不追蹤）；ARGV[6] 目前時間（毫秒）；
+     * ARGV[7] 變動總額；ARGV[8..] 依序套用的各筆金額
+     * 回傳 {狀態, 餘額, 序號}，餘額不足或比對失敗時回傳目前餘額
+     */
+    private static final String APPLY_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return {-1, 0, 0} end " +
+                    "local balance = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0') " +
+                    "if ARGV[2] ~= '' and balance ~= tonumber(ARGV[2]) then return {-3, balance, 0} end " +
+                    "if ARGV[3] ~= '1' then " +
+                    "  local running = balance " +
+                    "  for i = 8, #ARGV do " +
+                    "    running = running + tonumber(ARGV[i]) " +
+                    "    if running < 0 then return {-2, balance, 0} end " +
+                    "  end " +
+                    "end " +
+                    "local after = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[7]) " +
+                    "local seq = redis.call('HINCRBY', KEYS[1], 'seq', 1) " +
+                    "local b = redis.call('HMGET', KEYS[1], 'game', 'sport') " +
+                    "redis.call('XADD', KEYS[2], '*', 'userId', ARGV[4], 'seq', seq, " +
+                    "'game', b[1] or '0', 'sport', b[2] or '0', 'op', ARGV[5]) " +
+                    "if ARGV[5] ~= '' then " +
+                    "  redis.call('HSET', KEYS[3], ARGV[5], ARGV[4] .. ':' .. ARGV[1] .. ':' .. ARGV[7] .. ':' .. ARGV[6]) " +
+                    "end " +
+                    "return {1, after, seq}";
+
+    /**
+     * KEYS[1] 錢包 hash；KEYS[2] 變更串流；KEYS[3] 未結案變更 hash
+     * ARGV[1] 變更ID；ARGV[2] 餘額欄位；ARGV[3] userId；ARGV[4] 退回金額
+     * 只退回仍未結案的變更，回滾補償與對帳同時執行也不會重複退回；錢包未載入時回傳 -1
+     */
+    private static final String REFUND_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+                    "if redis.call('HDEL', KEYS[3], ARGV[1]) == 0 then return 0 end " +
+                    "redis.call('HINCRBY', KEYS[1], ARGV[2], ARGV[4]) " +
+                    "local seq = redis.call('HINCRBY', KEYS[1], 'seq', 1) " +
+                    "local b = redis.call('HMGET', KEYS[1], 'game', 'sport') " +
+                    "redis.call('XADD', KEYS[2], '*', 'userId', ARGV[3], 'seq', seq, " +
+                    "'game', b[1] or '0', 'sport', b[2] or '0', 'op', ARGV[1]) " +
+                    "return 1";
+
+    /**
+     * KEYS[1] 錢包 hash；ARGV[1] 遊戲餘額；ARGV[2] 體育餘額；ARGV[3] 序號
+     * 只在 hash 不存在時載入
+     */
+    private static final String LOAD_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+                    "redis.call('HSET', KEYS[1], 'game', ARGV[1], 'sport', ARGV[2], 'seq', ARGV[3]) " +
+                    "return 1";
+
+    /**
+     * KEYS[1] 錢包 hash；ARGV[1] 預期序號；ARGV[2] 遊戲餘額；ARGV[3] 體育餘額；ARGV[4] 序號
+     * 序號仍為預期值時才覆寫（對帳用）
+     */
+    private static final String RESET_SCRIPT =
+            "if redis.call('HGET', KEYS[1], 'seq') ~= ARGV[1] then return 0 end " +
+                    "redis.call('HSET', KEYS[1], 'game', ARGV[2], 'sport', ARGV[3], 'seq', ARGV[4]) " +
+                    "return 1";
+
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> APPLY = new DefaultRedisScript<>(APPLY_SCRIPT, List.class);
+    private static final DefaultRedisScript<Long> LOAD = new DefaultRedisScript<>(LOAD_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> RESET = new DefaultRedisScript<>(RESET_SCRIPT, Long.class);
+    private static final DefaultRedisScript<Long> REFUND = new DefaultRedisScript<>(REFUND_SCRIPT, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UserRepository userRepository;
+    private final WalletOpRepository walletOpRepository;
+    private final SnowflakeIdGenerator idGenerator;
+
+    @Value("${game.wallet.mode:db}")
+    private String mode;
+
+    @Value("${game.wallet.stream-partitions:8}")
+    private int streamPartitions;
+
+    public boolean isEnabled() {
+        return MODE_REDIS.equalsIgnoreCase(mode);
+    }
+
+    public int getStreamPartitions() {
+        return streamPartitions;
+    }
+
+    /**
+     * 依序套用多筆金額（負數為扣款），任一步驟餘額為負即整筆拒絕
+     * 在資料庫交易中呼叫時，交易回滾會自動補償
+     */
+    public Change apply(Long userId, String field, long... amounts) {
+        return execute(userId, field, null, false, amounts);
+    }
+
+    /**
+     * 與 apply 相同，但目前餘額必須等於 expectedBalance（樂觀比對），否則回傳 conflict
+     */
+    public Change applyIfBalance(Long userId, String field, long expectedBalance, long... amounts) {
+        return execute(userId, field, expectedBalance, false, amounts);
+    }
+
+    /**
+     * 提領全部餘額，無餘額時回傳 null
+     */
+    public Change withdrawAll(Long userId, String field) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long balance = balance(userId, field);
+            if (balance <= 0) {
+                return null;
+            }
+            Change change = applyIfBalance(userId, field, balance, -balance);
+            if (change.isApplied()) {
+                return change;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Balance changed during withdrawal");
+    }
+
+    /**
+     * 取得目前餘額（分）
+     */
+    public long balance(Long userId, String field) {
+        Object value = stringRedisTemplate.opsForHash().get(walletKey(userId), field);
+        if (value == null) {
+            load(userId);
+            value = stringRedisTemplate.opsForHash().get(walletKey(userId), field);
+        }
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * 由資料庫載入錢包（hash 已存在時不覆寫）
+     */
+    public void load(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        Long loaded = stringRedisTemplate.execute(LOAD, Collections.singletonList(walletKey(userId)),
+                String.valueOf(MoneyUtils.toCents(user.getGameBalance())),
+                String.valueOf(MoneyUtils.toCents(user.getSportBalance())),
+                String.valueOf(user.getWalletSeq() != null ? user.getWalletSeq() : 0L));
+        if (loaded != null && loaded == 1L) {
+            log.debug("Wallet loaded into Redis: userId={}, seq={}", userId, user.getWalletSeq());
+        }
+    }
+
+    /**
+     * 序號仍為 expectedSeq 時以資料庫的值覆寫錢包
+     */
+    public boolean reset(Long userId, long expectedSeq, long gameCents, long sportCents, long seq) {
+        Long result = stringRedisTemplate.execute(RESET, Collections.singletonList(walletKey(userId)),
+                String.valueOf(expectedSeq), String.valueOf(gameCents), String.valueOf(sportCents),
+                String.valueOf(seq));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 退回未提交的變更（回滾補償與對帳共用），變更已結案時不做任何事
+     *
+     * @return 是否實際退回
+     */
+    public boolean refund(long opId, Long userId, String field, long total) {
+        int partition = partition(userId);
+        List<String> keys = Arrays.asList(walletKey(userId), streamKey(partition), opsKey(partition));
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long result = stringRedisTemplate.execute(REFUND, keys, String.valueOf(opId), field,
+                    String.valueOf(userId), String.valueOf(-total));
+            if (result != null && result == NOT_LOADED) {
+                load(userId);
+                continue;
+            }
+            return result != null && result == APPLIED;
+        }
+        throw new IllegalStateException("Wallet could not be loaded for userId " + userId);
+    }
+
+    /**
+     * 變更所屬的交易已提交，移除未結案紀錄
+     */
+    public void complete(long opId, Long userId) {
+        stringRedisTemplate.opsForHash().delete(opsKey(partition(userId)), String.valueOf(opId));
+    }
+
+    private Change execute(Long userId, String field, Long expectedBalance, boolean allowNegative, long[] amounts) {
+        long total = 0L;
+        for (long amount : amounts) {
+            total = Math.addExact(total, amount);
+        }
+
+        // 只追蹤在資料庫交易中、需要回滾補償的變更
+        boolean tracked = !allowNegative && total != 0
+                && TransactionSynchronizationManager.isSynchronizationActive();
+        long opId = tracked ? idGenerator.nextId() : 0L;
+
+        int partition = partition(userId);
+        List<String> keys = Arrays.asList(walletKey(userId), streamKey(partition), opsKey(partition));
+        String[] args = new String[7 + amounts.length];
+        args[0] = field;
+        args[1] = expectedBalance != null ? String.valueOf(expectedBalance) : "";
+        args[2] = allowNegative ? "1" : "0";
+        args[3] = String.valueOf(userId);
+        args[4] = tracked ? String.valueOf(opId) : "";
+        args[5] = String.valueOf(System.currentTimeMillis());
+        args[6] = String.valueOf(total);
+        for (int i = 0; i < amounts.length; i++) {
+            args[7 + i] = String.valueOf(amounts[i]);
+        }
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<?> result = stringRedisTemplate.execute(APPLY, keys, (Object[]) args);
+            if (result == null || result.isEmpty()) {
+                throw new IllegalStateException("Wallet script returned no result for userId " + userId);
+            }
+            long status = ((Number) result.get(0)).longValue();
+            long balance = ((Number) result.get(1)).longValue();
+            if (status == NOT_LOADED) {
+                load(userId);
+                continue;
+            }
+            if (status != APPLIED) {
+                return new Change(status, balance, balance, 0L);
+            }
+            long seq = ((Number) result.get(2)).longValue();
+            if (tracked) {
+                registerCompensation(opId, userId, field, total);
+                walletOpRepository.insert(opId, userId, field, total);
+            }
+            return new Change(status, balance - total, balance, seq);
+        }
+        throw new IllegalStateException("Wallet could not be loaded for userId " + userId);
+    }
+
+    /**
+     * 資料庫交易提交後結案，回滾時反向補償（不檢查餘額）
+     * 兩者失敗時紀錄留在 wallet:ops:{partition}，由對帳依 wallet_ops 處理
+     */
+    private void registerCompensation(long opId, Long userId, String field, long total) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        complete(opId, userId);
+                    } else if (refund(opId, userId, field, total)) {
+                        log.warn("Wallet change compensated after rollback: userId={}, field={}, amount={}",
+                                userId, field, -total);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to settle wallet change: opId={}, userId={}, field={}, amount={}",
+                            opId, userId, field, total, e);
+                }
+            }
+        });
+    }
+
+    public int partition(Long userId) {
+        return (int) Math.floorMod(userId, (long) streamPartitions);
+    }
+
+    public static String walletKey(Long userId) {
+        return RedisConstant.WALLET_KEY_PREFIX + userId;
+    }
+
+    public static String streamKey(int partition) {
+        return RedisConstant.WALLET_STREAM_PREFIX + partition;
+    }
+
+    public static String opsKey(int partition) {
+        return RedisConstant.WALLET_OPS_PREFIX + partition;
+    }
+
+    /**
+     * 錢包變動結果（金額皆為分）
+     */
+    @Getter
+    public static class Change {
+
+        private final long status;
+        private final long balanceBefore;
+        private final long balanceAfter;
+        private final long seq;
+
+        private Change(long status, long balanceBefore, long balanceAfter, long seq) {
+            this.status = status;
+            this.balanceBefore = balanceBefore;
+            this.balanceAfter = balanceAfter;
+            this.seq = seq;
+        }
+
+        public boolean isApplied() {
+            return status == APPLIED;
+        }
+
+        public boolean isInsufficient() {
+            return status == INSUFFICIENT;
+        }
+
+        public boolean isConflict() {
+            return status == CONFLICT;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.games.service;
+
+import com.games.config.GameProperties;
+import com.games.dto.RtpCalculationResult;
+import com.games.dto.RtpSimulationResponse;
+import com.games.slot.ReelModel;
+import com.games.slot.ReelStripEngine;
+import com.games.slot.RtpSimulator;
+import com.games.slot.SlotEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * RTP 理論計算服務
+ *
+ * CLASSIC：3 個獨立的加權滾輪，贏分只取決於三個符號的組合，
+ * 因此可窮舉全部 n^3 種組合，以各組合機率精確計算 RTP、中獎率與變異數。
+ * REEL_STRIP：窮舉所有滾輪停止位置的組合（各組合機率相同）；組合數超過上限時改以固定種子模擬估算。
+ * 判定規則直接使用引擎本身，與正式旋轉完全一致。
+ */
+@Slf4j
+@Service
+public class RtpCalculatorService {
+
+    /** 模擬估算使用固定種子，同一配置每次載入的結果相同 */
+    private static final long ESTIMATE_SEED = 0x5EEDL;
+
+    /** REEL_STRIP 窮舉的最大組合數，超過時改以模擬估算 */
+    @Value("${game.rtp.calculation.max-combinations:20000000}")
+    private long maxCombinations;
+
+    /** 超過窮舉上限時模擬估算的旋轉次數，0 表示不估算（直接視為無法計算） */
+    @Value("${game.rtp.calculation.fallback-spins:10000000}")
+    private long fallbackSpins;
+
+    public RtpCalculationResult calculate(GameProperties gameProperties) {
+        return calculate(SlotEngine.compile(gameProperties));
+    }
+
+    public RtpCalculationResult calculate(SlotEngine engine) {
+        if (engine instanceof ReelModel model) {
+            return calculate(model);
+        }
+        if (engine instanceof ReelStripEngine stripEngine) {
+            return calculate(stripEngine);
+        }
+        throw new IllegalArgumentException("Unsupported slot engine: " + engine.getClass().getSimpleName());
+    }
+
+    public RtpCalculationResult calculate(ReelStripEngine engine) {
+        int reelCount = engine.reelCount();
+        long combinations = 1;
+        for (int r = 0; r < reelCount; r++) {
+            combinations = Math.multiplyExact(combinations, engine.stripLength(r));
+        }
+        if (combinations > maxCombinations) {
+            if (fallbackSpins <= 0) {
+                throw new IllegalArgumentException("Too many stop combinations to enumerate: " + combinations);
+            }
+            log.warn("Too many stop combinations to enumerate ({} > {}), estimating RTP with {} simulated spins",
+                    combinations, maxCombinations, fallbackSpins);
+            return estimate(engine);
+        }
+
+        int[] stops = new int[reelCount];
+        int[] cells = new int[engine.cellCount()];
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        long hits = 0;
+
+        // 依序走訪所有停止位置（odometer）
+        for (long i = 0; i < combinations; i++) {
+            engine.fill(stops, cells);
+            double multiplier = engine.multiplier(cells);
+            if (multiplier > 0) {
+                hits++;
+                sum += multiplier;
+                sumOfSquares += multiplier * multiplier;
+            }
+            for (int r = reelCount - 1; r >= 0; r--) {
+                if (++stops[r] < engine.stripLength(r)) {
+                    break;
+                }
+                stops[r] = 0;
+            }
+        }
+
+        double expected = sum / combinations;
+        double variance = Math.max(0.0, sumOfSquares / combinations - expected * expected);
+        return RtpCalculationResult.builder()
+                .rtp(expected * 100)
+                .hitRate((double) hits / combinations)
+                .variance(variance)
+                .standardDeviation(Math.sqrt(variance))
+                .combinations(combinations)
+                .build();
+    }
+
+    /**
+     * 以蒙地卡羅模擬估算 RTP
+     */
+    public RtpCalculationResult estimate(SlotEngine engine) {
+        RtpSimulationResponse simulation = RtpSimulator.simulate(engine, fallbackSpins, ESTIMATE_SEED,
+                ForkJoinPool.commonPool());
+        return RtpCalculationResult.builder()
+                .rtp(simulation.getMeasuredRtp())
+                .hitRate(simulation.getHitFrequency())
+                .variance(simulation.getVariance())
+                .standardDeviation(simulation.getStandardDeviation())
+                .combinations(simulation.getSpins())
+                .estimated(true)
+                .rtpConfidence95(simulation.getRtpConfidence95())
+                .build();
+    }
+
+    public RtpCalculationResult calculate(ReelModel model) {
+        int n = model.symbolCount();
+        int[] reels = new int[ReelModel.REEL_COUNT];
+
+        double expected = 0.0;
+        double expectedSquare = 0.0;
+        double hitRate = 0.0;
+
+        for (int a = 0; a < n; a++) {
+            double pa = model.symbolProbability(a);
+            if (pa == 0.0) {
+                continue;
+            }
+            reels[0] = a;
+            for (int b = 0; b < n; b++) {
+                double pab = pa * model.symbolProbability(b);
+                if (pab == 0.0) {
+                    continue;
+                }
+                reels[1] = b;
+                for (int c = 0; c < n; c++) {
+                    double p = pab * model.symbolProbability(c);
+                    if (p == 0.0) {
+                        continue;
+                    }
+                    reels[2] = c;
+                    double multiplier = model.multiplier(model.evaluate(reels));
+                    if (multiplier > 0) {
+                        hitRate += p;
+                        expected += p * multiplier;
+                        expectedSquare += p * multiplier * multiplier;
+                    }
+                }
+            }
+        }
+
+        double variance = Math.max(0.0, expectedSquare - expected * expected);
+        return RtpCalculationResult.builder()
+                .rtp(expected * 100)
+                .hitRate(hitRate)
+                .variance(variance)
+                .standardDeviation(Math.sqrt(variance))
+                .combinations((long) n * n * n)
+                .build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.games.service;
+
+import com.games.constant.RedisConstant;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各遊戲 RTP 計數器
+ *
+ * 金額以最小單位（小數 4 位）的整數累計，避免 INCRBYFLOAT 的浮點誤差：
+ * 1. 消費端呼叫 record() 只寫入本地 LongAdder（分段計數，無競爭）
+ * 2. 定時將各遊戲的增量以單一 pipeline 寫入 Redis hash rtp:game:{gameCode}
+ * 3. 寫入失敗時將增量加回本地計數器，下次再送出
+ *
+ * Redis 操作次數與旋轉數無關，只取決於刷新間隔與遊戲數。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RtpCounterService {
+
+    /** 金額最小單位的小數位數 */
+    public static final int AMOUNT_SCALE = 4;
+
+    public static final String FIELD_BET = "bet";
+    public static final String FIELD_WIN = "win";
+    public static final String FIELD_COUNT = "count";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<String, GameCounters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 累計一筆（或一批）旋轉
+     */
+    public void record(String gameCode, BigDecimal betAmount, BigDecimal winAmount, long spinCount) {
+        GameCounters counter = counters.computeIfAbsent(gameCode, k -> new GameCounters());
+        counter.bet.add(toMinorUnits(betAmount));
+        counter.win.add(toMinorUnits(winAmount));
+        counter.count.add(spinCount);
+    }
+
+    /**
+     * 定時將本地增量刷新至 Redis
+     */
+    @Scheduled(fixedDelayString = "${game.rtp.counter.flush-interval-ms:1000}")
+    public void flush() {
+        List<Delta> deltas = new ArrayList<>();
+        for (Map.Entry<String, GameCounters> entry : counters.entrySet()) {
+            Delta delta = entry.getValue().drain(entry.getKey());
+            if (delta != null) {
+                deltas.add(delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                long ttlSeconds = TimeUnit.DAYS.toSeconds(RedisConstant.STATS_TTL_DAYS);
+                for (Delta delta : deltas) {
+                    String key = gameKey(delta.getGameCode());
+                    conn.hIncrBy(key, FIELD_BET, delta.getBet());
+                    conn.hIncrBy(key, FIELD_WIN, delta.getWin());
+                    conn.hIncrBy(key, FIELD_COUNT, delta.getCount());
+                    conn.expire(key, ttlSeconds);
+                }
+                return null;
+            });
+            log.debug("Flushed RTP counters for {} games", deltas.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush RTP counters, will retry: {}", e.getMessage());
+            for (Delta delta : deltas) {
+                GameCounters counter = counters.computeIfAbsent(delta.getGameCode(), k -> new GameCounters());
+                counter.bet.add(delta.getBet());
+                counter.win.add(delta.getWin());
+                counter.count.add(delta.getCount());
+            }
+        }
+    }
+
+    /**
+     * 讀取 Redis 中的累計值（已刷新的部分）
+     */
+    public Snapshot read(String gameCode) {
+        Map<Object, Object> values = stringRedisTemplate.opsForHash().entries(gameKey(gameCode));
+        return new Snapshot(
+                fromMinorUnits(parseLong(values.get(FIELD_BET))),
+                fromMinorUnits(parseLong(values.get(FIELD_WIN))),
+                parseLong(values.get(FIELD_COUNT)));
+    }
+
+    /**
+     * 清除指定遊戲的計數（本地與 Redis）
+     */
+    public void reset(String gameCode) {
+        GameCounters counter = counters.get(gameCode);
+        if (counter != null) {
+            counter.drain(gameCode);
+        }
+        stringRedisTemplate.delete(gameKey(gameCode));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public static String gameKey(String gameCode) {
+        return RedisConstant.RTP_GAME_KEY_PREFIX + gameCode;
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long value) {
+        return BigDecimal.valueOf(value, AMOUNT_SCALE);
+    }
+
+    private static long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * 單一遊戲的本地計數器
+     */
+    private static final class GameCounters {
+
+        private final LongAdder bet = new LongAdder();
+        private final LongAdder win = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * 取出並歸零，無增量時回傳 null
+         */
+        private Delta drain(String gameCode) {
+            long c = count.sumThenReset();
+            long b = bet.sumThenReset();
+            long w = win.sumThenReset();
+            if (c == 0 && b == 0 && w == 0) {
+                return null;
+            }
+            return new Delta(gameCode, b, w, c);
+        }
+    }
+
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    private static class Delta {
+        private String gameCode;
+        private long bet;
+        private long win;
+        private long count;
+    }
+
+    /**
+     * Redis 中的累計值
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class Snapshot {
+        private BigDecimal totalBet;
+        private BigDecimal totalWin;
+        private long betCount;
+    }
+}
@@ -0,0 +1,188 @@
+package com.games.service;
+
+import com.games.cache.GameConfigRegistry;
+import com.games.dto.RtpSimulationJobResponse;
+import com.games.dto.RtpSimulationResponse;
+import com.games.slot.CompiledGameConfig;
+import com.games.slot.RtpSimulator;
+import com.games.util.MoneyUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RTP 模擬服務
+ *
+ * 對註冊表中的遊戲配置執行蒙地卡羅模擬，於上線前驗證配置的實際 RTP。
+ * 模擬以工作方式非同步執行：同時只執行一個工作，其餘在有界佇列中排隊，佇列已滿時回傳 429；
+ * 工作狀態只保存在本節點記憶體中。
+ */
+@Slf4j
+@Service
+public class RtpSimulationService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    private final GameConfigRegistry gameConfigRegistry;
+    private final ForkJoinPool simulationPool;
+    private final ThreadPoolExecutor jobExecutor;
+    private final long maxSpins;
+
+    private final Map<Long, RtpSimulationJobResponse> jobs = new LinkedHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong();
+
+    public RtpSimulationService(GameConfigRegistry gameConfigRegistry,
+                                @Value("${game.rtp.simulation.parallelism:0}") int parallelism,
+                                @Value("${game.rtp.simulation.max-spins:100000000}") long maxSpins,
+                                @Value("${game.rtp.simulation.queue-capacity:4}") int queueCapacity) {
+        this.gameConfigRegistry = gameConfigRegistry;
+        this.simulationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.jobExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rtp-simulation");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxSpins = maxSpins;
+    }
+
+    /**
+     * 提交模擬工作，立即回傳工作狀態
+     */
+    public RtpSimulationJobResponse submit(String gameCode, long spins, Long seed, BigDecimal betAmount) {
+        CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+        if (gameConfig == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found: " + gameCode);
+        }
+        if (spins <= 0 || spins > maxSpins) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Spins must be between 1 and " + maxSpins);
+        }
+        long betCents = betCents(gameConfig, betAmount);
+
+        RtpSimulationJobResponse job = RtpSimulationJobResponse.builder()
+                .jobId(jobSequence.incrementAndGet())
+                .gameCode(gameCode)
+                .spins(spins)
+                .status(STATUS_QUEUED)
+                .submittedAt(LocalDateTime.now())
+                .build();
+        synchronized (jobs) {
+            try {
+                jobExecutor.execute(() -> run(job, gameConfig, betCents, seed));
+            } catch (RejectedExecutionException e) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many pending simulations");
+            }
+            jobs.put(job.getJobId(), job);
+            evictFinishedJobs();
+            return copy(job);
+        }
+    }
+
+    public RtpSimulationJobResponse getJob(long jobId) {
+        synchronized (jobs) {
+            RtpSimulationJobResponse job = jobs.get(jobId);
+            if (job == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Simulation job not found: " + jobId);
+            }
+            return copy(job);
+        }
+    }
+
+    /**
+     * 模擬投注額：未指定時取遊戲最小投注額，需在投注額範圍內
+     */
+    private static long betCents(CompiledGameConfig gameConfig, BigDecimal betAmount) {
+        if (betAmount == null) {
+            return gameConfig.getMinBetCents() > 0 ? gameConfig.getMinBetCents() : RtpSimulator.DEFAULT_BET_CENTS;
+        }
+        long betCents;
+        try {
+            betCents = MoneyUtils.toCents(betAmount);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bet amount must have at most 2 decimal places");
+        }
+        if (betCents <= 0 || betCents < gameConfig.getMinBetCents() || betCents > gameConfig.getMaxBetCents()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bet amount out of range: " + betAmount);
+        }
+        return betCents;
+    }
+
+    private void run(RtpSimulationJobResponse job, CompiledGameConfig gameConfig, long betCents, Long seed) {
+        update(job, STATUS_RUNNING, null, null);
+        long actualSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+        log.info("Starting RTP simulation: jobId={}, gameCode={}, spins={}, seed={}",
+                job.getJobId(), job.getGameCode(), job.getSpins(), actualSeed);
+        try {
+            RtpSimulationResponse response = RtpSimulator.simulate(gameConfig, betCents, job.getSpins(), actualSeed,
+                    simulationPool);
+            update(job, STATUS_COMPLETED, response, null);
+
+            log.info("RTP simulation finished: jobId={}, gameCode={}, measuredRtp={}, jackpotRtp={}, targetRtp={}, "
+                            + "elapsedMs={}", job.getJobId(), job.getGameCode(), response.getMeasuredRtp(),
+                    response.getJackpotRtp(), response.getTargetRtp(), response.getElapsedMs());
+        } catch (RuntimeException e) {
+            log.error("RTP simulation failed: jobId={}, gameCode={}", job.getJobId(), job.getGameCode(), e);
+            update(job, STATUS_FAILED, null, e.getMessage());
+        }
+    }
+
+    private void update(RtpSimulationJobResponse job, String status, RtpSimulationResponse result, String error) {
+        synchronized (jobs) {
+            job.setStatus(status);
+            job.setResult(result);
+            job.setError(error);
+            if (STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status)) {
+                job.setFinishedAt(LocalDateTime.now());
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(RtpSimulationService::isFinished).count();
+        Iterator<RtpSimulationJobResponse> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (isFinished(iterator.next())) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static boolean isFinished(RtpSimulationJobResponse job) {
+        return STATUS_COMPLETED.equals(job.getStatus()) || STATUS_FAILED.equals(job.getStatus());
+    }
+
+    private static RtpSimulationJobResponse copy(RtpSimulationJobResponse job) {
+        return job.toBuilder().build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        simulationPool.shutdownNow();
+    }
+}
@@ -1,11 +1,9 @@
 package com.games.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.games.config.GameProperties;
-import com.games.constant.RedisConstant;
+import com.games.cache.GameConfigRegistry;
+import com.games.slot.CompiledGameConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -17,43 +15,44 @@ import java.util.Map;
 @Slf4j
 public class RtpStatisticsService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final RtpCounterService rtpCounterService;
+    private final GameConfigRegistry gameConfigRegistry;
 
     public Map<String, Object> getStatistics(String gameCode) {
         Map<String, Object> stats = new HashMap<>();
 
         try {
-            // 從 Redis 讀取遊戲配置
-            String json = (String) redisTemplate.opsForHash().get(RedisConstant.GAME_SETTING_ALL, gameCode);
-            if (json == null) {
+            // 從本地註冊表讀取遊戲配置
+            CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+            if (gameConfig == null) {
                 log.error("Game configuration not found for gameCode: {}", gameCode);
                 stats.put("error", "Game configuration not found");
                 return stats;
             }
-            GameProperties gameProperties = objectMapper.readValue(json, GameProperties.class);
 
-            Object totalBetObj = redisTemplate.opsForValue().get(RedisConstant.RTP_TOTAL_BET_KEY);
-            Object totalWinObj = redisTemplate.opsForValue().get(RedisConstant.RTP_TOTAL_WIN_KEY);
-            Object betCountObj = redisTemplate.opsForValue().get(RedisConstant.RTP_BET_COUNT_KEY);
+            // 讀取該遊戲的累計值（整數最小單位，精確無誤差）
+            RtpCounterService.Snapshot snapshot = rtpCounterService.read(gameCode);
+            BigDecimal totalBet = snapshot.getTotalBet();
+            BigDecimal totalWin = snapshot.getTotalWin();
+            long betCount = snapshot.getBetCount();
 
-            double totalBet = totalBetObj != null ? Double.parseDouble(totalBetObj.toString()) : 0.0;
-            double totalWin = totalWinObj != null ? Double.parseDouble(totalWinObj.toString()) : 0.0;
-            long betCount = betCountObj != null ? Long.parseLong(betCountObj.toString()) : 0;
+            double actualRtp = totalBet.signum() > 0
+                    ? totalWin.divide(totalBet, 10, RoundingMode.HALF_UP).doubleValue() * 100 : 0.0;
 
-            double actualRtp = totalBet > 0 ? (totalWin / totalBet) * 100 : 0.0;
-
-            stats.put("targetRtp", gameProperties.getTargetRtp());
+            stats.put("targetRtp", gameConfig.getTargetRtp());
+            stats.put("theoreticalRtp", gameConfig.getTheoreticalRtp() != null
+                    ? BigDecimal.valueOf(gameConfig.getTheoreticalRtp()).setScale(4, RoundingMode.HALF_UP).doubleValue()
+                    : null);
             stats.put("actualRtp", BigDecimal.valueOf(actualRtp).setScale(2, RoundingMode.HALF_UP).doubleValue());
-            stats.put("totalBetAmount", BigDecimal.valueOf(totalBet).setScale(2, RoundingMode.HALF_UP));
-            stats.put("totalWinAmount", BigDecimal.valueOf(totalWin).setScale(2, RoundingMode.HALF_UP));
+            stats.put("totalBetAmount", totalBet.setScale(2, RoundingMode.HALF_UP));
+            stats.put("totalWinAmount", totalWin.setScale(2, RoundingMode.HALF_UP));
             stats.put("totalBetCount", betCount);
             stats.put("averageBet", betCount > 0 ?
-                    BigDecimal.valueOf(totalBet / betCount).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+                    totalBet.divide(BigDecimal.valueOf(betCount), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
             stats.put("averageWin", betCount > 0 ?
-                    BigDecimal.valueOf(totalWin / betCount).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+                    totalWin.divide(BigDecimal.valueOf(betCount), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
 
-            double rtpDifference = actualRtp - gameProperties.getTargetRtp();
+            double rtpDifference = actualRtp - gameConfig.getTargetRtp();
             stats.put("rtpDifference", BigDecimal.valueOf(rtpDifference).setScale(2, RoundingMode.HALF_UP).doubleValue());
             stats.put("rtpStatus", getRtpStatus(rtpDifference));
 
@@ -78,10 +77,8 @@ public class RtpStatisticsService {
 
     public void resetStatistics(String gameCode) {
         try {
-            redisTemplate.delete(RedisConstant.RTP_TOTAL_BET_KEY);
-            redisTemplate.delete(RedisConstant.RTP_TOTAL_WIN_KEY);
-            redisTemplate.delete(RedisConstant.RTP_BET_COUNT_KEY);
-            log.info("RTP statistics reset successfully");
+            rtpCounterService.reset(gameCode);
+            log.info("RTP statistics reset successfully for gameCode={}", gameCode);
         } catch (Exception e) {
             log.error("Failed to reset RTP statistics", e);
         }
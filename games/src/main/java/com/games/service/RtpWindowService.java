@@ -0,0 +1,238 @@
+package com.games.service;
+
+import com.games.cache.GameConfigRegistry;
+import com.games.constant.RedisConstant;
+import com.games.dto.RtpWindowResponse;
+import com.games.slot.CompiledGameConfig;
+import com.games.util.TimeBucketRing;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 滑動視窗 RTP 統計
+ *
+ * 各節點以 1 秒為桶的 TimeBucketRing 在本地累計（遊戲、商戶各一個環），
+ * 定時把增量合併寫入 Redis 的三種粒度時間桶：
+ *   rtp:window:{scope}:s:{epochSecond}  ─ 最近 1 分鐘
+ *   rtp:window:{scope}:m:{epochMinute}  ─ 最近 1 小時
+ *   rtp:window:{scope}:h:{epochHour}    ─ 最近 24 小時
+ * 查詢時以 pipeline 讀取視窗內所有桶加總，過期桶由 TTL 自動清除，不需手動重置。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RtpWindowService {
+
+    public static final String SCOPE_GAME = "GAME";
+    public static final String SCOPE_MERCHANT = "MERCHANT";
+
+    /** 本地環形緩衝區：1 秒一桶，保留 16 桶 */
+    private static final long RING_BUCKET_MILLIS = 1000L;
+    private static final int RING_SIZE = 16;
+
+    private static final Resolution[] RESOLUTIONS = {
+            new Resolution("1m", "s", 1L, 60, 120L),
+            new Resolution("1h", "m", 60L, 60, 2 * 3600L),
+            new Resolution("24h", "h", 3600L, 24, 25 * 3600L)
+    };
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final GameConfigRegistry gameConfigRegistry;
+
+    private final Map<String, TimeBucketRing> rings = new ConcurrentHashMap<>();
+
+    /**
+     * 累計一筆（或一批）旋轉
+     */
+    public void record(String gameCode, Long merchantId, BigDecimal betAmount, BigDecimal winAmount,
+                       long spinCount, long timestampMillis) {
+        long bet = RtpCounterService.toMinorUnits(betAmount);
+        long win = RtpCounterService.toMinorUnits(winAmount);
+        ring(scopeKey(SCOPE_GAME, gameCode)).add(timestampMillis, bet, win, spinCount);
+        if (merchantId != null) {
+            ring(scopeKey(SCOPE_MERCHANT, merchantId.toString())).add(timestampMillis, bet, win, spinCount);
+        }
+    }
+
+    /**
+     * 定時將本地時間桶合併寫入 Redis
+     */
+    @Scheduled(fixedDelayString = "${game.rtp.window.flush-interval-ms:1000}")
+    public void flush() {
+        Map<String, List<TimeBucketRing.Bucket>> drained = new HashMap<>();
+        for (Map.Entry<String, TimeBucketRing> entry : rings.entrySet()) {
+            List<TimeBucketRing.Bucket> buckets = entry.getValue().drain();
+            if (!buckets.isEmpty()) {
+                drained.put(entry.getKey(), buckets);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        // 同一個 Redis 桶的增量先在本地合併
+        Map<String, long[]> increments = new HashMap<>();
+        Map<String, Long> ttls = new HashMap<>();
+        for (Map.Entry<String, List<TimeBucketRing.Bucket>> entry : drained.entrySet()) {
+            for (TimeBucketRing.Bucket bucket : entry.getValue()) {
+                long epochSecond = bucket.getBucket() * RING_BUCKET_MILLIS / 1000L;
+                for (Resolution resolution : RESOLUTIONS) {
+                    String key = bucketKey(entry.getKey(), resolution, epochSecond / resolution.getBucketSeconds());
+                    long[] sums = increments.computeIfAbsent(key, k -> new long[3]);
+                    sums[0] += bucket.getBet();
+                    sums[1] += bucket.getWin();
+                    sums[2] += bucket.getCount();
+                    ttls.put(key, resolution.getTtlSeconds());
+                }
+            }
+        }
+
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                for (Map.Entry<String, long[]> entry : increments.entrySet()) {
+                    String key = entry.getKey();
+                    long[] sums = entry.getValue();
+                    conn.hIncrBy(key, RtpCounterService.FIELD_BET, sums[0]);
+                    conn.hIncrBy(key, RtpCounterService.FIELD_WIN, sums[1]);
+                    conn.hIncrBy(key, RtpCounterService.FIELD_COUNT, sums[2]);
+                    conn.expire(key, ttls.get(key));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to flush RTP windows, will retry: {}", e.getMessage());
+            for (Map.Entry<String, List<TimeBucketRing.Bucket>> entry : drained.entrySet()) {
+                TimeBucketRing ring = ring(entry.getKey());
+                for (TimeBucketRing.Bucket bucket : entry.getValue()) {
+                    ring.add(bucket.getBucket() * RING_BUCKET_MILLIS, bucket.getBet(), bucket.getWin(),
+                            bucket.getCount());
+                }
+            }
+        }
+    }
+
+    /**
+     * 查詢遊戲的滑動視窗統計
+     */
+    public RtpWindowResponse getGameWindows(String gameCode) {
+        CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+        return RtpWindowResponse.builder()
+                .scope(SCOPE_GAME)
+                .scopeId(gameCode)
+                .targetRtp(gameConfig != null ? gameConfig.getTargetRtp() : null)
+                .windows(readWindows(scopeKey(SCOPE_GAME, gameCode)))
+                .build();
+    }
+
+    /**
+     * 查詢商戶的滑動視窗統計（所有遊戲合計）
+     */
+    public RtpWindowResponse getMerchantWindows(Long merchantId) {
+        return RtpWindowResponse.builder()
+                .scope(SCOPE_MERCHANT)
+                .scopeId(merchantId.toString())
+                .windows(readWindows(scopeKey(SCOPE_MERCHANT, merchantId.toString())))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private List<RtpWindowResponse.Window> readWindows(String scope) {
+        long nowSecond = System.currentTimeMillis() / 1000L;
+        List<String> keys = new ArrayList<>();
+        for (Resolution resolution : RESOLUTIONS) {
+            long current = nowSecond / resolution.getBucketSeconds();
+            for (long bucket = current - resolution.getBuckets() + 1; bucket <= current; bucket++) {
+                keys.add(bucketKey(scope, resolution, bucket));
+            }
+        }
+
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (String key : keys) {
+                conn.hGetAll(key);
+            }
+            return null;
+        });
+
+        List<RtpWindowResponse.Window> windows = new ArrayList<>(RESOLUTIONS.length);
+        int index = 0;
+        for (Resolution resolution : RESOLUTIONS) {
+            long bet = 0;
+            long win = 0;
+            long count = 0;
+            for (int i = 0; i < resolution.getBuckets(); i++) {
+                Object result = results.get(index++);
+                if (result instanceof Map<?, ?> values && !values.isEmpty()) {
+                    bet += parseLong(values.get(RtpCounterService.FIELD_BET));
+                    win += parseLong(values.get(RtpCounterService.FIELD_WIN));
+                    count += parseLong(values.get(RtpCounterService.FIELD_COUNT));
+                }
+            }
+            BigDecimal totalBet = RtpCounterService.fromMinorUnits(bet);
+            BigDecimal totalWin = RtpCounterService.fromMinorUnits(win);
+            windows.add(RtpWindowResponse.Window.builder()
+                    .window(resolution.getName())
+                    .seconds(resolution.getBucketSeconds() * resolution.getBuckets())
+                    .betCount(count)
+                    .totalBetAmount(totalBet.setScale(2, RoundingMode.HALF_UP))
+                    .totalWinAmount(totalWin.setScale(2, RoundingMode.HALF_UP))
+                    .rtp(bet > 0 ? totalWin.multiply(BigDecimal.valueOf(100))
+                            .divide(totalBet, 2, RoundingMode.HALF_UP).doubleValue() : null)
+                    .build());
+        }
+        return windows;
+    }
+
+    private TimeBucketRing ring(String scope) {
+        return rings.computeIfAbsent(scope, k -> new TimeBucketRing(RING_BUCKET_MILLIS, RING_SIZE));
+    }
+
+    private static String scopeKey(String scope, String id) {
+        return scope.toLowerCase() + ":" + id;
+    }
+
+    private static String bucketKey(String scope, Resolution resolution, long bucket) {
+        return RedisConstant.RTP_WINDOW_KEY_PREFIX + scope + ":" + resolution.getSuffix() + ":" + bucket;
+    }
+
+    private static long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * 視窗粒度
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    private static class Resolution {
+        /** 視窗名稱 */
+        private String name;
+        /** Redis key 粒度後綴 */
+        private String suffix;
+        /** 每桶秒數 */
+        private long bucketSeconds;
+        /** 視窗內桶數 */
+        private int buckets;
+        /** 桶的存活時間（秒） */
+        private long ttlSeconds;
+    }
+}
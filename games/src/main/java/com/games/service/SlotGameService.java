@@ -1,29 +1,36 @@
 package com.games.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.games.config.GameProperties;
+import com.games.cache.GameConfigRegistry;
 import com.games.config.SnowflakeIdGenerator;
 import com.games.constant.GlobeConstant;
 import com.games.constant.RedisConstant;
+import com.games.dto.BatchBetResponse;
 import com.games.dto.BetRecordsRequest;
 import com.games.dto.BetRecordsResponse;
 import com.games.dto.BetResponse;
-import com.games.dto.RtpUpdateMessage;
+import com.games.dto.TransactionMessage;
 import com.games.entity.Bet;
 import com.games.entity.Merchant;
 import com.games.entity.User;
+import com.games.enums.TransactionType;
 import com.games.lock.RedisLock;
 import com.games.repository.BetRepository;
-import com.games.repository.UserRepository;
-import com.games.rocketmq.producer.MessageProducerService;
+import com.games.rocketmq.producer.RtpUpdateAggregator;
+import com.games.slot.CompiledGameConfig;
+import com.games.slot.SlotEngine;
+import com.games.slot.SpinResultCodec;
+import com.games.slot.SpinRandom;
+import com.games.slot.SpinSeedGenerator;
+import com.games.util.MoneyUtils;
 import com.games.util.PageDataResUtil;
 import com.games.util.PageUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,7 +40,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,21 +49,33 @@ public class SlotGameService {
 
     private final BetRepository betRepository;
     private final GamesWalletService gamesWalletService;
-    private final MessageProducerService messageProducerService;
+    private final RtpUpdateAggregator rtpUpdateAggregator;
     private final SnowflakeIdGenerator idGenerator;
     private final RedisLock redisLock;
-    private final UserRepository userRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final GameConfigRegistry gameConfigRegistry;
+    private final SpinSeedGenerator spinSeedGenerator;
+    private final SpinReplayService spinReplayService;
+    private final JackpotService jackpotService;
+    private final RedisWalletService redisWalletService;
+    private final WalletLockService walletLockService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** 單次批次旋轉的最大次數 */
+    @Value("${game.slot.batch.max-spins:100}")
+    private int maxBatchSpins;
 
     @Transactional
-    public BetResponse placeBet(Merchant merchant, User user, String gameCode, BigDecimal betAmount) throws JsonProcessingException {
+    public BetResponse placeBet(Merchant merchant, User user, String gameCode, BigDecimal betAmount) {
         final Long userId = user.getId();  // 保存到 final 变量
         String lockKey = GlobeConstant.USER + GlobeConstant.SEMICOLON + merchant.getApiKey()
                 + GlobeConstant.SEMICOLON + RedisConstant.PLACE_BET + userId;
         String lockValue = UUID.randomUUID().toString();
+        // Redis 錢包模式由 Lua 原子扣款，不需要分布式鎖與悲觀鎖
+        boolean redisWallet = redisWalletService.isEnabled();
 
-        boolean locked = redisLock.tryLockWithRetry(lockKey,
+        boolean locked = redisWallet || redisLock.tryLockWithRetry(lockKey,
                 lockValue, 30, 3);
 
         if (!locked){
@@ -67,60 +85,77 @@ public class SlotGameService {
 
         try {
 
-            String json = (String) redisTemplate.opsForHash().get(RedisConstant.GAME_SETTING_ALL, gameCode);
-            GameProperties gameProperties = objectMapper.readValue(json, GameProperties.class);
-            // 使用悲观锁重新查询用户，确保数据库层面的并发安全
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+            if (gameConfig == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found: " + gameCode);
+            }
+            // 使用悲观锁重新查询用户，确保数据库层面的并发安全（Redis 錢包模式與樂觀更新不需要）
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPIN, merchant.getId(), user)
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
-            if (betAmount.compareTo(gameProperties.getMinBet()) < 0) {
-                throw new RuntimeException("Bet amount is below minimum: " + gameProperties.getMinBet());
+            // 金額以分（long）計算，只在寫入與回應時轉為 BigDecimal
+            long betCents = MoneyUtils.toCents(betAmount);
+            if (betCents < gameConfig.getMinBetCents()) {
+                throw new RuntimeException("Bet amount is below minimum: " + gameConfig.getMinBet());
             }
 
-            if (betAmount.compareTo(gameProperties.getMaxBet()) > 0) {
-                throw new RuntimeException("Bet amount exceeds maximum: " + gameProperties.getMaxBet());
+            if (betCents > gameConfig.getMaxBetCents()) {
+                throw new RuntimeException("Bet amount exceeds maximum: " + gameConfig.getMaxBet());
             }
 
-            if (lockedUser.getGameBalance().compareTo(betAmount) < 0) {
+            // Redis 錢包模式與樂觀更新的餘額檢查在結算時完成
+            if (walletLockService.needsRowLock(WalletLockService.Operation.SPIN) && MoneyUtils.toCents(lockedUser.getGameBalance()) < betCents) {
                 throw new RuntimeException("Insufficient balance");
             }
 
-            BigDecimal balanceBefore = lockedUser.getGameBalance();
+            // 以投注ID衍生種子，結果可由 (種子, 配置版本) 重現
+            long betId = idGenerator.nextId();
+            SlotEngine engine = gameConfig.getEngine();
+            int[] cells = new int[engine.cellCount()];
+            SpinRandom random = spinSeedGenerator.randomFor(betId);
+            engine.spin(random, cells);
 
-            List<String> spinLt = spin(gameProperties);
+            long winCents = engine.winCents(cells, betCents);
+            if (log.isDebugEnabled()) {
+                log.debug("Spin result: {}, win cents: {}", Arrays.toString(cells), winCents);
+            }
 
-            BigDecimal winAmount = calculateWinAmount(spinLt, betAmount, gameProperties);
-            boolean isWin = winAmount.compareTo(BigDecimal.ZERO) > 0;
+            // 彩金：提撥只寫本地計數器，觸發時才原子領取
+            jackpotService.contribute(gameConfig, betCents);
+            long jackpotCents = jackpotService.isTriggered(gameConfig, random)
+                    ? jackpotService.claim(gameConfig, userId, betId) : 0L;
+            boolean isWin = winCents > 0 || jackpotCents > 0;
+            BigDecimal winAmount = MoneyUtils.fromCents(winCents);
+            BigDecimal jackpotAmount = MoneyUtils.fromCents(jackpotCents);
 
             Bet bet = new Bet();
-            bet.setId(idGenerator.nextId());
+            bet.setId(betId);
             bet.setMerchant(merchant);
             bet.setUser(lockedUser);
             bet.setBetAmount(betAmount);
             bet.setWinAmount(winAmount);
-            Map<String, String> symbolDisplay = gameProperties.getSymbolDisplay();
-            List<String> spinResult = new ArrayList<>();
-            for (String symbol : spinLt) {
-                spinResult.add(symbolDisplay.get(symbol));
+            List<String> spinResult = new ArrayList<>(cells.length);
+            for (int symbol : cells) {
+                spinResult.add(engine.display(symbol));
             }
-            bet.setResult(String.join(",", spinResult));
+            bet.setResultData(SpinResultCodec.encode(cells));
             bet.setIsWin(isWin);
             bet.setGameCode(gameCode);
+            bet.setConfigVersion(gameConfig.getVersion());
+            bet.setJackpotAmount(jackpotAmount);
             bet = betRepository.save(bet);
 
-            gamesWalletService.deductBalance(merchant, lockedUser, betAmount, bet, "Slot game bet");
-
-            if (isWin) {
-                gamesWalletService.addBalance(merchant, lockedUser, winAmount, bet, "Slot game win");
-            }
-
-            // 使用异步消息更新 RTP 统计，提高性能
-            RtpUpdateMessage rtpMessage = new RtpUpdateMessage(betAmount, winAmount, gameCode);
-            messageProducerService.sendRtpUpdateMessage(rtpMessage);
+            long balanceAfterCents = gamesWalletService.settleSpin(merchant, lockedUser, betCents, winCents,
+                    jackpotCents, bet);
+            BigDecimal balanceBefore = MoneyUtils.fromCents(balanceAfterCents + betCents - winCents - jackpotCents);
+            BigDecimal balanceAfter = MoneyUtils.fromCents(balanceAfterCents);
 
-            BigDecimal balanceAfter = lockedUser.getGameBalance();
+            // RTP 统计在本地彙總後定時發送
+            rtpUpdateAggregator.record(gameCode, merchant.getId(), betCents, winCents + jackpotCents, 1);
 
-            String message = isWin
+            String message = jackpotCents > 0
+                    ? "Jackpot! You won " + jackpotAmount + "!"
+                    : isWin
                     ? "Congratulations! You won " + winAmount + "!"
                     : "Better luck next time!";
 
@@ -132,77 +167,197 @@ public class SlotGameService {
                     isWin,
                     balanceBefore,
                     balanceAfter,
-                    message
+                    message,
+                    jackpotAmount
             );
         } finally {
-            redisLock.releaseLock(lockKey, lockValue);
+            if (!redisWallet) {
+                redisLock.releaseLock(lockKey, lockValue);
+            }
         }
     }
 
-    private List<String> spin(GameProperties gameProperties) {
-        List<String> result = new ArrayList<>();
-
-        for (int i = 0; i < 3; i++) {
-            String symbol = getWeightedRandomSymbol(gameProperties);
-            result.add(symbol);
+    /**
+     * 批次旋轉（自動旋轉）
+     *
+     * 整批只取得一次分布式鎖與一次悲觀鎖，投注記錄批次寫入，
+     * 餘額只更新一次，交易流水與 RTP 統計以批次/彙總訊息發送。
+     * 餘額不足以支付下一次旋轉時提前停止。
+     */
+    @Transactional
+    public BatchBetResponse placeBatchBet(Merchant merchant, User user, String gameCode,
+                                          BigDecimal betAmount, int count) {
+        if (count < 1 || count > maxBatchSpins) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Spin count must be between 1 and " + maxBatchSpins);
         }
 
-        log.debug("Spin result: {}", result);
-        return result;
-    }
+        final Long userId = user.getId();
+        String lockKey = GlobeConstant.USER + GlobeConstant.SEMICOLON + merchant.getApiKey()
+                + GlobeConstant.SEMICOLON + RedisConstant.PLACE_BET + userId;
+        String lockValue = UUID.randomUUID().toString();
+        // Redis 錢包模式由 Lua 原子扣款，不需要分布式鎖與悲觀鎖
+        boolean redisWallet = redisWalletService.isEnabled();
 
-    private String getWeightedRandomSymbol(GameProperties gameProperties) {
-        Map<String, Double> weights = gameProperties.getSymbolWeights();
+        boolean locked = redisWallet || redisLock.tryLockWithRetry(lockKey,
+                lockValue, 30, 3);
 
-        // 計算總權重
-        double totalWeight = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (!locked){
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Could not acquire lock " + lockKey);
+        }
 
-        // 生成隨機數 [0, totalWeight)
-        double randomValue = ThreadLocalRandom.current().nextDouble(totalWeight);
+        try {
+            CompiledGameConfig gameConfig = gameConfigRegistry.get(gameCode);
+            if (gameConfig == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Game not found: " + gameCode);
+            }
+            // 使用悲观锁重新查询用户，整批只查询一次（Redis 錢包模式與樂觀更新不需要）
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.BATCH_SPIN,
+                            merchant.getId(), user)
+                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
-        log.debug("Total weight: {}, Random value: {}", totalWeight, randomValue);
+            // 金額以分（long）計算，只在寫入與回應時轉為 BigDecimal
+            long betCents = MoneyUtils.toCents(betAmount);
+            if (betCents < gameConfig.getMinBetCents()) {
+                throw new RuntimeException("Bet amount is below minimum: " + gameConfig.getMinBet());
+            }
 
-        // 累加權重找到對應符號
-        double currentWeight = 0;
-        for (Map.Entry<String, Double> entry : weights.entrySet()) {
-            currentWeight += entry.getValue();
-            if (randomValue < currentWeight) {
-                log.debug("Selected symbol: {} (weight: {}, accumulated: {})",
-                    entry.getKey(), entry.getValue(), currentWeight);
-                return entry.getKey();
+            if (betCents > gameConfig.getMaxBetCents()) {
+                throw new RuntimeException("Bet amount exceeds maximum: " + gameConfig.getMaxBet());
             }
-        }
 
-        // 備用：返回第一個符號（理論上不應到達這裡）
-        log.warn("Failed to select symbol by weight, using fallback");
-        return gameProperties.getSymbols().get(0);
-    }
+            // Redis 錢包模式與樂觀更新讀取目前餘額，結算時比對確認期間沒有其他變動
+            BigDecimal batchBalanceBefore;
+            if (redisWallet) {
+                batchBalanceBefore = MoneyUtils.fromCents(
+                        redisWalletService.balance(userId, RedisWalletService.FIELD_GAME));
+            } else if (walletLockService.isOptimistic(WalletLockService.Operation.BATCH_SPIN)) {
+                batchBalanceBefore = MoneyUtils.fromCents(
+                        walletLockService.balance(userId, WalletLockService.Balance.GAME));
+            } else {
+                batchBalanceBefore = lockedUser.getGameBalance();
+            }
+            long balance = MoneyUtils.toCents(batchBalanceBefore);
+            if (balance < betCents) {
+                throw new RuntimeException("Insufficient balance");
+            }
 
-    private BigDecimal calculateWinAmount(List<String> result, BigDecimal betAmount,
-                                          GameProperties gameProperties) {
-        String first = result.get(0);
-        String second = result.get(1);
-        String third = result.get(2);
+            SlotEngine engine = gameConfig.getEngine();
+            SpinRandom random = new SpinRandom(0L);
+            int[] cells = new int[engine.cellCount()];
+
+            long totalWin = 0L;
+            List<BetResponse> spins = new ArrayList<>(count);
+            List<TransactionMessage> transactions = new ArrayList<>(count * 2);
+
+            for (int i = 0; i < count && balance >= betCents; i++) {
+                long betId = idGenerator.nextId();
+                random.reset(spinSeedGenerator.seedFor(betId));
+                engine.spin(random, cells);
+                long winCents = engine.winCents(cells, betCents);
+                jackpotService.contribute(gameConfig, betCents);
+                long jackpotCents = jackpotService.isTriggered(gameConfig, random)
+                        ? jackpotService.claim(gameConfig, userId, betId) : 0L;
+                boolean isWin = winCents > 0 || jackpotCents > 0;
+                BigDecimal winAmount = MoneyUtils.fromCents(winCents);
+                BigDecimal jackpotAmount = MoneyUtils.fromCents(jackpotCents);
+
+                List<String> spinResult = new ArrayList<>(cells.length);
+                for (int symbol : cells) {
+                    spinResult.add(engine.display(symbol));
+                }
+
+                Bet bet = new Bet();
+                bet.setId(betId);
+                bet.setMerchant(merchant);
+                bet.setUser(lockedUser);
+                bet.setBetAmount(betAmount);
+                bet.setWinAmount(winAmount);
+                bet.setResultData(SpinResultCodec.encode(cells));
+                bet.setIsWin(isWin);
+                bet.setGameCode(gameCode);
+                bet.setConfigVersion(gameConfig.getVersion());
+                bet.setJackpotAmount(jackpotAmount);
+                // 直接 persist，配合 hibernate.jdbc.batch_size 於提交時批次寫入
+                entityManager.persist(bet);
+
+                BigDecimal balanceBefore = MoneyUtils.fromCents(balance);
+                balance -= betCents;
+                BigDecimal balanceAfter = MoneyUtils.fromCents(balance);
+                transactions.add(gamesWalletService.buildTransactionMessage(lockedUser, merchant,
+                        TransactionType.BET, betAmount, balanceBefore, balanceAfter, "Slot game bet", bet));
+                if (winCents > 0) {
+                    BigDecimal balanceBeforeWin = balanceAfter;
+                    balance += winCents;
+                    balanceAfter = MoneyUtils.fromCents(balance);
+                    transactions.add(gamesWalletService.buildTransactionMessage(lockedUser, merchant,
+                            TransactionType.WIN, winAmount, balanceBeforeWin, balanceAfter, "Slot game win", bet));
+                    totalWin += winCents;
+                }
+                if (jackpotCents > 0) {
+                    BigDecimal balanceBeforeJackpot = balanceAfter;
+                    balance += jackpotCents;
+                    balanceAfter = MoneyUtils.fromCents(balance);
+                    transactions.add(gamesWalletService.buildTransactionMessage(lockedUser, merchant,
+                            TransactionType.JACKPOT, jackpotAmount, balanceBeforeJackpot, balanceAfter,
+                            "Slot game jackpot", bet));
+                    totalWin += jackpotCents;
+                }
+
+                String message = jackpotCents > 0
+                        ? "Jackpot! You won " + jackpotAmount + "!"
+                        : isWin
+                        ? "Congratulations! You won " + winAmount + "!"
+                        : "Better luck next time!";
+                spins.add(new BetResponse(bet.getId(), spinResult, betAmount, winAmount, isWin,
+                        balanceBefore, balanceAfter, message, jackpotAmount));
+            }
 
-        Map<String, Double> payoutMultipliers = gameProperties.getPayoutMultipliers();
+            gamesWalletService.applyBatch(lockedUser, batchBalanceBefore, MoneyUtils.fromCents(balance), transactions);
 
-        if (first.equals(second) && second.equals(third)) {
-            Double multiplier = payoutMultipliers.get(first);
-            if (multiplier != null) {
-                BigDecimal winAmount = betAmount.multiply(BigDecimal.valueOf(multiplier));
-                log.debug("Three matches of {}: win amount = {} ({}x)", first, winAmount, multiplier);
-                return winAmount;
+            BigDecimal totalBet = MoneyUtils.fromCents(Math.multiplyExact(betCents, (long) spins.size()));
+            BigDecimal totalWinAmount = MoneyUtils.fromCents(totalWin);
+            rtpUpdateAggregator.record(gameCode, merchant.getId(), MoneyUtils.toCents(totalBet), totalWin,
+                    spins.size());
+
+            log.debug("Batch spin finished: userId={}, gameCode={}, spins={}, totalBet={}, totalWin={}",
+                    userId, gameCode, spins.size(), totalBet, totalWinAmount);
+
+            return new BatchBetResponse(spins.size(), totalBet, totalWinAmount, batchBalanceBefore,
+                    MoneyUtils.fromCents(balance), spins);
+        } finally {
+            if (!redisWallet) {
+                redisLock.releaseLock(lockKey, lockValue);
             }
         }
+    }
 
-        if (first.equals(second) || second.equals(third) || first.equals(third)) {
-            BigDecimal winAmount = betAmount.multiply(gameProperties.getTwoMatchMultiplier());
-            log.debug("Two matches: win amount = {} ({}x)", winAmount, gameProperties.getTwoMatchMultiplier());
-            return winAmount;
+    /**
+     * 取得投注結果的顯示字串
+     * 1. resultData：以投注時的配置版本解碼（記憶體中沒有時由配置歷史載入），仍找不到該版本時回傳 null
+     * 2. 舊資料：拆解逗號分隔字串
+     * 3. 皆無：以種子與配置版本重播
+     */
+    private List<String> resolveResult(Bet bet) {
+        if (bet.getResultData() != null) {
+            // 符號索引只對投注當時的配置有意義，找不到該版本時不能以目前配置解碼
+            CompiledGameConfig gameConfig = bet.getConfigVersion() != null
+                    ? gameConfigRegistry.get(bet.getGameCode(), bet.getConfigVersion())
+                    : null;
+            if (gameConfig == null) {
+                log.warn("Config version not available for bet result: betId={}, gameCode={}, configVersion={}",
+                        bet.getId(), bet.getGameCode(), bet.getConfigVersion());
+                return null;
+            }
+            List<String> decoded = SpinResultCodec.decode(bet.getResultData(), gameConfig.getEngine());
+            return decoded != null ? decoded : Collections.emptyList();
         }
-
-        log.debug("No matches: no win");
-        return BigDecimal.ZERO;
+        if (bet.getResult() != null && !bet.getResult().isEmpty()) {
+            return Arrays.asList(bet.getResult().split(","));
+        }
+        List<String> replayed = spinReplayService.replayDisplay(bet);
+        return replayed != null ? replayed : Collections.emptyList();
     }
 
     public PageDataResUtil<BetRecordsResponse> getBetRecords(User user, BetRecordsRequest request) {
@@ -235,11 +390,12 @@ public class SlotGameService {
             resp.setWinAmount(bet.getWinAmount());
             resp.setIsWin(bet.getIsWin());
             resp.setCreatedAt(bet.getCreatedAt());
-            // convert stored CSV result to list
-            if (bet.getResult() != null && !bet.getResult().isEmpty()) {
-                resp.setResult(Arrays.asList(bet.getResult().split(",")));
-            } else {
+            List<String> result = resolveResult(bet);
+            if (result == null) {
                 resp.setResult(Collections.emptyList());
+                resp.setResultError("Config version " + bet.getConfigVersion() + " is not available");
+            } else {
+                resp.setResult(result);
             }
             return resp;
         }).collect(Collectors.toList());
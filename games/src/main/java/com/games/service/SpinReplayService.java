@@ -0,0 +1,142 @@
+package com.games.service;
+
+import com.games.cache.GameConfigRegistry;
+import com.games.dto.SpinReplayResponse;
+import com.games.entity.Bet;
+import com.games.entity.User;
+import com.games.repository.BetRepository;
+import com.games.slot.CompiledGameConfig;
+import com.games.slot.SlotEngine;
+import com.games.slot.SpinResultCodec;
+import com.games.slot.SpinRandom;
+import com.games.slot.SpinSeedGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 旋轉重播服務
+ *
+ * 每注的隨機數串流由 betId 衍生的種子決定，搭配投注時的配置版本即可完整重現旋轉結果，
+ * 用於爭議處理與稽核。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpinReplayService {
+
+    private final BetRepository betRepository;
+    private final GameConfigRegistry gameConfigRegistry;
+    private final SpinSeedGenerator spinSeedGenerator;
+    private final JackpotService jackpotService;
+
+    /**
+     * 重播並驗證會員自己的投注
+     */
+    public SpinReplayResponse replay(User user, Long betId) {
+        Bet bet = betRepository.findById(betId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Bet not found"));
+        if (!bet.getUser().getId().equals(user.getId())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Bet not found");
+        }
+        return replay(bet);
+    }
+
+    /**
+     * 批次驗證，共用同一個隨機數產生器
+     */
+    public List<SpinReplayResponse> verify(List<Bet> bets) {
+        SpinRandom random = new SpinRandom(0L);
+        List<SpinReplayResponse> responses = new ArrayList<>(bets.size());
+        for (Bet bet : bets) {
+            responses.add(replay(bet, random));
+        }
+        return responses;
+    }
+
+    public SpinReplayResponse replay(Bet bet) {
+        return replay(bet, new SpinRandom(0L));
+    }
+
+    /**
+     * 重播旋轉結果的顯示字串，配置版本不可用時回傳 null
+     */
+    public List<String> replayDisplay(Bet bet) {
+        CompiledGameConfig gameConfig = findConfig(bet);
+        if (gameConfig == null) {
+            return null;
+        }
+        SlotEngine engine = gameConfig.getEngine();
+        int[] cells = new int[engine.cellCount()];
+        engine.spin(spinSeedGenerator.randomFor(bet.getId()), cells);
+        return display(engine, cells);
+    }
+
+    private SpinReplayResponse replay(Bet bet, SpinRandom random) {
+        SpinReplayResponse.SpinReplayResponseBuilder response = SpinReplayResponse.builder()
+                .betId(bet.getId())
+                .gameCode(bet.getGameCode())
+                .configVersion(bet.getConfigVersion())
+                .recordedWinAmount(bet.getWinAmount());
+
+        CompiledGameConfig gameConfig = findConfig(bet);
+        if (gameConfig == null) {
+            return response
+                    .message("Config version " + bet.getConfigVersion() + " is not available for replay")
+                    .build();
+        }
+
+        SlotEngine engine = gameConfig.getEngine();
+        int[] cells = new int[engine.cellCount()];
+        random.reset(spinSeedGenerator.seedFor(bet.getId()));
+        engine.spin(random, cells);
+        BigDecimal winAmount = engine.winAmount(cells, bet.getBetAmount());
+        boolean jackpotTriggered = jackpotService.isTriggered(gameConfig, random);
+        List<String> result = display(engine, cells);
+
+        // 彩金金額取決於當時池額無法重播，只驗證派彩的注確實觸發
+        boolean jackpotPaid = bet.getJackpotAmount() != null && bet.getJackpotAmount().signum() > 0;
+        boolean verified = winAmount.compareTo(bet.getWinAmount()) == 0 && matchesRecorded(bet, cells, result)
+                && (!jackpotPaid || jackpotTriggered);
+        if (!verified) {
+            log.warn("Spin replay mismatch: betId={}, configVersion={}, recorded={}, replayed={}",
+                    bet.getId(), bet.getConfigVersion(), bet.getResult(), result);
+        }
+
+        return response
+                .result(result)
+                .winAmount(winAmount)
+                .verified(verified)
+                .message(verified ? "OK" : "Replay does not match recorded result")
+                .build();
+    }
+
+    private boolean matchesRecorded(Bet bet, int[] cells, List<String> result) {
+        if (bet.getResultData() != null) {
+            return Arrays.equals(bet.getResultData(), SpinResultCodec.encode(cells));
+        }
+        return bet.getResult() == null || Arrays.asList(bet.getResult().split(",")).equals(result);
+    }
+
+    private CompiledGameConfig findConfig(Bet bet) {
+        if (bet.getConfigVersion() == null) {
+            return null;
+        }
+        return gameConfigRegistry.get(bet.getGameCode(), bet.getConfigVersion());
+    }
+
+    private List<String> display(SlotEngine engine, int[] cells) {
+        List<String> result = new ArrayList<>(cells.length);
+        for (int symbol : cells) {
+            result.add(engine.display(symbol));
+        }
+        return result;
+    }
+}
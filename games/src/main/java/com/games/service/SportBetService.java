@@ -7,7 +7,7 @@ import com.games.entity.*;
 import com.games.enums.*;
 import com.games.lock.RedisLock;
 import com.games.repository.*;
-import com.games.rocketmq.producer.MessageProducerService;
+import com.games.rocketmq.producer.OutboxService;
 import com.games.util.PageDataResUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -45,10 +45,12 @@ public class SportBetService {
     private final BetLegRepository betLegRepository;
     private final SportEventRepository sportEventRepository;
     private final MarketLineRepository marketLineRepository;
-    private final UserRepository userRepository;
     private final SportTransactionRepository sportTransactionRepository;
     private final RedisLock redisLock;
-    private final MessageProducerService messageProducerService;
+    private final OutboxService outboxService;
+    private final SportWalletService sportWalletService;
+    private final RedisWalletService redisWalletService;
+    private final WalletLockService walletLockService;
 
     // 最小串關腿數
     private static final int MIN_PARLAY_LEGS = 2;
@@ -76,8 +78,10 @@ public class SportBetService {
         String lockKey = GlobeConstant.USER + GlobeConstant.SEMICOLON + merchant.getApiKey()
                 + GlobeConstant.SEMICOLON + RedisConstant.PLACE_BET + "SPORT:" + userId;
         String lockValue = UUID.randomUUID().toString();
+        // Redis 錢包模式由 Lua 原子扣款，不需要分布式鎖與悲觀鎖
+        boolean redisWallet = redisWalletService.isEnabled();
 
-        boolean locked = redisLock.tryLockWithRetry(lockKey, lockValue, 30, 3);
+        boolean locked = redisWallet || redisLock.tryLockWithRetry(lockKey, lockValue, 30, 3);
         if (!locked) {
             throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "系統繁忙，請稍後再試");
         }
@@ -92,12 +96,13 @@ public class SportBetService {
             // 驗證投注金額
             validateStake(request.getStake());
 
-            // 使用悲觀鎖重新查詢用戶
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            // 使用悲觀鎖重新查詢用戶（Redis 錢包模式與樂觀更新不需要）
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPORT_BET,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "用戶不存在"));
 
-            // 驗證餘額
-            if (lockedUser.getSportBalance().compareTo(request.getStake()) < 0) {
+            // 驗證餘額（Redis 錢包模式與樂觀更新於扣款時檢查）
+            if (walletLockService.needsRowLock(WalletLockService.Operation.SPORT_BET) && lockedUser.getSportBalance().compareTo(request.getStake()) < 0) {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "餘額不足");
             }
 
@@ -111,10 +116,10 @@ public class SportBetService {
             BigDecimal potentialWin = calculatePotentialWin(request.getStake(), totalOdds);
 
             // 扣除餘額
-            BigDecimal balanceBefore = lockedUser.getSportBalance();
-            BigDecimal balanceAfter = balanceBefore.subtract(request.getStake());
-            lockedUser.setSportBalance(balanceAfter);
-            userRepository.save(lockedUser);
+            SportWalletService.BalanceChange change = sportWalletService.adjustSportBalance(
+                    WalletLockService.Operation.SPORT_BET, lockedUser, request.getStake().negate());
+            BigDecimal balanceBefore = change.getBalanceBefore();
+            BigDecimal balanceAfter = change.getBalanceAfter();
 
             // 建立投注主單
             SportBet sportBet = SportBet.builder()
@@ -155,7 +160,9 @@ public class SportBetService {
             return buildBetResponse(sportBet, betLegs, balanceAfter);
 
         } finally {
-            redisLock.releaseLock(lockKey, lockValue);
+            if (!redisWallet) {
+                redisLock.releaseLock(lockKey, lockValue);
+            }
         }
     }
 
@@ -269,10 +276,10 @@ public class SportBetService {
         // 派彩（如果有贏）
         if (winAmount.compareTo(BigDecimal.ZERO) > 0) {
             User user = sportBet.getUser();
-            BigDecimal balanceBefore = user.getSportBalance();
-            BigDecimal balanceAfter = balanceBefore.add(winAmount);
-            user.setSportBalance(balanceAfter);
-            userRepository.save(user);
+            SportWalletService.BalanceChange change = sportWalletService.adjustSportBalance(
+                    WalletLockService.Operation.SPORT_SETTLE, user, winAmount);
+            BigDecimal balanceBefore = change.getBalanceBefore();
+            BigDecimal balanceAfter = change.getBalanceAfter();
 
             SportTransaction transaction = SportTransaction.builder()
                     .merchant(sportBet.getMerchant())
@@ -341,16 +348,17 @@ public class SportBetService {
             // 驗證是否可取消
             validateCancelAllowed(sportBet);
 
-            // 使用悲觀鎖重新查詢用戶
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            // 使用悲觀鎖重新查詢用戶（Redis 錢包模式與樂觀更新不需要，分布式鎖仍保護投注單狀態）
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPORT_CANCEL,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "用戶不存在"));
 
             // 退還金額
             BigDecimal refundAmount = sportBet.getStake();
-            BigDecimal balanceBefore = lockedUser.getSportBalance();
-            BigDecimal balanceAfter = balanceBefore.add(refundAmount);
-            lockedUser.setSportBalance(balanceAfter);
-            userRepository.save(lockedUser);
+            SportWalletService.BalanceChange change = sportWalletService.adjustSportBalance(
+                    WalletLockService.Operation.SPORT_CANCEL, lockedUser, refundAmount);
+            BigDecimal balanceBefore = change.getBalanceBefore();
+            BigDecimal balanceAfter = change.getBalanceAfter();
 
             // 更新投注單狀態
             sportBet.setStatus(SportBetStatus.CANCELLED);
@@ -513,15 +521,16 @@ public class SportBetService {
                 }
             }
 
-            // 使用悲觀鎖重新查詢用戶
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            // 使用悲觀鎖重新查詢用戶（Redis 錢包模式與樂觀更新不需要，分布式鎖仍保護投注單狀態）
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPORT_CASHOUT,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "用戶不存在"));
 
             // 更新用戶餘額
-            BigDecimal balanceBefore = lockedUser.getSportBalance();
-            BigDecimal balanceAfter = balanceBefore.add(cashoutAmount);
-            lockedUser.setSportBalance(balanceAfter);
-            userRepository.save(lockedUser);
+            SportWalletService.BalanceChange change = sportWalletService.adjustSportBalance(
+                    WalletLockService.Operation.SPORT_CASHOUT, lockedUser, cashoutAmount);
+            BigDecimal balanceBefore = change.getBalanceBefore();
+            BigDecimal balanceAfter = change.getBalanceAfter();
 
             // 更新投注單狀態
             sportBet.setStatus(SportBetStatus.CASHED_OUT);
@@ -1236,23 +1245,19 @@ public class SportBetService {
     }
 
     /**
-     * 發送投注消息
+     * 發送投注消息（寫入 outbox，與投注同一交易提交）
      */
     private void sendBetMessage(SportBet sportBet, SportTransaction transaction) {
-        try {
-            SportTransactionMessage message = SportTransactionMessage.builder()
-                    .sportBetId(sportBet.getId())
-                    .userId(sportBet.getUser().getId())
-                    .merchantId(sportBet.getMerchant().getId())
-                    .type(transaction.getType().name())
-                    .amount(transaction.getAmount())
-                    .balanceAfter(transaction.getBalanceAfter())
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            messageProducerService.sendSportTransactionMessage(message);
-        } catch (Exception e) {
-            log.error("發送投注消息失敗", e);
-        }
+        SportTransactionMessage message = SportTransactionMessage.builder()
+                .sportBetId(sportBet.getId())
+                .userId(sportBet.getUser().getId())
+                .merchantId(sportBet.getMerchant().getId())
+                .type(transaction.getType().name())
+                .amount(transaction.getAmount())
+                .balanceAfter(transaction.getBalanceAfter())
+                .timestamp(LocalDateTime.now())
+                .build();
+        outboxService.enqueueSportTransaction(message);
     }
 
     /**
@@ -22,8 +22,8 @@ public class SportSettlementService {
     private final BetLegRepository betLegRepository;
     private final SportEventRepository sportEventRepository;
     private final SportTransactionRepository sportTransactionRepository;
-    private final UserRepository userRepository;
     private final OddsConversionService oddsConversionService;
+    private final SportWalletService sportWalletService;
 
     /**
      * 結算指定賽事的所有投注
@@ -423,11 +423,10 @@ public class SportSettlementService {
      */
     private void creditUserWallet(SportBet bet, BigDecimal amount) {
         User user = bet.getUser();
-        BigDecimal balanceBefore = user.getSportBalance();
-        BigDecimal balanceAfter = balanceBefore.add(amount);
-
-        user.setSportBalance(balanceAfter);
-        userRepository.save(user);
+        SportWalletService.BalanceChange change = sportWalletService.adjustSportBalance(
+                WalletLockService.Operation.SPORT_SETTLE, user, amount);
+        BigDecimal balanceBefore = change.getBalanceBefore();
+        BigDecimal balanceAfter = change.getBalanceAfter();
 
         // 記錄交易流水
         SportTransaction transaction = new SportTransaction();
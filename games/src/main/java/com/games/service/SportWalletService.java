@@ -9,7 +9,10 @@ import com.games.entity.User;
 import com.games.enums.SportTransactionType;
 import com.games.lock.RedisLock;
 import com.games.repository.UserRepository;
-import com.games.rocketmq.producer.MessageProducerService;
+import com.games.rocketmq.producer.OutboxService;
+import com.games.util.MoneyUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -26,8 +29,46 @@ import java.util.UUID;
 public class SportWalletService {
 
     private final UserRepository userRepository;
-    private final MessageProducerService messageProducerService;
+    private final OutboxService outboxService;
     private final RedisLock redisLock;
+    private final RedisWalletService redisWalletService;
+    private final WalletLockService walletLockService;
+
+    /**
+     * 變動體育餘額（正數入帳、負數扣款），餘額不足時拋出 400
+     * DB 模式：傳入的 user 必須已透過 WalletLockService.resolveUser 取得（悲觀鎖）；
+     * 該操作使用樂觀更新時以條件式 UPDATE 更新，不修改受管理的 user；
+     * Redis 錢包模式：以 Lua 原子更新，不修改受管理的 user，資料庫交易回滾時自動補償
+     */
+    public BalanceChange adjustSportBalance(WalletLockService.Operation operation, User user, BigDecimal amount) {
+        if (redisWalletService.isEnabled()) {
+            RedisWalletService.Change change = redisWalletService.apply(user.getId(),
+                    RedisWalletService.FIELD_SPORT, MoneyUtils.toCents(amount));
+            if (change.isInsufficient()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "餘額不足");
+            }
+            return new BalanceChange(MoneyUtils.fromCents(change.getBalanceBefore()),
+                    MoneyUtils.fromCents(change.getBalanceAfter()));
+        }
+        if (walletLockService.isOptimistic(operation)) {
+            WalletLockService.Result result = walletLockService.apply(operation, user.getId(),
+                    WalletLockService.Balance.SPORT, MoneyUtils.toCents(amount));
+            if (result.isInsufficient()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "餘額不足");
+            }
+            return new BalanceChange(MoneyUtils.fromCents(result.getBalanceBefore()),
+                    MoneyUtils.fromCents(result.getBalanceAfter()));
+        }
+
+        BigDecimal balanceBefore = user.getSportBalance();
+        BigDecimal balanceAfter = balanceBefore.add(amount);
+        if (balanceAfter.signum() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "餘額不足");
+        }
+        user.setSportBalance(balanceAfter);
+        userRepository.save(user);
+        return new BalanceChange(balanceBefore, balanceAfter);
+    }
 
     public void createSportTransaction(User user, Merchant merchant,
                                        SportTransactionType type, BigDecimal amount, BigDecimal balanceBefore,
@@ -43,8 +84,8 @@ public class SportWalletService {
                 .description(description)
                 .timestamp(java.time.LocalDateTime.now())
                 .build();
-        messageProducerService.sendSportTransactionMessage(message);
-        log.debug("Sport transaction message sent for user: {}, type: {}", user.getId(), type);
+        outboxService.enqueueSportTransaction(message);
+        log.debug("Sport transaction message queued for user: {}, type: {}", user.getId(), type);
     }
 
     @Transactional
@@ -65,8 +106,17 @@ public class SportWalletService {
         }
 
         try {
+            if (!walletLockService.needsRowLock(WalletLockService.Operation.SPORT_DEPOSIT)) {
+                BalanceChange change = adjustSportBalance(WalletLockService.Operation.SPORT_DEPOSIT, user, amount);
+                User updated = withSportBalance(user, change.getBalanceAfter());
+                createSportTransaction(updated, merchant, SportTransactionType.SPORT_DEPOSIT, amount,
+                        change.getBalanceBefore(), change.getBalanceAfter(), "Sport deposit to wallet", null);
+                return updated;
+            }
+
             // 使用悲观锁重新查询用户，确保数据库层面的并发安全
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPORT_DEPOSIT,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
             BigDecimal balanceBefore = lockedUser.getSportBalance();
@@ -100,8 +150,35 @@ public class SportWalletService {
         }
 
         try {
+            if (redisWalletService.isEnabled()) {
+                RedisWalletService.Change change = redisWalletService.withdrawAll(userId,
+                        RedisWalletService.FIELD_SPORT);
+                if (change == null) {
+                    throw new RuntimeException("No balance to withdraw");
+                }
+                BigDecimal withdrawAmount = MoneyUtils.fromCents(change.getBalanceBefore());
+                User updated = withSportBalance(user, BigDecimal.ZERO);
+                createSportTransaction(updated, merchant, SportTransactionType.SPORT_WITHDRAW, withdrawAmount,
+                        withdrawAmount, BigDecimal.ZERO, "Sport withdraw all balance", null);
+                return updated;
+            }
+
+            if (walletLockService.isOptimistic(WalletLockService.Operation.SPORT_WITHDRAW)) {
+                WalletLockService.Result result = walletLockService.withdrawAll(
+                        WalletLockService.Operation.SPORT_WITHDRAW, userId, WalletLockService.Balance.SPORT);
+                if (result == null) {
+                    throw new RuntimeException("No balance to withdraw");
+                }
+                BigDecimal withdrawAmount = MoneyUtils.fromCents(result.getBalanceBefore());
+                User updated = withSportBalance(user, BigDecimal.ZERO);
+                createSportTransaction(updated, merchant, SportTransactionType.SPORT_WITHDRAW, withdrawAmount,
+                        withdrawAmount, BigDecimal.ZERO, "Sport withdraw all balance", null);
+                return updated;
+            }
+
             // 使用悲观锁重新查询用户，确保数据库层面的并发安全
-            User lockedUser = userRepository.findByIdWithLock(merchant.getId(), userId)
+            User lockedUser = walletLockService.resolveUser(WalletLockService.Operation.SPORT_WITHDRAW,
+                            merchant.getId(), user)
                     .orElseThrow(() -> new RuntimeException("User not found: " + userId));
 
             BigDecimal balanceBefore = lockedUser.getSportBalance();
@@ -121,4 +198,27 @@ public class SportWalletService {
         }
         return user;
     }
+
+    /**
+     * Redis 錢包模式與樂觀更新下不修改受管理的 User（避免提交時覆寫 users 餘額），回傳帶有新餘額的副本
+     */
+    private static User withSportBalance(User user, BigDecimal sportBalance) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setMerchant(user.getMerchant());
+        copy.setUsername(user.getUsername());
+        copy.setGameBalance(user.getGameBalance());
+        copy.setSportBalance(sportBalance);
+        return copy;
+    }
+
+    /**
+     * 餘額變動前後
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class BalanceChange {
+        private final BigDecimal balanceBefore;
+        private final BigDecimal balanceAfter;
+    }
 }
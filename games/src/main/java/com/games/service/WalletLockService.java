@@ -0,0 +1,293 @@
+package com.games.service;
+
+import com.games.entity.User;
+import com.games.repository.UserRepository;
+import com.games.util.MoneyUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * 錢包列鎖策略
+ *
+ * - PESSIMISTIC：SELECT ... FOR UPDATE，列鎖從查詢一直持有到交易結束（含期間的 Redis 與 MQ 呼叫）
+ * - OPTIMISTIC：條件式 UPDATE（version 相同且餘額足夠）搭配有限次數重試，列鎖只從 UPDATE 持有到提交；
+ *   applyLast 把 UPDATE 延後到交易最後，流水等其餘寫入不在列鎖持有期間
+ *
+ * 依操作類型以 game.wallet.optimistic-operations 選擇，未列出的操作維持悲觀鎖；Redis 錢包模式優先於兩者。
+ * 兩種策略都記錄列鎖持有時間 wallet.row.lock（tag：operation、strategy）可直接比較，
+ * 樂觀策略另記錄每次更新的重試次數 wallet.optimistic.retries。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletLockService {
+
+    private static final String STRATEGY_PESSIMISTIC = "pessimistic";
+    private static final String STRATEGY_OPTIMISTIC = "optimistic";
+
+    /**
+     * 會變動餘額的操作類型
+     */
+    public enum Operation {
+        SPIN,
+        BATCH_SPIN,
+        SPORT_BET,
+        SPORT_CANCEL,
+        SPORT_CASHOUT,
+        SPORT_SETTLE,
+        GAME_DEPOSIT,
+        GAME_WITHDRAW,
+        SPORT_DEPOSIT,
+        SPORT_WITHDRAW
+    }
+
+    /**
+     * 餘額類型
+     */
+    public enum Balance {
+        GAME,
+        SPORT
+    }
+
+    private final UserRepository userRepository;
+    private final RedisWalletService redisWalletService;
+    private final MeterRegistry meterRegistry;
+
+    /** 使用樂觀更新的操作（逗號分隔），例如 SPIN,SPORT_BET */
+    @Value("${game.wallet.optimistic-operations:}")
+    private Set<Operation> optimisticOperations = EnumSet.noneOf(Operation.class);
+
+    /** 樂觀更新衝突時的最大重試次數 */
+    @Value("${game.wallet.optimistic-max-retries:5}")
+    private int maxRetries;
+
+    public boolean isOptimistic(Operation operation) {
+        return !redisWalletService.isEnabled() && optimisticOperations.contains(operation);
+    }
+
+    /**
+     * 是否需要 SELECT ... FOR UPDATE
+     */
+    public boolean needsRowLock(Operation operation) {
+        return !redisWalletService.isEnabled() && !optimisticOperations.contains(operation);
+    }
+
+    /**
+     * 取得本次操作使用的用戶
+     * 悲觀策略以 SELECT ... FOR UPDATE 重新查詢並開始記錄列鎖時間；樂觀策略與 Redis 錢包模式直接使用傳入的 user
+     */
+    public Optional<User> resolveUser(Operation operation, Long merchantId, User user) {
+        if (!needsRowLock(operation)) {
+            return Optional.of(user);
+        }
+        Optional<User> locked = userRepository.findByIdWithLock(merchantId, user.getId());
+        locked.ifPresent(u -> recordRowLock(operation, STRATEGY_PESSIMISTIC));
+        return locked;
+    }
+
+    /**
+     * 目前餘額（分），直接讀取主庫
+     */
+    public long balance(Long userId, Balance balance) {
+        UserRepository.WalletSnapshot snapshot = snapshot(userId);
+        return MoneyUtils.toCents(balanceOf(snapshot, balance));
+    }
+
+    /**
+     * 樂觀更新：依序套用金額（分，負數為扣款），任一步驟餘額為負即拒絕
+     * version 衝突時重新讀取並重試，超過次數回傳 409
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Result apply(Operation operation, Long userId, Balance balance, long... amounts) {
+        long total = 0L;
+        long lowest = 0L;
+        for (long amount : amounts) {
+            total = Math.addExact(total, amount);
+            lowest = Math.min(lowest, total);
+        }
+
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            UserRepository.WalletSnapshot snapshot = snapshot(userId);
+            long before = MoneyUtils.toCents(balanceOf(snapshot, balance));
+            if (before + lowest < 0) {
+                recordRetries(operation, attempt);
+                return new Result(false, before, before);
+            }
+            if (update(userId, balance, total, -lowest, snapshot.getVersion())) {
+                recordRetries(operation, attempt);
+                recordRowLock(operation, STRATEGY_OPTIMISTIC);
+                return new Result(true, before, before + total);
+            }
+        }
+        recordRetries(operation, maxRetries + 1);
+        log.warn("Optimistic wallet update gave up: operation={}, userId={}, retries={}",
+                operation, userId, maxRetries);
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Wallet update conflict, please retry");
+    }
+
+    /**
+     * 樂觀更新（UPDATE 延後到最後）：先以讀取到的套用前餘額（分）執行 prepare（例如寫入流水），
+     * 最後才以條件式 UPDATE 套用金額，列鎖只從這個 UPDATE 持有到提交；
+     * version 衝突時以 rollback 撤銷 prepare 的結果後重新讀取並重試，超過次數回傳 409
+     *
+     * @return 餘額不足時 applied 為 false，且不會呼叫 prepare
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> Result applyLast(Operation operation, Long userId, Balance balance,
+                                LongFunction<T> prepare, Consumer<T> rollback, long... amounts) {
+        long total = 0L;
+        long lowest = 0L;
+        for (long amount : amounts) {
+            total = Math.addExact(total, amount);
+            lowest = Math.min(lowest, total);
+        }
+
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            UserRepository.WalletSnapshot snapshot = snapshot(userId);
+            long before = MoneyUtils.toCents(balanceOf(snapshot, balance));
+            if (before + lowest < 0) {
+                recordRetries(operation, attempt);
+                return new Result(false, before, before);
+            }
+            T prepared = prepare.apply(before);
+            if (update(userId, balance, total, -lowest, snapshot.getVersion())) {
+                recordRetries(operation, attempt);
+                recordRowLock(operation, STRATEGY_OPTIMISTIC);
+                return new Result(true, before, before + total);
+            }
+            rollback.accept(prepared);
+        }
+        recordRetries(operation, maxRetries + 1);
+        log.warn("Optimistic wallet update gave up: operation={}, userId={}, retries={}",
+                operation, userId, maxRetries);
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Wallet update conflict, please retry");
+    }
+
+    /**
+     * 樂觀更新（比對餘額）：餘額必須仍為 expectedBalance，否則回傳 409，不重試
+     * 用於已依 expectedBalance 計算好流水的整批結算
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Result applyIfBalance(Operation operation, Long userId, Balance balance, long expectedBalance,
+                                 long amount) {
+        UserRepository.WalletSnapshot snapshot = snapshot(userId);
+        long before = MoneyUtils.toCents(balanceOf(snapshot, balance));
+        if (before != expectedBalance || before + amount < 0
+                || !update(userId, balance, amount, Math.max(0L, -amount), snapshot.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Balance changed during batch spin");
+        }
+        recordRowLock(operation, STRATEGY_OPTIMISTIC);
+        return new Result(true, before, before + amount);
+    }
+
+    /**
+     * 樂觀更新：提領全部餘額，無餘額時回傳 null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Result withdrawAll(Operation operation, Long userId, Balance balance) {
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            UserRepository.WalletSnapshot snapshot = snapshot(userId);
+            long before = MoneyUtils.toCents(balanceOf(snapshot, balance));
+            if (before <= 0) {
+                recordRetries(operation, attempt);
+                return null;
+            }
+            if (update(userId, balance, -before, before, snapshot.getVersion())) {
+                recordRetries(operation, attempt);
+                recordRowLock(operation, STRATEGY_OPTIMISTIC);
+                return new Result(true, before, 0L);
+            }
+        }
+        recordRetries(operation, maxRetries + 1);
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Wallet update conflict, please retry");
+    }
+
+    private boolean update(Long userId, Balance balance, long delta, long required, Long version) {
+        BigDecimal amount = MoneyUtils.fromCents(delta);
+        BigDecimal minimum = MoneyUtils.fromCents(required);
+        int updated = balance == Balance.GAME
+                ? userRepository.addGameBalanceIfVersion(userId, amount, minimum, version)
+                : userRepository.addSportBalanceIfVersion(userId, amount, minimum, version);
+        return updated == 1;
+    }
+
+    private UserRepository.WalletSnapshot snapshot(Long userId) {
+        return userRepository.findWalletSnapshot(userId)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+    }
+
+    private static BigDecimal balanceOf(UserRepository.WalletSnapshot snapshot, Balance balance) {
+        return balance == Balance.GAME ? snapshot.getGameBalance() : snapshot.getSportBalance();
+    }
+
+    /**
+     * 記錄列鎖持有時間：從取得列鎖到交易結束
+     */
+    private void recordRowLock(Operation operation, String strategy) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        long start = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Timer.builder("wallet.row.lock")
+                        .description("Time a users row stays locked by a wallet update")
+                        .tag("operation", operation.name())
+                        .tag("strategy", strategy)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private void recordRetries(Operation operation, int retries) {
+        DistributionSummary.builder("wallet.optimistic.retries")
+                .description("Version conflicts retried per optimistic wallet update")
+                .tag("operation", operation.name())
+                .register(meterRegistry)
+                .record(retries);
+    }
+
+    /**
+     * 樂觀更新結果（金額皆為分）
+     */
+    @Getter
+    public static class Result {
+
+        private final boolean applied;
+        private final long balanceBefore;
+        private final long balanceAfter;
+
+        private Result(boolean applied, long balanceBefore, long balanceAfter) {
+            this.applied = applied;
+            this.balanceBefore = balanceBefore;
+            this.balanceAfter = balanceAfter;
+        }
+
+        public boolean isInsufficient() {
+            return !applied;
+        }
+    }
+}
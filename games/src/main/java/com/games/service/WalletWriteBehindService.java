@@ -0,0 +1,369 @@
+package com.games.service;
+
+import com.games.constant.RedisConstant;
+import com.games.entity.User;
+import com.games.repository.UserRepository;
+import com.games.repository.WalletOpRepository;
+import com.games.util.MoneyUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Redis 錢包寫回（write-behind）
+ *
+ * 1. 以 consumer group 讀取 wallet:stream:{partition}，同一批內每位用戶只保留序號最大的變更
+ * 2. 以 wallet_seq < :seq 為條件更新 users，重複或亂序的寫回不會覆蓋較新的餘額
+ * 3. 資料庫提交後才 XACK，再把串流裁剪到群組已確認的位置（不會裁掉未確認的變更）；
+ *    節點當機時未確認的變更在閒置逾時後由其他節點認領（XCLAIM）重新寫回
+ * 4. 對帳：比對 Redis 與資料庫的序號，Redis 序號落後（例如從舊快照還原）時以資料庫覆寫；
+ *    序號相同但餘額不同時記錄錯誤
+ * 5. 孤兒變更：wallet:ops:{partition} 中逾時仍未結案的變更，wallet_ops 有紀錄表示交易已提交，
+ *    直接結案；沒有紀錄表示扣款後交易未提交（節點異常終止），退回餘額
+ *
+ * 交易流水維持原本的管道（老虎機經 RocketMQ、體育在投注交易內寫入），這裡只負責 users 餘額。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletWriteBehindService {
+
+    private static final String FIELD_USER_ID = "userId";
+
+    /** 對帳時每批比對的錢包數 */
+    private static final int RECONCILE_BATCH = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisWalletService redisWalletService;
+    private final UserRepository userRepository;
+    private final WalletOpRepository walletOpRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /** 每個行程唯一的消費者名稱，重啟後舊名稱的未確認變更由認領流程接手 */
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final Map<Integer, Boolean> groupReady = new ConcurrentHashMap<>();
+
+    @Value("${game.wallet.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${game.wallet.write-behind.claim-idle-ms:30000}")
+    private long claimIdleMs;
+
+    /** 變更超過此時間仍未結案即視為所屬交易已中斷 */
+    @Value("${game.wallet.orphan-timeout-ms:300000}")
+    private long orphanTimeoutMs;
+
+    /** wallet_ops 紀錄保留時間，需遠大於 orphan-timeout-ms */
+    @Value("${game.wallet.op-retention-hours:24}")
+    private long opRetentionHours;
+
+    /**
+     * 定時讀取新變更並寫回資料庫
+     */
+    @Scheduled(fixedDelayString = "${game.wallet.write-behind.interval-ms:200}")
+    public void drain() {
+        if (!redisWalletService.isEnabled()) {
+            return;
+        }
+        for (int partition = 0; partition < redisWalletService.getStreamPartitions(); partition++) {
+            String stream = RedisWalletService.streamKey(partition);
+            try {
+                ensureGroup(partition, stream);
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                        Consumer.from(RedisConstant.WALLET_CONSUMER_GROUP, consumerName),
+                        StreamReadOptions.empty().count(batchSize),
+                        StreamOffset.create(stream, ReadOffset.lastConsumed()));
+                persist(stream, records);
+            } catch (Exception e) {
+                log.warn("Failed to write back wallet stream {}, will retry: {}", stream, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 認領閒置過久的未確認變更（其他節點當機或本節點重啟前未完成的批次）
+     */
+    @Scheduled(fixedDelayString = "${game.wallet.write-behind.claim-interval-ms:10000}")
+    public void claimPending() {
+        if (!redisWalletService.isEnabled()) {
+            return;
+        }
+        for (int partition = 0; partition < redisWalletService.getStreamPartitions(); partition++) {
+            String stream = RedisWalletService.streamKey(partition);
+            try {
+                ensureGroup(partition, stream);
+                PendingMessages pending = stringRedisTemplate.opsForStream().pending(stream,
+                        RedisConstant.WALLET_CONSUMER_GROUP, Range.unbounded(), batchSize);
+                List<RecordId> ids = new ArrayList<>();
+                for (PendingMessage message : pending) {
+                    if (message.getElapsedTimeSinceLastDelivery().toMillis() >= claimIdleMs) {
+                        ids.add(message.getId());
+                    }
+                }
+                if (ids.isEmpty()) {
+                    continue;
+                }
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().claim(stream,
+                        RedisConstant.WALLET_CONSUMER_GROUP, consumerName,
+                        XClaimOptions.minIdle(Duration.ofMillis(claimIdleMs)).ids(ids.toArray(new RecordId[0])));
+                log.info("Claimed {} pending wallet changes from {}", records.size(), stream);
+                persist(stream, records);
+            } catch (Exception e) {
+                log.warn("Failed to claim pending wallet changes from {}: {}", stream, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 對帳：逐批比對 Redis 錢包與 users 的序號與餘額
+     */
+    @Scheduled(fixedDelayString = "${game.wallet.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!redisWalletService.isEnabled()) {
+            return;
+        }
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisConstant.WALLET_KEY_PREFIX + "*")
+                .count(RECONCILE_BATCH)
+                .build();
+        int[] stats = new int[2];
+        List<Long> userIds = new ArrayList<>(RECONCILE_BATCH);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                userIds.add(Long.parseLong(cursor.next().substring(RedisConstant.WALLET_KEY_PREFIX.length())));
+                if (userIds.size() >= RECONCILE_BATCH) {
+                    reconcileBatch(userIds, stats);
+                    userIds.clear();
+                }
+            }
+            if (!userIds.isEmpty()) {
+                reconcileBatch(userIds, stats);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reconcile wallets: {}", e.getMessage());
+            return;
+        }
+        if (stats[0] > 0 || stats[1] > 0) {
+            log.warn("Wallet reconciliation finished: restored={}, mismatched={}", stats[0], stats[1]);
+        }
+    }
+
+    /**
+     * 處理逾時未結案的變更：交易已提交（wallet_ops 有紀錄）則結案，否則退回
+     */
+    @Scheduled(fixedDelayString = "${game.wallet.orphan-check-interval-ms:30000}")
+    public void recoverOrphans() {
+        if (!redisWalletService.isEnabled()) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - orphanTimeoutMs;
+        int refunded = 0;
+        for (int partition = 0; partition < redisWalletService.getStreamPartitions(); partition++) {
+            String key = RedisWalletService.opsKey(partition);
+            try {
+                Map<Long, String[]> expired = new HashMap<>();
+                for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(key).entrySet()) {
+                    // userId:field:amount:timestamp
+                    String[] op = entry.getValue().toString().split(":");
+                    if (Long.parseLong(op[3]) <= deadline) {
+                        expired.put(Long.valueOf(entry.getKey().toString()), op);
+                    }
+                }
+                if (expired.isEmpty()) {
+                    continue;
+                }
+                Set<Long> committed = new HashSet<>(walletOpRepository.findCommittedIds(expired.keySet()));
+                for (Map.Entry<Long, String[]> entry : expired.entrySet()) {
+                    long opId = entry.getKey();
+                    String[] op = entry.getValue();
+                    Long userId = Long.valueOf(op[0]);
+                    if (committed.contains(opId)) {
+                        redisWalletService.complete(opId, userId);
+                    } else if (redisWalletService.refund(opId, userId, op[1], Long.parseLong(op[2]))) {
+                        refunded++;
+                        log.warn("Orphaned wallet change refunded: opId={}, userId={}, field={}, amount={}",
+                                opId, userId, op[1], op[2]);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to recover orphaned wallet changes from {}: {}", key, e.getMessage());
+            }
+        }
+        if (refunded > 0) {
+            log.warn("Orphaned wallet changes refunded: {}", refunded);
+        }
+
+        try {
+            walletOpRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(opRetentionHours));
+        } catch (Exception e) {
+            log.warn("Failed to purge wallet ops: {}", e.getMessage());
+        }
+    }
+
+    private void reconcileBatch(List<Long> userIds, int[] stats) {
+        List<Object> values = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long userId : userIds) {
+                conn.hMGet(RedisWalletService.walletKey(userId), RedisWalletService.FIELD_GAME,
+                        RedisWalletService.FIELD_SPORT, RedisWalletService.FIELD_SEQ);
+            }
+            return null;
+        });
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            User user = users.get(userId);
+            List<?> fields = (List<?>) values.get(i);
+            if (user == null || fields == null || fields.get(2) == null) {
+                continue;
+            }
+            long redisGame = parseLong(fields.get(0));
+            long redisSport = parseLong(fields.get(1));
+            long redisSeq = parseLong(fields.get(2));
+            long dbSeq = user.getWalletSeq() != null ? user.getWalletSeq() : 0L;
+            long dbGame = MoneyUtils.toCents(user.getGameBalance());
+            long dbSport = MoneyUtils.toCents(user.getSportBalance());
+
+            if (redisSeq < dbSeq) {
+                // Redis 落後資料庫（資料遺失或由舊快照還原），以資料庫為準
+                if (redisWalletService.reset(userId, redisSeq, dbGame, dbSport, dbSeq)) {
+                    stats[0]++;
+                    log.warn("Wallet restored from database: userId={}, redisSeq={}, dbSeq={}",
+                            userId, redisSeq, dbSeq);
+                }
+            } else if (redisSeq == dbSeq && (redisGame != dbGame || redisSport != dbSport)) {
+                // 序號相同餘額卻不同：資料庫在錢包之外被修改
+                stats[1]++;
+                log.error("Wallet mismatch: userId={}, seq={}, redis=({}, {}), db=({}, {})",
+                        userId, redisSeq, redisGame, redisSport, dbGame, dbSport);
+            }
+        }
+    }
+
+    /**
+     * 寫回一批變更，資料庫提交後才確認
+     */
+    private void persist(String stream, List<MapRecord<String, Object, Object>> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Map<Long, WalletState> latest = new HashMap<>();
+        List<RecordId> ids = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            ids.add(record.getId());
+            Map<Object, Object> value = record.getValue();
+            WalletState state = new WalletState(
+                    parseLong(value.get(FIELD_USER_ID)),
+                    parseLong(value.get(RedisWalletService.FIELD_SEQ)),
+                    parseLong(value.get(RedisWalletService.FIELD_GAME)),
+                    parseLong(value.get(RedisWalletService.FIELD_SPORT)));
+            latest.merge(state.getUserId(), state, (a, b) -> a.getSeq() >= b.getSeq() ? a : b);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (WalletState state : latest.values()) {
+                userRepository.updateWalletBalances(state.getUserId(),
+                        MoneyUtils.fromCents(state.getGame()),
+                        MoneyUtils.fromCents(state.getSport()),
+                        state.getSeq());
+            }
+        });
+        stringRedisTemplate.opsForStream().acknowledge(stream, RedisConstant.WALLET_CONSUMER_GROUP,
+                ids.toArray(new RecordId[0]));
+        log.debug("Wallet changes written back: stream={}, records={}, users={}", stream, records.size(),
+                latest.size());
+        trim(stream);
+    }
+
+    /**
+     * 裁剪已確認的變更：保留最早的未確認變更（無未確認時為群組最後讀取的位置）之後的所有項目
+     * XTRIM MINID 需 Redis 6.2 以上
+     */
+    private void trim(String stream) {
+        try {
+            String minId;
+            PendingMessagesSummary pending = stringRedisTemplate.opsForStream()
+                    .pending(stream, RedisConstant.WALLET_CONSUMER_GROUP);
+            if (pending != null && pending.getTotalPendingMessages() > 0) {
+                minId = pending.minMessageId();
+            } else {
+                minId = stringRedisTemplate.opsForStream().groups(stream).stream()
+                        .filter(group -> RedisConstant.WALLET_CONSUMER_GROUP.equals(group.groupName()))
+                        .map(StreamInfo.XInfoGroup::lastDeliveredId)
+                        .findFirst()
+                        .orElse(null);
+            }
+            if (minId == null || "0-0".equals(minId)) {
+                return;
+            }
+            String trimTo = minId;
+            stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    ((StringRedisConnection) connection).execute("XTRIM", stream, "MINID", "~", trimTo));
+        } catch (Exception e) {
+            log.debug("Failed to trim wallet stream {}: {}", stream, e.getMessage());
+        }
+    }
+
+    private void ensureGroup(int partition, String stream) {
+        if (groupReady.containsKey(partition)) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForStream().createGroup(stream, ReadOffset.from("0"),
+                    RedisConstant.WALLET_CONSUMER_GROUP);
+        } catch (Exception e) {
+            // 群組已存在（BUSYGROUP）
+            log.debug("Wallet consumer group already exists for {}: {}", stream, e.getMessage());
+        }
+        groupReady.put(partition, Boolean.TRUE);
+    }
+
+    private static long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    private static class WalletState {
+        private long userId;
+        private long seq;
+        private long game;
+        private long sport;
+    }
+}
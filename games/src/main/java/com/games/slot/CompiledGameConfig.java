@@ -0,0 +1,66 @@
+package com.games.slot;
+
+import com.games.config.GameProperties;
+import com.games.util.MoneyUtils;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 編譯後的遊戲配置（不可變）
+ *
+ * 旋轉路徑所需的一切都在建立時準備好：下注上下限、老虎機引擎與配置版本，
+ * 熱路徑上不再需要讀取 Redis 或反序列化 JSON。
+ * 金額相關欄位另外預先轉為整數（分、ppm），旋轉時直接以 long 比較與計算。
+ */
+@Getter
+public final class CompiledGameConfig {
+
+    private final String gameCode;
+    /** 配置版本（對應 game_setting.version） */
+    private final long version;
+    private final BigDecimal minBet;
+    private final BigDecimal maxBet;
+    /** 下注上下限（分） */
+    private final long minBetCents;
+    private final long maxBetCents;
+    private final Double targetRtp;
+    private final Double theoreticalRtp;
+    private final SlotEngine engine;
+    /** 彩金提撥比例，0 表示不啟用 */
+    private final BigDecimal jackpotRate;
+    /** 彩金提撥比例（百萬分之一） */
+    private final long jackpotRatePpm;
+    private final double jackpotTriggerProbability;
+    private final BigDecimal jackpotSeed;
+    /** 原始配置，僅供唯讀使用 */
+    private final GameProperties properties;
+
+    private CompiledGameConfig(String gameCode, GameProperties properties, SlotEngine engine) {
+        this.gameCode = gameCode;
+        this.version = properties.getVersion() != null ? properties.getVersion() : 0L;
+        this.minBet = properties.getMinBet();
+        this.maxBet = properties.getMaxBet();
+        this.minBetCents = minBet != null ? MoneyUtils.toCents(minBet) : 0L;
+        this.maxBetCents = maxBet != null ? MoneyUtils.toCents(maxBet) : Long.MAX_VALUE;
+        this.targetRtp = properties.getTargetRtp();
+        this.theoreticalRtp = properties.getTheoreticalRtp();
+        this.engine = engine;
+        this.jackpotRate = properties.getJackpotRate() != null
+                ? BigDecimal.valueOf(properties.getJackpotRate()) : BigDecimal.ZERO;
+        this.jackpotRatePpm = jackpotRate.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        this.jackpotTriggerProbability = properties.getJackpotTriggerProbability() != null
+                ? properties.getJackpotTriggerProbability() : 0.0;
+        this.jackpotSeed = properties.getJackpotSeed() != null ? properties.getJackpotSeed() : BigDecimal.ZERO;
+        this.properties = properties;
+    }
+
+    public boolean isJackpotEnabled() {
+        return jackpotRate.signum() > 0 && jackpotTriggerProbability > 0;
+    }
+
+    public static CompiledGameConfig compile(String gameCode, GameProperties properties) {
+        return new CompiledGameConfig(gameCode, properties, SlotEngine.compile(properties));
+    }
+}
@@ -0,0 +1,266 @@
+package com.games.slot;
+
+import com.games.config.GameProperties;
+import com.games.util.MoneyUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * 編譯後的滾輪模型
+ *
+ * 由 GameProperties 一次性編譯：
+ * 1. 符號權重轉為 Vose 別名表（alias table），每次抽樣 O(1)
+ * 2. 符號、顯示字串、賠率全部轉為陣列，以符號索引存取；賠率預先轉為 10^-4 定點整數
+ *
+ * 旋轉時只使用原始型別陣列，不再走訪 LinkedHashMap，也不產生 boxing。
+ * 實例不可變，可安全地在多執行緒間共用。為 SlotEngine 的 CLASSIC 實作。
+ */
+public final class ReelModel implements SlotEngine {
+
+    /** 滾輪數量 */
+    public static final int REEL_COUNT = 3;
+
+    /** 結果：未中獎 */
+    public static final int NO_WIN = -1;
+
+    /** 結果：兩個相同符號 */
+    public static final int TWO_MATCH = -2;
+
+    private final String[] symbols;
+    private final String[] displays;
+    /** 各符號出現機率（正規化後的權重） */
+    private final double[] weights;
+    private final double[] probability;
+    private final int[] alias;
+    /** 該符號是否設定三連線賠率 */
+    private final boolean[] hasPayout;
+    /** 三連線賠率（10^-4 定點） */
+    private final long[] payoutUnits;
+    private final long twoMatchUnits;
+    /** 賠率的 double 版本，供模擬與理論計算使用 */
+    private final double[] payoutValues;
+    private final double twoMatchValue;
+
+    private ReelModel(String[] symbols, String[] displays, double[] weights, double[] probability, int[] alias,
+                      BigDecimal[] payoutMultipliers, BigDecimal twoMatchMultiplier) {
+        this.symbols = symbols;
+        this.displays = displays;
+        this.weights = weights;
+        this.probability = probability;
+        this.alias = alias;
+        int n = payoutMultipliers.length;
+        this.hasPayout = new boolean[n];
+        this.payoutUnits = new long[n];
+        this.payoutValues = new double[n];
+        for (int i = 0; i < n; i++) {
+            hasPayout[i] = payoutMultipliers[i] != null;
+            payoutUnits[i] = MoneyUtils.toMultiplierUnits(payoutMultipliers[i]);
+            payoutValues[i] = (double) payoutUnits[i] / MoneyUtils.MULTIPLIER_ONE;
+        }
+        this.twoMatchUnits = MoneyUtils.toMultiplierUnits(twoMatchMultiplier);
+        this.twoMatchValue = (double) twoMatchUnits / MoneyUtils.MULTIPLIER_ONE;
+    }
+
+    /**
+     * 由遊戲配置編譯滾輪模型
+     * 符號順序以 symbolWeights 的插入順序為準
+     */
+    public static ReelModel compile(GameProperties gameProperties) {
+        Map<String, Double> weights = gameProperties.getSymbolWeights();
+        if (weights == null || weights.isEmpty()) {
+            throw new IllegalArgumentException("Symbol weights must not be empty");
+        }
+
+        int n = weights.size();
+        if (n > SpinResultCodec.MAX_SYMBOLS) {
+            throw new IllegalArgumentException("Too many symbols: " + n);
+        }
+        String[] symbols = new String[n];
+        String[] displays = new String[n];
+        double[] w = new double[n];
+        BigDecimal[] payouts = new BigDecimal[n];
+
+        Map<String, String> symbolDisplay = gameProperties.getSymbolDisplay();
+        Map<String, Double> payoutMultipliers = gameProperties.getPayoutMultipliers();
+
+        double total = 0;
+        int i = 0;
+        for (Map.Entry<String, Double> entry : weights.entrySet()) {
+            double weight = entry.getValue() == null ? 0.0 : entry.getValue();
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight for symbol " + entry.getKey() + ": " + weight);
+            }
+            symbols[i] = entry.getKey();
+            displays[i] = symbolDisplay != null ? symbolDisplay.get(entry.getKey()) : null;
+            Double multiplier = payoutMultipliers != null ? payoutMultipliers.get(entry.getKey()) : null;
+            payouts[i] = multiplier != null ? BigDecimal.valueOf(multiplier) : null;
+            w[i] = weight;
+            total += weight;
+            i++;
+        }
+
+        if (total <= 0) {
+            throw new IllegalArgumentException("Total symbol weight must be positive");
+        }
+
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        buildAliasTable(w, total, probability, alias);
+
+        double[] normalized = new double[n];
+        for (int j = 0; j < n; j++) {
+            normalized[j] = w[j] / total;
+        }
+
+        return new ReelModel(symbols, displays, normalized, probability, alias, payouts,
+                gameProperties.getTwoMatchMultiplier());
+    }
+
+    /**
+     * Vose 別名表建構，O(n)
+     */
+    private static void buildAliasTable(double[] weights, double total, double[] probability, int[] alias) {
+        int n = weights.length;
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int s = small[--smallSize];
+            int l = large[--largeSize];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[smallSize++] = l;
+            } else {
+                large[largeSize++] = l;
+            }
+        }
+
+        // 剩餘項目因浮點誤差可能略小於 1，視為 1
+        while (largeSize > 0) {
+            int l = large[--largeSize];
+            probability[l] = 1.0;
+            alias[l] = l;
+        }
+        while (smallSize > 0) {
+            int s = small[--smallSize];
+            probability[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * 依權重抽出一個符號索引，O(1)
+     */
+    public int sample(RandomGenerator random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    @Override
+    public int cellCount() {
+        return REEL_COUNT;
+    }
+
+    /**
+     * 旋轉所有滾輪，結果寫入 reels（長度需為 REEL_COUNT）
+     */
+    @Override
+    public void spin(RandomGenerator random, int[] reels) {
+        for (int i = 0; i < REEL_COUNT; i++) {
+            reels[i] = sample(random);
+        }
+    }
+
+    /**
+     * 判定旋轉結果
+     *
+     * @return 三連線時回傳該符號索引；兩個相同回傳 TWO_MATCH；否則回傳 NO_WIN
+     */
+    public int evaluate(int[] reels) {
+        int first = reels[0];
+        int second = reels[1];
+        int third = reels[2];
+
+        if (first == second && second == third && hasPayout[first]) {
+            return first;
+        }
+        if (first == second || second == third || first == third) {
+            return TWO_MATCH;
+        }
+        return NO_WIN;
+    }
+
+    @Override
+    public long payUnits(int[] cells) {
+        return payUnits(evaluate(cells));
+    }
+
+    @Override
+    public double multiplier(int[] cells) {
+        return multiplier(evaluate(cells));
+    }
+
+    /**
+     * 依判定結果取得賠率（10^-4 定點）
+     */
+    public long payUnits(int outcome) {
+        if (outcome >= 0) {
+            return payoutUnits[outcome];
+        }
+        if (outcome == TWO_MATCH) {
+            return twoMatchUnits;
+        }
+        return 0L;
+    }
+
+    /**
+     * 依判定結果取得賠率倍數（double，供模擬與理論計算使用）
+     */
+    public double multiplier(int outcome) {
+        if (outcome >= 0) {
+            return payoutValues[outcome];
+        }
+        if (outcome == TWO_MATCH) {
+            return twoMatchValue;
+        }
+        return 0.0;
+    }
+
+    @Override
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * 單一滾輪上該符號的出現機率
+     */
+    public double symbolProbability(int index) {
+        return weights[index];
+    }
+
+    @Override
+    public String symbol(int index) {
+        return symbols[index];
+    }
+
+    @Override
+    public String display(int index) {
+        return displays[index];
+    }
+}
@@ -0,0 +1,298 @@
+package com.games.slot;
+
+import com.games.config.GameProperties;
+import com.games.util.MoneyUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * 多輪滾輪條引擎（例如 5x3）
+ *
+ * 每輪為一條符號序列，旋轉時各輪隨機選擇停止位置，顯示連續 rows 個符號。
+ * 格子編號為 reel * rows + row，每個格子對應 long 遮罩的一個位元。
+ *
+ * 判定：
+ * 1. 先由結果建立每個符號的位置遮罩（含百搭）
+ * 2. 賠付線：預先計算每條線前 k 輪的遮罩，以 (prefix & ~match) == 0 判斷由左連續命中長度
+ * 3. ways-to-win：逐輪以 bitCount(match & reelMask) 計算命中數並相乘
+ * 賠率以 10^-4 為單位的 long 累加（MoneyUtils 定點），判定過程不配置任何物件。
+ */
+public final class ReelStripEngine implements SlotEngine {
+
+    private static final int MAX_CELLS = Long.SIZE;
+
+    private final String[] symbols;
+    private final String[] displays;
+    private final int reelCount;
+    private final int rows;
+    private final int[][] strips;
+    /** 百搭符號索引，-1 表示無 */
+    private final int wild;
+    /** [symbol][連續輪數] 賠率（10^-4 單位） */
+    private final long[][] pays;
+    private final boolean ways;
+    private final int lineCount;
+    /** [line * reelCount + reel] → 格子編號 */
+    private final int[] lineCells;
+    /** [line * (reelCount + 1) + k] → 該線前 k 輪的格子遮罩 */
+    private final long[] linePrefixMasks;
+    /** 各輪的格子遮罩 */
+    private final long[] reelMasks;
+    /** 每個執行緒重複使用的符號遮罩 */
+    private final ThreadLocal<long[]> symbolMasks;
+
+    private ReelStripEngine(String[] symbols, String[] displays, int rows, int[][] strips, int wild,
+                            long[][] pays, boolean ways, int[][] paylines) {
+        this.symbols = symbols;
+        this.displays = displays;
+        this.reelCount = strips.length;
+        this.rows = rows;
+        this.strips = strips;
+        this.wild = wild;
+        this.pays = pays;
+        this.ways = ways;
+
+        this.reelMasks = new long[reelCount];
+        for (int r = 0; r < reelCount; r++) {
+            for (int row = 0; row < rows; row++) {
+                reelMasks[r] |= 1L << cell(r, row);
+            }
+        }
+
+        this.lineCount = ways ? 0 : paylines.length;
+        this.lineCells = new int[lineCount * reelCount];
+        this.linePrefixMasks = new long[lineCount * (reelCount + 1)];
+        for (int l = 0; l < lineCount; l++) {
+            long prefix = 0;
+            for (int r = 0; r < reelCount; r++) {
+                int cell = cell(r, paylines[l][r]);
+                lineCells[l * reelCount + r] = cell;
+                prefix |= 1L << cell;
+                linePrefixMasks[l * (reelCount + 1) + r + 1] = prefix;
+            }
+        }
+
+        int symbolCount = symbols.length;
+        this.symbolMasks = ThreadLocal.withInitial(() -> new long[symbolCount]);
+    }
+
+    /**
+     * 由遊戲配置編譯引擎
+     */
+    public static ReelStripEngine compile(GameProperties properties) {
+        List<List<String>> reelStrips = properties.getReelStrips();
+        if (reelStrips == null || reelStrips.isEmpty()) {
+            throw new IllegalArgumentException("Reel strips must not be empty");
+        }
+        int rows = properties.getRows() != null ? properties.getRows() : 3;
+        int reelCount = reelStrips.size();
+        if (rows <= 0 || (long) rows * reelCount > MAX_CELLS) {
+            throw new IllegalArgumentException("Invalid reel layout: " + reelCount + "x" + rows);
+        }
+
+        // 符號順序：symbols 清單優先，其餘依滾輪條出現順序
+        Map<String, Integer> index = new LinkedHashMap<>();
+        if (properties.getSymbols() != null) {
+            for (String symbol : properties.getSymbols()) {
+                index.putIfAbsent(symbol, index.size());
+            }
+        }
+        int[][] strips = new int[reelCount][];
+        for (int r = 0; r < reelCount; r++) {
+            List<String> strip = reelStrips.get(r);
+            if (strip == null || strip.size() < rows) {
+                throw new IllegalArgumentException("Reel " + r + " is shorter than " + rows + " rows");
+            }
+            strips[r] = new int[strip.size()];
+            for (int i = 0; i < strip.size(); i++) {
+                strips[r][i] = index.computeIfAbsent(strip.get(i), k -> index.size());
+            }
+        }
+        int symbolCount = index.size();
+        if (symbolCount > SpinResultCodec.MAX_SYMBOLS) {
+            throw new IllegalArgumentException("Too many symbols: " + symbolCount);
+        }
+
+        String[] symbols = index.keySet().toArray(new String[0]);
+        String[] displays = new String[symbolCount];
+        Map<String, String> symbolDisplay = properties.getSymbolDisplay();
+        for (int i = 0; i < symbolCount; i++) {
+            displays[i] = symbolDisplay != null && symbolDisplay.get(symbols[i]) != null
+                    ? symbolDisplay.get(symbols[i]) : symbols[i];
+        }
+
+        long[][] pays = new long[symbolCount][reelCount + 1];
+        Map<String, List<Double>> paytable = properties.getPaytable();
+        if (paytable == null || paytable.isEmpty()) {
+            throw new IllegalArgumentException("Paytable must not be empty");
+        }
+        for (Map.Entry<String, List<Double>> entry : paytable.entrySet()) {
+            Integer symbol = index.get(entry.getKey());
+            if (symbol == null || entry.getValue() == null) {
+                continue;
+            }
+            List<Double> values = entry.getValue();
+            for (int count = 1; count <= reelCount && count <= values.size(); count++) {
+                Double value = values.get(count - 1);
+                pays[symbol][count] = value != null ? MoneyUtils.toMultiplierUnits(BigDecimal.valueOf(value)) : 0L;
+            }
+        }
+
+        Integer wildIndex = properties.getWildSymbol() != null ? index.get(properties.getWildSymbol()) : null;
+        int wild = wildIndex != null ? wildIndex : -1;
+
+        boolean ways = Boolean.TRUE.equals(properties.getWaysToWin());
+        int[][] paylines = new int[0][];
+        if (!ways) {
+            List<List<Integer>> lines = properties.getPaylines();
+            if (lines == null || lines.isEmpty()) {
+                throw new IllegalArgumentException("Paylines must not be empty unless waysToWin is enabled");
+            }
+            paylines = new int[lines.size()][reelCount];
+            for (int l = 0; l < lines.size(); l++) {
+                List<Integer> line = lines.get(l);
+                if (line == null || line.size() != reelCount) {
+                    throw new IllegalArgumentException("Payline " + l + " must have " + reelCount + " positions");
+                }
+                for (int r = 0; r < reelCount; r++) {
+                    int row = line.get(r);
+                    if (row < 0 || row >= rows) {
+                        throw new IllegalArgumentException("Payline " + l + " row out of range: " + row);
+                    }
+                    paylines[l][r] = row;
+                }
+            }
+        }
+
+        return new ReelStripEngine(symbols, displays, rows, strips, wild, pays, ways, paylines);
+    }
+
+    @Override
+    public int cellCount() {
+        return reelCount * rows;
+    }
+
+    @Override
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    @Override
+    public String symbol(int index) {
+        return symbols[index];
+    }
+
+    @Override
+    public String display(int index) {
+        return displays[index];
+    }
+
+    public int reelCount() {
+        return reelCount;
+    }
+
+    public int stripLength(int reel) {
+        return strips[reel].length;
+    }
+
+    @Override
+    public void spin(RandomGenerator random, int[] cells) {
+        for (int r = 0; r < reelCount; r++) {
+            fillReel(r, random.nextInt(strips[r].length), cells);
+        }
+    }
+
+    /**
+     * 依指定停止位置填入結果（供窮舉計算使用）
+     */
+    public void fill(int[] stops, int[] cells) {
+        for (int r = 0; r < reelCount; r++) {
+            fillReel(r, stops[r], cells);
+        }
+    }
+
+    @Override
+    public double multiplier(int[] cells) {
+        return (double) payUnits(cells) / MoneyUtils.MULTIPLIER_ONE;
+    }
+
+    @Override
+    public long payUnits(int[] cells) {
+        long[] masks = symbolMasks.get();
+        Arrays.fill(masks, 0L);
+        int cellCount = cellCount();
+        for (int c = 0; c < cellCount; c++) {
+            masks[cells[c]] |= 1L << c;
+        }
+        long wildMask = wild >= 0 ? masks[wild] : 0L;
+        return ways ? evaluateWays(masks, wildMask) : evaluateLines(cells, masks, wildMask);
+    }
+
+    private long evaluateLines(int[] cells, long[] masks, long wildMask) {
+        long total = 0;
+        for (int l = 0; l < lineCount; l++) {
+            int base = l * reelCount;
+            // 線上第一個非百搭符號決定該線符號；全為百搭時以百搭計
+            int symbol = wild;
+            for (int r = 0; r < reelCount; r++) {
+                int s = cells[lineCells[base + r]];
+                if (s != wild) {
+                    symbol = s;
+                    break;
+                }
+            }
+            long match = masks[symbol] | wildMask;
+            int prefixBase = l * (reelCount + 1);
+            for (int k = reelCount; k >= 1; k--) {
+                if ((linePrefixMasks[prefixBase + k] & ~match) == 0) {
+                    total += pays[symbol][k];
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    private long evaluateWays(long[] masks, long wildMask) {
+        long total = 0;
+        for (int s = 0; s < symbols.length; s++) {
+            if (s == wild || masks[s] == 0) {
+                continue;
+            }
+            long match = masks[s] | wildMask;
+            long combinations = 1;
+            int count = 0;
+            for (int r = 0; r < reelCount; r++) {
+                int hits = Long.bitCount(match & reelMasks[r]);
+                if (hits == 0) {
+                    break;
+                }
+                combinations *= hits;
+                count++;
+            }
+            total += pays[s][count] * combinations;
+        }
+        return total;
+    }
+
+    private void fillReel(int reel, int stop, int[] cells) {
+        int[] strip = strips[reel];
+        int base = reel * rows;
+        for (int row = 0; row < rows; row++) {
+            int position = stop + row;
+            if (position >= strip.length) {
+                position -= strip.length;
+            }
+            cells[base + row] = strip[position];
+        }
+    }
+
+    private int cell(int reel, int row) {
+        return reel * rows + row;
+    }
+}
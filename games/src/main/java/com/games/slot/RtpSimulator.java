@@ -0,0 +1,316 @@
+package com.games.slot;
+
+import com.games.dto.RtpSimulationResponse;
+import com.games.util.MoneyUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * RTP 蒙地卡羅模擬器
+ *
+ * 以 fork-join 將旋轉次數切分到所有核心，每個子任務使用 SplittableRandom.split()
+ * 產生獨立的隨機數串流；切分方式只取決於旋轉次數，因此相同種子的結果可重現，與平行度無關。
+ *
+ * 旋轉直接使用 SlotEngine.spin，兩種模式：
+ * - 依遊戲配置與投注額（simulate(CompiledGameConfig, ...)）：贏分與 SlotGameService 相同，以 SlotEngine.winCents
+ *   四捨五入到分；彩金依提撥比例、觸發機率與池底以期望值計入 jackpotRtp / totalRtp
+ *   （池底由營運方補足，彩金占比因此與投注額有關），贏分分佈不含彩金
+ * - 只有引擎（simulate(SlotEngine, ...)）：以 double 倍數計算理論值，不做金額捨入也不含彩金，
+ *   供與理論 RTP 比對
+ * 倍數皆以投注額為 1 表示。
+ */
+public final class RtpSimulator {
+
+    /** 單一子任務最多執行的旋轉次數 */
+    private static final long LEAF_SPINS = 1L << 20;
+
+    /** 遊戲未設定最小投注額時的模擬投注額（分） */
+    public static final long DEFAULT_BET_CENTS = 100L;
+
+    private RtpSimulator() {
+    }
+
+    /**
+     * 依正式派彩邏輯模擬：贏分四捨五入到分，並計入彩金占比
+     *
+     * @param gameConfig 編譯後的遊戲配置
+     * @param betCents   每注投注額（分）
+     * @param spins      旋轉次數
+     * @param seed       隨機種子
+     * @param pool       執行用的 ForkJoinPool
+     */
+    public static RtpSimulationResponse simulate(CompiledGameConfig gameConfig, long betCents, long spins, long seed,
+                                                 ForkJoinPool pool) {
+        if (betCents <= 0) {
+            throw new IllegalArgumentException("Bet must be positive");
+        }
+        RtpSimulationResponse response = run(gameConfig.getEngine(), betCents, spins, seed, pool);
+        double jackpotRtp = jackpotRtp(gameConfig, betCents);
+        response.setGameCode(gameConfig.getGameCode());
+        response.setConfigVersion(gameConfig.getVersion());
+        response.setTargetRtp(gameConfig.getTargetRtp());
+        response.setBetAmount(MoneyUtils.fromCents(betCents));
+        response.setJackpotRtp(jackpotRtp);
+        response.setTotalRtp(response.getMeasuredRtp() + jackpotRtp);
+        return response;
+    }
+
+    /**
+     * 以理論倍數模擬主遊戲（不做金額捨入、不含彩金）
+     *
+     * @param model 編譯後的老虎機引擎
+     * @param spins 旋轉次數
+     * @param seed  隨機種子
+     * @param pool  執行用的 ForkJoinPool
+     */
+    public static RtpSimulationResponse simulate(SlotEngine model, long spins, long seed, ForkJoinPool pool) {
+        return run(model, 0L, spins, seed, pool);
+    }
+
+    /**
+     * 彩金的長期期望占比（%）：每注提撥比例 + 每注觸發機率 × 池底 / 投注額
+     * 派彩只派出整數分，零頭留在池中，長期不影響占比
+     */
+    public static double jackpotRtp(CompiledGameConfig gameConfig, long betCents) {
+        if (!gameConfig.isJackpotEnabled()) {
+            return 0.0;
+        }
+        double contribution = gameConfig.getJackpotRatePpm() / 1_000_000.0;
+        double seedShare = gameConfig.getJackpotTriggerProbability()
+                * gameConfig.getJackpotSeed().movePointRight(2).doubleValue() / betCents;
+        return (contribution + seedShare) * 100;
+    }
+
+    private static RtpSimulationResponse run(SlotEngine model, long betCents, long spins, long seed,
+                                             ForkJoinPool pool) {
+        if (spins <= 0) {
+            throw new IllegalArgumentException("Spins must be positive");
+        }
+
+        long start = System.nanoTime();
+        Tally tally = pool.invoke(new SpinTask(model, betCents, spins, new SplittableRandom(seed)));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        return tally.toResponse(seed, pool.getParallelism(), elapsedMs);
+    }
+
+    /**
+     * 模擬子任務：超過 LEAF_SPINS 時對半切分並分裂隨機數串流
+     */
+    private static final class SpinTask extends RecursiveTask<Tally> {
+
+        private final SlotEngine model;
+        /** 每注投注額（分），0 表示以理論倍數計算 */
+        private final long betCents;
+        private final long spins;
+        private final SplittableRandom random;
+
+        private SpinTask(SlotEngine model, long betCents, long spins, SplittableRandom random) {
+            this.model = model;
+            this.betCents = betCents;
+            this.spins = spins;
+            this.random = random;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (spins <= LEAF_SPINS) {
+                return runLeaf();
+            }
+            long half = spins >>> 1;
+            SpinTask right = new SpinTask(model, betCents, spins - half, random.split());
+            SpinTask left = new SpinTask(model, betCents, half, random);
+            right.fork();
+            Tally result = left.compute();
+            result.merge(right.join());
+            return result;
+        }
+
+        private Tally runLeaf() {
+            Tally tally = new Tally();
+            int[] cells = new int[model.cellCount()];
+            for (long i = 0; i < spins; i++) {
+                model.spin(random, cells);
+                // 與 SlotGameService 相同以分計算贏分（含四捨五入），再換算為倍數
+                double multiplier = betCents > 0
+                        ? (double) model.winCents(cells, betCents) / betCents
+                        : model.multiplier(cells);
+                tally.record(multiplier);
+            }
+            tally.spins = spins;
+            return tally;
+        }
+    }
+
+    /**
+     * 累計結果：總和、平方和與贏分倍數分佈
+     */
+    private static final class Tally {
+
+        private long spins;
+        private long hits;
+        private double sum;
+        private double sumOfSquares;
+        private final PayoutHistogram histogram = new PayoutHistogram();
+
+        private void record(double multiplier) {
+            if (multiplier > 0) {
+                hits++;
+                sum += multiplier;
+                sumOfSquares += multiplier * multiplier;
+                histogram.add(multiplier, 1);
+            }
+        }
+
+        private void merge(Tally other) {
+            spins += other.spins;
+            hits += other.hits;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            histogram.addAll(other.histogram);
+        }
+
+        private RtpSimulationResponse toResponse(long seed, int parallelism, long elapsedMs) {
+            double mean = sum / spins;
+            double variance = Math.max(0.0, sumOfSquares / spins - mean * mean);
+            double standardDeviation = Math.sqrt(variance);
+
+            // 依倍數排序，未中獎（0 倍）另外計入
+            double[] multipliers = histogram.sortedKeys();
+            List<RtpSimulationResponse.PayoutBucket> distribution = new ArrayList<>(multipliers.length + 1);
+            long misses = spins - hits;
+            if (misses > 0) {
+                distribution.add(bucket(0.0, misses));
+            }
+            for (double multiplier : multipliers) {
+                distribution.add(bucket(multiplier, histogram.get(multiplier)));
+            }
+
+            return RtpSimulationResponse.builder()
+                    .spins(spins)
+                    .seed(seed)
+                    .parallelism(parallelism)
+                    .elapsedMs(elapsedMs)
+                    .measuredRtp(mean * 100)
+                    .rtpConfidence95(1.96 * standardDeviation / Math.sqrt(spins) * 100)
+                    .hitFrequency((double) hits / spins)
+                    .variance(variance)
+                    .standardDeviation(standardDeviation)
+                    .p50(percentile(distribution, 0.50))
+                    .p90(percentile(distribution, 0.90))
+                    .p99(percentile(distribution, 0.99))
+                    .p999(percentile(distribution, 0.999))
+                    .maxMultiplier(multipliers.length > 0 ? multipliers[multipliers.length - 1] : 0.0)
+                    .payoutDistribution(distribution)
+                    .build();
+        }
+
+        private RtpSimulationResponse.PayoutBucket bucket(double multiplier, long count) {
+            return RtpSimulationResponse.PayoutBucket.builder()
+                    .multiplier(multiplier)
+                    .count(count)
+                    .frequency((double) count / spins)
+                    .build();
+        }
+
+        private double percentile(List<RtpSimulationResponse.PayoutBucket> distribution, double quantile) {
+            double threshold = quantile * spins;
+            long cumulative = 0;
+            for (RtpSimulationResponse.PayoutBucket bucket : distribution) {
+                cumulative += bucket.getCount();
+                if (cumulative >= threshold) {
+                    return bucket.getMultiplier();
+                }
+            }
+            return distribution.isEmpty() ? 0.0 : distribution.get(distribution.size() - 1).getMultiplier();
+        }
+    }
+
+    /**
+     * 以 double 為鍵的開放定址計數表，避免 boxing
+     */
+    private static final class PayoutHistogram {
+
+        private long[] keys = new long[16];
+        private long[] counts = new long[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        private void add(double multiplier, long count) {
+            long key = Double.doubleToLongBits(multiplier);
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (used[index]) {
+                if (keys[index] == key) {
+                    counts[index] += count;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            used[index] = true;
+            keys[index] = key;
+            counts[index] = count;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private long get(double multiplier) {
+            long key = Double.doubleToLongBits(multiplier);
+            int mask = keys.length - 1;
+            int index = mix(key) & mask;
+            while (used[index]) {
+                if (keys[index] == key) {
+                    return counts[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return 0;
+        }
+
+        private void addAll(PayoutHistogram other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.used[i]) {
+                    add(Double.longBitsToDouble(other.keys[i]), other.counts[i]);
+                }
+            }
+        }
+
+        private double[] sortedKeys() {
+            double[] result = new double[size];
+            int j = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) {
+                    result[j++] = Double.longBitsToDouble(keys[i]);
+                }
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            counts = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    add(Double.longBitsToDouble(oldKeys[i]), oldCounts[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
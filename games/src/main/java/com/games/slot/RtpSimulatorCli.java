@@ -0,0 +1,52 @@
+package com.games.slot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.games.config.GameProperties;
+import com.games.dto.RtpSimulationResponse;
+import com.games.util.MoneyUtils;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RTP 模擬命令列工具
+ *
+ * 讀取 GameProperties JSON（與 Redis hash game_setting_all 中的格式相同），
+ * 不需啟動 Spring 容器即可離線驗證配置。贏分與彩金占比依每注投注額計算（預設為配置的最小投注額）。
+ *
+ * 用法：{@code RtpSimulatorCli <config.json> [spins] [seed] [threads] [betAmount]}
+ */
+public final class RtpSimulatorCli {
+
+    private RtpSimulatorCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: RtpSimulatorCli <config.json> [spins] [seed] [threads] [betAmount]");
+            System.exit(1);
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        GameProperties properties = objectMapper.readValue(new File(args[0]), GameProperties.class);
+        long spins = args.length > 1 ? Long.parseLong(args[1]) : 100_000_000L;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : ThreadLocalRandom.current().nextLong();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        CompiledGameConfig gameConfig = CompiledGameConfig.compile(null, properties);
+        long betCents = args.length > 4 ? MoneyUtils.toCents(new BigDecimal(args[4]))
+                : gameConfig.getMinBetCents() > 0 ? gameConfig.getMinBetCents() : RtpSimulator.DEFAULT_BET_CENTS;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            RtpSimulationResponse response = RtpSimulator.simulate(gameConfig, betCents, spins, seed, pool);
+            System.out.println(objectMapper.writeValueAsString(response));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.games.slot;
+
+import com.games.config.GameProperties;
+import com.games.util.MoneyUtils;
+
+import java.math.BigDecimal;
+import java.util.random.RandomGenerator;
+
+/**
+ * 老虎機引擎 SPI
+ *
+ * 旋轉結果以符號索引陣列（cells）表示，長度為 cellCount()，由呼叫端重複使用以避免配置。
+ * 實作必須不可變且可在多執行緒間共用；依遊戲配置中的 engine 欄位選擇：
+ * - CLASSIC：3 個加權滾輪，三連線 / 兩個相同（ReelModel）
+ * - REEL_STRIP：多輪滾輪條，支援固定賠付線與 ways-to-win（ReelStripEngine）
+ */
+public interface SlotEngine {
+
+    String CLASSIC = "CLASSIC";
+    String REEL_STRIP = "REEL_STRIP";
+
+    /**
+     * 依配置編譯引擎
+     */
+    static SlotEngine compile(GameProperties properties) {
+        String engine = properties.getEngine();
+        if (engine == null || engine.isBlank() || CLASSIC.equalsIgnoreCase(engine)) {
+            return ReelModel.compile(properties);
+        }
+        if (REEL_STRIP.equalsIgnoreCase(engine)) {
+            return ReelStripEngine.compile(properties);
+        }
+        throw new IllegalArgumentException("Unknown slot engine: " + engine);
+    }
+
+    /**
+     * 結果格子數
+     */
+    int cellCount();
+
+    int symbolCount();
+
+    String symbol(int index);
+
+    String display(int index);
+
+    /**
+     * 旋轉，結果寫入 cells（長度需為 cellCount()）
+     */
+    void spin(RandomGenerator random, int[] cells);
+
+    /**
+     * 依旋轉結果取得總賠率（以投注額為 1，10^-4 定點）
+     */
+    long payUnits(int[] cells);
+
+    /**
+     * 依旋轉結果計算贏分（分）
+     */
+    default long winCents(int[] cells, long betCents) {
+        long units = payUnits(cells);
+        return units == 0 ? 0L : MoneyUtils.multiply(betCents, units);
+    }
+
+    /**
+     * 依旋轉結果計算贏分（BigDecimal，供重播等非熱路徑使用）
+     */
+    default BigDecimal winAmount(int[] cells, BigDecimal betAmount) {
+        return MoneyUtils.fromCents(winCents(cells, MoneyUtils.toCents(betAmount)));
+    }
+
+    /**
+     * 依旋轉結果取得贏分倍數（double，供模擬與理論計算使用）
+     */
+    double multiplier(int[] cells);
+}
@@ -0,0 +1,73 @@
+package com.games.slot;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * 計數器式（counter-based）隨機數產生器
+ *
+ * 第 i 個輸出 = SplitMix64 混合函數(seed + i * GOLDEN_GAMMA)，只取決於種子與序號，
+ * 因此只要保存每注的種子，即可逐位元重現該注的旋轉結果。
+ * nextInt(bound) / nextDouble() 皆自行實作，不依賴 JDK 預設演算法，確保跨版本重播一致。
+ *
+ * 非執行緒安全，每次旋轉使用各自的實例（或以 reset 重設後重用）。
+ */
+public final class SpinRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private long counter;
+
+    public SpinRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 以新的種子重設，序號歸零
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        this.counter = 0;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(seed + GOLDEN_GAMMA * ++counter);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    /**
+     * 產生 [0, bound) 的均勻整數（拒絕取樣，無偏差）
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = nextInt() >>> 1;
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1) {
+            // 落在不完整區間時重新取樣
+        }
+        return r;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
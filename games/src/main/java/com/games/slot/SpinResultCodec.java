@@ -0,0 +1,42 @@
+package com.games.slot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 旋轉結果編碼
+ *
+ * 每個格子以一個位元組保存符號索引（無號，0~255），3 輪結果只需 3 bytes，
+ * 取代原本逗號分隔的顯示字串。顯示字串於回應時再由對應版本的 SlotEngine 解出。
+ */
+public final class SpinResultCodec {
+
+    /** 單一格子可表示的最大符號數 */
+    public static final int MAX_SYMBOLS = 256;
+
+    private SpinResultCodec() {
+    }
+
+    public static byte[] encode(int[] cells) {
+        byte[] data = new byte[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            data[i] = (byte) cells[i];
+        }
+        return data;
+    }
+
+    /**
+     * 解碼為顯示字串，符號索引超出模型範圍時回傳 null
+     */
+    public static List<String> decode(byte[] data, SlotEngine model) {
+        List<String> result = new ArrayList<>(data.length);
+        for (byte cell : data) {
+            int symbol = cell & 0xFF;
+            if (symbol >= model.symbolCount()) {
+                return null;
+            }
+            result.add(model.display(symbol));
+        }
+        return result;
+    }
+}
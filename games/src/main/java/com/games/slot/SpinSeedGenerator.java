@@ -0,0 +1,65 @@
+package com.games.slot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * 每注種子產生器
+ *
+ * seed = HMAC-SHA256(伺服器密鑰, betId) 的前 8 個位元組。
+ * betId 由 SnowflakeIdGenerator 產生且唯一，無密鑰無法預測種子，
+ * 持有密鑰即可由 (seed, 配置版本) 重現任一注的結果。
+ */
+@Component
+public class SpinSeedGenerator {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public SpinSeedGenerator(@Value("${game.rng.secret}") String secret,
+                             @Value("${jwt.secret:}") String jwtSecret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("game.rng.secret must not be blank");
+        }
+        // 與 JWT 簽章密鑰分開，取得其中一把不能推得另一把
+        if (secret.equals(jwtSecret)) {
+            throw new IllegalArgumentException("game.rng.secret must differ from jwt.secret");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * 取得指定投注的種子
+     */
+    public long seedFor(long betId) {
+        Mac mac = macs.get();
+        byte[] digest = mac.doFinal(ByteBuffer.allocate(Long.BYTES).putLong(betId).array());
+        return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+    }
+
+    /**
+     * 建立指定投注的隨機數產生器
+     */
+    public SpinRandom randomFor(long betId) {
+        return new SpinRandom(seedFor(betId));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.games.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 金額定點運算
+ *
+ * 旋轉熱路徑以 long 計算：
+ * - 金額以「分」為單位（小數 2 位，與資料庫 NUMERIC(15,2) 一致）
+ * - 賠率倍數以 10^-4 為單位
+ * 只在寫入資料庫與 API 回應時轉為 BigDecimal。
+ * 贏分 = 投注額 × 倍數，四捨五入到分，與原本 BigDecimal 結果寫入 NUMERIC(15,2) 後的值完全相同。
+ */
+public final class MoneyUtils {
+
+    /** 金額小數位數 */
+    public static final int SCALE = 2;
+
+    /** 賠率倍數小數位數 */
+    public static final int MULTIPLIER_SCALE = 4;
+
+    /** 倍數 1 的定點表示 */
+    public static final long MULTIPLIER_ONE = 10_000L;
+
+    private MoneyUtils() {
+    }
+
+    /**
+     * 金額轉為分（小數超過 2 位時拋出 ArithmeticException）
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * 倍數轉為 10^-4 定點（小數超過 4 位時拋出 IllegalArgumentException）
+     */
+    public static long toMultiplierUnits(BigDecimal multiplier) {
+        if (multiplier == null) {
+            return 0L;
+        }
+        try {
+            return multiplier.setScale(MULTIPLIER_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Multiplier must have at most " + MULTIPLIER_SCALE
+                    + " decimal places: " + multiplier, e);
+        }
+    }
+
+    /**
+     * 投注額（分）× 倍數（10^-4），四捨五入到分
+     */
+    public static long multiply(long cents, long multiplierUnits) {
+        long product = Math.multiplyExact(cents, multiplierUnits);
+        long quotient = product / MULTIPLIER_ONE;
+        long remainder = product % MULTIPLIER_ONE;
+        if (remainder * 2 >= MULTIPLIER_ONE) {
+            quotient++;
+        } else if (remainder * 2 <= -MULTIPLIER_ONE) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
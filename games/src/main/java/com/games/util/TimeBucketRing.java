@@ -0,0 +1,116 @@
+package com.games.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定大小的時間桶環形緩衝區
+ *
+ * 每個桶涵蓋 bucketMillis 毫秒，以 bucket % size 定位槽位，寫入時只更新 LongAdder。
+ * 槽位被新的時間桶覆蓋前，舊資料會移入待送佇列；早於環形範圍的遲到資料也直接進入待送佇列，
+ * 因此 drain() 取出的增量不會遺失。
+ *
+ * 寫入端在檢查槽位後停頓超過整個環形時間範圍才可能寫錯桶，實務上可忽略。
+ */
+public final class TimeBucketRing {
+
+    private final long bucketMillis;
+    private final Slot[] slots;
+    private final Queue<Bucket> evicted = new ConcurrentLinkedQueue<>();
+
+    public TimeBucketRing(long bucketMillis, int size) {
+        if (bucketMillis <= 0 || size <= 0) {
+            throw new IllegalArgumentException("bucketMillis and size must be positive");
+        }
+        this.bucketMillis = bucketMillis;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * 累計一筆資料到所屬時間桶
+     */
+    public void add(long timestampMillis, long bet, long win, long count) {
+        long bucket = Math.floorDiv(timestampMillis, bucketMillis);
+        Slot slot = slots[(int) Math.floorMod(bucket, (long) slots.length)];
+        if (slot.bucket != bucket) {
+            synchronized (slot) {
+                if (slot.bucket != bucket) {
+                    if (slot.bucket > bucket) {
+                        // 遲到資料：槽位已被較新的桶佔用
+                        evicted.add(new Bucket(bucket, bet, win, count));
+                        return;
+                    }
+                    Bucket old = slot.drain();
+                    if (old != null) {
+                        evicted.add(old);
+                    }
+                    slot.bucket = bucket;
+                }
+            }
+        }
+        slot.bet.add(bet);
+        slot.win.add(win);
+        slot.count.add(count);
+    }
+
+    /**
+     * 取出所有尚未送出的增量並歸零
+     */
+    public List<Bucket> drain() {
+        List<Bucket> result = new ArrayList<>();
+        Bucket pending;
+        while ((pending = evicted.poll()) != null) {
+            result.add(pending);
+        }
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                Bucket bucket = slot.drain();
+                if (bucket != null) {
+                    result.add(bucket);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Slot {
+
+        private volatile long bucket = Long.MIN_VALUE;
+        private final LongAdder bet = new LongAdder();
+        private final LongAdder win = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        private Bucket drain() {
+            long c = count.sumThenReset();
+            long b = bet.sumThenReset();
+            long w = win.sumThenReset();
+            if (c == 0 && b == 0 && w == 0) {
+                return null;
+            }
+            return new Bucket(bucket, b, w, c);
+        }
+    }
+
+    /**
+     * 單一時間桶的增量
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    public static class Bucket {
+        /** 桶編號（timestamp / bucketMillis） */
+        private long bucket;
+        private long bet;
+        private long win;
+        private long count;
+    }
+}